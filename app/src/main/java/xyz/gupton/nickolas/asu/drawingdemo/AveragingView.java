@@ -4,29 +4,39 @@ import android.content.Context;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
+import android.graphics.RectF;
 import android.view.MotionEvent;
 import android.view.View;
 
+import xyz.gupton.nickolas.asu.drawingdemo.core.StreamingStats;
+
 /**
- * Shows the average of all the points tapped.
+ * Shows the average of all the points tapped, the ellipse that should hold 95% of them,
+ * and a moving average that follows the most recent taps.
  * @author Nickolas Gupton
  */
 class AveragingView extends View implements View.OnTouchListener {
 
     /**
-     * xTotal | float: Keeps track of the total of all of the clicks in the X dimension.
+     * CONFIDENCE | double: The share of the taps the ellipse should hold.
+     */
+    private static final double CONFIDENCE = 0.95;
+
+    /**
+     * MOVING_DECAY | double: How much weight the moving average gives each new tap.
      */
-    private float xTotal = 0;
+    private static final double MOVING_DECAY = 0.25;
 
     /**
-     * xTotal | float: Keeps track of the total of all of the clicks in the X dimension.
+     * clicks | StreamingStats: Keeps track of the statistics of all of the clicks.
      */
-    private float yTotal = 0;
+    private final StreamingStats clicks = new StreamingStats(MOVING_DECAY);
 
     /**
-     * numClicks | int: Keeps track of the number of times the screen has been clicked.
+     * ellipse | float[]: The confidence ellipse, filled in by StreamingStats.getEllipse().
      */
-    private int numClicks = 0;
+    private final float[] ellipse = new float[5];
+    private final RectF ellipseBounds = new RectF();
 
     /**
      * The Paint object needed to draw on the Canvas.
@@ -34,8 +44,8 @@ class AveragingView extends View implements View.OnTouchListener {
     private Paint paint;
 
     /**
-     * Sets up a new PointsView.
-     * @param context   The Context (probably an Activity) the PointsView is running in.
+     * Sets up a new AveragingView.
+     * @param context   The Context (probably an Activity) the AveragingView is running in.
      */
     public AveragingView(Context context) {
         // Call the constructor of the View class.
@@ -53,9 +63,27 @@ class AveragingView extends View implements View.OnTouchListener {
         // Paint the background a very light blue.
         canvas.drawColor(Color.BLACK);
 
+        if (clicks.getEllipse(CONFIDENCE, ellipse)) {
+            // Draw the ellipse around its center, turned to line up with its major axis.
+            paint.setColor(Color.YELLOW);
+            paint.setStyle(Paint.Style.STROKE);
+            paint.setStrokeWidth(4f);
+            ellipseBounds.set(-ellipse[2], -ellipse[3], ellipse[2], ellipse[3]);
+            int saved = canvas.save();
+            canvas.translate(ellipse[0], ellipse[1]);
+            canvas.rotate(ellipse[4]);
+            canvas.drawOval(ellipseBounds, paint);
+            canvas.restoreToCount(saved);
+            paint.setStyle(Paint.Style.FILL);
+        }
+
         // Draw lines among the points
         paint.setColor(Color.WHITE);
-        canvas.drawCircle(xTotal/numClicks, yTotal/numClicks, (float)Math.sqrt(numClicks)*9f, paint);
+        canvas.drawCircle((float)clicks.getMeanX(), (float)clicks.getMeanY(), (float)Math.sqrt(clicks.getCount())*9f, paint);
+
+        // Show where the most recent taps have been pulling the average.
+        paint.setColor(Color.RED);
+        canvas.drawCircle((float)clicks.getMovingX(), (float)clicks.getMovingY(), 12f, paint);
 
     }
 
@@ -69,10 +97,7 @@ class AveragingView extends View implements View.OnTouchListener {
                 break;
             case MotionEvent.ACTION_CANCEL:
             case MotionEvent.ACTION_UP:
-                numClicks++;
-
-                xTotal += event.getX();
-                yTotal += event.getY();
+                clicks.add(event.getX(), event.getY());
 
                 invalidate();
                 break;
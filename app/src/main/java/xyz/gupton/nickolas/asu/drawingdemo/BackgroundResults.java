@@ -0,0 +1,108 @@
+package xyz.gupton.nickolas.asu.drawingdemo;
+
+import android.view.View;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands the results of the work a View does on other threads back to the thread the View runs on,
+ * and keeps count of how much of that work is still going.
+ *
+ * On screen the results go through the View's own post(). A ViewReplayTarget drives its View off screen
+ * from a thread of its own, where post() would hold them until the View is attached, so while it does the
+ * results are queued instead and the target runs them itself: between frames, as the UI thread would,
+ * and at the end of the replay until no work is left.
+ */
+class BackgroundResults {
+
+    /**
+     * NOTHING | Runnable: Queued when a piece of work finishes, to wake up runUntilIdle().
+     */
+    private static final Runnable NOTHING = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    /**
+     * The View the results belong to.
+     */
+    private final View view;
+
+    /**
+     * queueing | boolean: True if the results are queued for a ViewReplayTarget instead of posted.
+     */
+    private volatile boolean queueing = false;
+
+    /**
+     * The results waiting to be run by a ViewReplayTarget.
+     */
+    private final LinkedBlockingQueue<Runnable> queue = new LinkedBlockingQueue<>();
+
+    /**
+     * running | AtomicInteger: How many pieces of work have been started and haven't finished.
+     */
+    private final AtomicInteger running = new AtomicInteger();
+
+    /**
+     * Sets up a new BackgroundResults.
+     * @param view   The View the results belong to.
+     */
+    BackgroundResults(View view) {
+        this.view = view;
+    }
+
+    /**
+     * Switches from posting the results to queueing them. Call before the View starts any work.
+     */
+    void startQueueing() {
+        queueing = true;
+    }
+
+    /**
+     * Call on the View's thread just before handing a piece of work to another thread.
+     */
+    void started() {
+        running.incrementAndGet();
+    }
+
+    /**
+     * Call on the other thread once a piece of work is done, after it has handed back all its results.
+     */
+    void finished() {
+        running.decrementAndGet();
+        queue.add(NOTHING);
+    }
+
+    /**
+     * Hands a result back to the View's thread. Call from the other thread in place of View.post().
+     */
+    void post(Runnable result) {
+        if (queueing) {
+            queue.add(result);
+        } else {
+            view.post(result);
+        }
+    }
+
+    /**
+     * Runs the queued results that have arrived so far, without waiting for more.
+     */
+    void runArrived() {
+        Runnable result;
+        while ((result = queue.poll()) != null) {
+            result.run();
+        }
+    }
+
+    /**
+     * Runs the queued results as they arrive, until no work is running and none are left.
+     * The results may start more work, which is waited for as well.
+     */
+    void runUntilIdle() throws InterruptedException {
+        while (running.get() > 0 || !queue.isEmpty()) {
+            queue.take().run();
+        }
+    }
+}
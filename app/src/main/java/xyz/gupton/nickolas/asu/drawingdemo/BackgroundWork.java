@@ -0,0 +1,13 @@
+package xyz.gupton.nickolas.asu.drawingdemo;
+
+/**
+ * Implemented by Views that do some of their work on other threads, like rendering.
+ * ViewReplayTarget uses it to run their results and wait for them, so a replay times all of the work.
+ */
+interface BackgroundWork {
+
+    /**
+     * @return Where the View hands back the results of its background work.
+     */
+    BackgroundResults getBackgroundResults();
+}
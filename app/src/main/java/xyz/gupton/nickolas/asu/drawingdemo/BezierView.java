@@ -1,29 +1,77 @@
 package xyz.gupton.nickolas.asu.drawingdemo;
 
+import android.app.Activity;
 import android.content.Context;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Path;
-import android.view.MotionEvent;
 import android.view.View;
+import android.widget.TextView;
+
+import xyz.gupton.nickolas.asu.drawingdemo.core.BezierCurve;
+import xyz.gupton.nickolas.asu.drawingdemo.core.BezierSpline;
+import xyz.gupton.nickolas.asu.drawingdemo.core.HandleIndex;
+import xyz.gupton.nickolas.asu.drawingdemo.core.TouchBatch;
+
+import java.util.Arrays;
 
 /**
- * Draws a Bezier curve based off of 4 points.
+ * Draws a Bezier curve based off of any number of points, starting with 4.
+ * Tapping away from the points adds another one to the end of the curve.
+ * The spline modes draw a chain of cubic segments instead, where dragging a point only
+ * re-flattens the segments that use it.
  * @author Nickolas Gupton
  */
-class BezierView extends View implements View.OnTouchListener {
+class BezierView extends View implements TouchInput.Listener, RenderModes {
 
     /**
-     * points | float[][]: points[point number][0 for X, 1 for Y].
+     * The kinds of curve that can be edited, in the order they appear in the menu.
      */
-    private float[][] points = {
-            {0f, 0f},
-            {0f, 0f},
-            {0f, 0f},
-            {0f, 0f}
+    static final int RENDER_SINGLE = 0;
+    static final int RENDER_SPLINE_C1 = 1;
+    static final int RENDER_SPLINE_C2 = 2;
+    private static final CharSequence[] RENDER_MODE_NAMES = {
+            "Single curve", "Spline, smooth joints (C1)", "Spline, smooth curvature (C2)"
     };
 
+    /**
+     * SPLINE_START_POINTS | int: How many points a new C2 spline starts with, zigzagging across the screen.
+     * A new C1 spline starts with the same number of joints.
+     */
+    private static final int SPLINE_START_POINTS = 8;
+
+    /**
+     * MAX_POINTS | int: The most points the curve can have.
+     */
+    private static final int MAX_POINTS = 32;
+
+    /**
+     * HIT_RADIUS | float: How close in pixels a touch has to be to a point to grab it.
+     */
+    private static final float HIT_RADIUS = 50f;
+
+    /**
+     * TOLERANCE | float: How far in pixels the drawn lines may stray from the true curve.
+     */
+    private static final float TOLERANCE = 0.25f;
+
+    /**
+     * REPORT_DELAY_MS | long: How long after a frame is drawn the instructions are updated to match it,
+     * so a drag updates them a few times a second instead of on every frame.
+     */
+    private static final long REPORT_DELAY_MS = 250;
+
+    /**
+     * points | float[]: The points packed as x0, y0, x1, y1, and so on.
+     */
+    private float[] points = new float[8];
+
+    /**
+     * pointCount | int: The number of points in use.
+     */
+    private int pointCount = 4;
+
     /**
      * selectedPoint | int: Currently selected point, if none set to -1.
      */
@@ -34,6 +82,31 @@ class BezierView extends View implements View.OnTouchListener {
      */
     private boolean hasBeenTouched = false;
 
+    /**
+     * curve | BezierCurve: Turns the points into the lines that are drawn.
+     */
+    private final BezierCurve curve = new BezierCurve(TOLERANCE);
+
+    /**
+     * handles | HandleIndex: Finds the point under a touch, for whichever curve is being edited.
+     */
+    private final HandleIndex handles = new HandleIndex(HIT_RADIUS);
+
+    /**
+     * renderMode | int: One of the RENDER_ constants.
+     */
+    private int renderMode = RENDER_SINGLE;
+
+    /**
+     * spline | BezierSpline: The spline being edited in the spline modes, or null until it is first drawn.
+     */
+    private BezierSpline spline;
+
+    /**
+     * lastFlattened | int: How many spline segments had to be flattened again for the last frame.
+     */
+    private int lastFlattened = 0;
+
     /**
      * The Paint object needed to draw on the Canvas.
      */
@@ -41,15 +114,46 @@ class BezierView extends View implements View.OnTouchListener {
     private Path path;
 
     /**
-     * Sets up a new PointsView.
-     * @param context   The Context (probably an Activity) the PointsView is running in.
+     * The TextView object needed to report the degree of the curve.
+     */
+    private TextView instructionsTextView;
+
+    /**
+     * reportPosted | boolean: True while report is waiting to run.
+     */
+    private boolean reportPosted = false;
+
+    /**
+     * report | Runnable: Updates the instructions to describe the last frame drawn, outside of onDraw().
+     */
+    private final Runnable report = new Runnable() {
+        @Override
+        public void run() {
+            reportPosted = false;
+            try {
+                if (renderMode == RENDER_SINGLE) {
+                    instructionsTextView.setText("Degree " + (pointCount - 1) + " curve drawn with "
+                            + curve.getSegmentCount() + " lines. Tap away from the points to add one.");
+                } else if (spline != null) {
+                    instructionsTextView.setText(spline.getSegmentCount() + " segments, " + lastFlattened
+                            + " flattened for the last frame. Tap away from the points to add more.");
+                }
+            } catch (NullPointerException ex) {
+                // We couldn't get instructionsTextView, so we can't report the degree or the segments.
+            }
+        }
+    };
+
+    /**
+     * Sets up a new BezierView.
+     * @param context   The Context (probably an Activity) the BezierView is running in.
      */
     public BezierView(Context context) {
         // Call the constructor of the View class.
         super(context);
 
-        // Make it so that the onTouch method gets called when the SketchyView is touched.
-        setOnTouchListener(this);
+        // Make it so that the onTouchBatch method gets every touch sample, once per frame.
+        new TouchInput(this, this);
 
         // Create a new paintbrush to use to draw to the Canvas.
         paint = new Paint();
@@ -57,98 +161,244 @@ class BezierView extends View implements View.OnTouchListener {
 
         paint.setStrokeWidth(5f);
         paint.setTextSize(40.0f);
+
+        // Find the instructions TextView and save it to use later.
+        try {
+            Activity activity = (Activity) context;
+            instructionsTextView = activity.findViewById(R.id.instructionsTextView);
+        } catch (ClassCastException ex) {
+            // context must not have been an Activity object, so we can't use instructionsTextView.
+        } catch (NullPointerException ex) {
+            // context must have been a null reference, so we can't use instructionsTextView.
+        }
+    }
+
+    @Override
+    public CharSequence[] getRenderModeNames() {
+        return RENDER_MODE_NAMES;
+    }
+
+    @Override
+    public int getRenderMode() {
+        return renderMode;
+    }
+
+    @Override
+    public void setRenderMode(int mode) {
+        if (mode == renderMode) {
+            return;
+        }
+        renderMode = mode;
+        selectedPoint = -1;
+        spline = null;
+        handles.clear();
+        if (renderMode == RENDER_SINGLE) {
+            for (int i = 0; i < pointCount; i++) {
+                handles.set(i, points[2 * i], points[2 * i + 1]);
+            }
+        }
+        invalidate();
     }
 
     @Override
     public void onDraw(Canvas canvas) {
+        long start = System.nanoTime();
+
         // Paint the background a very light blue.
         canvas.drawColor(Color.WHITE);
 
+        if (renderMode != RENDER_SINGLE) {
+            drawSpline(canvas);
+        } else {
+            drawCurve(canvas);
+        }
+        if (!reportPosted) {
+            reportPosted = true;
+            postDelayed(report, REPORT_DELAY_MS);
+        }
+
+        FrameScheduler.getInstance().drawFinished(start);
+    }
+
+    /**
+     * Draws the single curve, its control polygon and its numbered points.
+     */
+    private void drawCurve(Canvas canvas) {
         if (!hasBeenTouched) {
             // Set the beginning point locations.
-            points[0][0] = getWidth() / 3.0f;
-            points[0][1] = getHeight() / 3.0f;
-            points[1][0] = 2 * getWidth() / 3.0f;
-            points[1][1] = getHeight() / 3.0f;
-            points[2][0] = 2 * getWidth() / 3.0f;
-            points[2][1] = 2 * getHeight() / 3.0f;
-            points[3][0] = getWidth() / 3.0f;
-            points[3][1] = 2 * getHeight() / 3.0f;
+            points[0] = getWidth() / 3.0f;
+            points[1] = getHeight() / 3.0f;
+            points[2] = 2 * getWidth() / 3.0f;
+            points[3] = getHeight() / 3.0f;
+            points[4] = 2 * getWidth() / 3.0f;
+            points[5] = 2 * getHeight() / 3.0f;
+            points[6] = getWidth() / 3.0f;
+            points[7] = 2 * getHeight() / 3.0f;
+            for (int i = 0; i < 4; i++) {
+                handles.set(i, points[2 * i], points[2 * i + 1]);
+            }
         }
 
         // Draw lines among the points
         paint.setColor(Color.GRAY);
-        canvas.drawLine(points[0][0], points[0][1], points[1][0], points[1][1], paint);
-        canvas.drawLine(points[1][0], points[1][1], points[2][0], points[2][1], paint);
-        canvas.drawLine(points[2][0], points[2][1], points[3][0], points[3][1], paint);
+        for (int i = 2; i < 2 * pointCount; i += 2) {
+            canvas.drawLine(points[i - 2], points[i - 1], points[i], points[i + 1], paint);
+        }
 
+        // Draw the curve as however many lines it takes to stay within TOLERANCE of it.
+        int count = curve.flatten(points, pointCount);
+        float[] lines = curve.getPoints();
         path.reset();
         paint.setColor(Color.BLACK);
         paint.setStyle(Paint.Style.STROKE);
-        path.moveTo(points[0][0], points[0][1]);
-        path.cubicTo(points[1][0], points[1][1], points[2][0], points[2][1], points[3][0], points[3][1]);
+        path.moveTo(lines[0], lines[1]);
+        for (int i = 2; i < count; i += 2) {
+            path.lineTo(lines[i], lines[i + 1]);
+        }
         canvas.drawPath(path, paint);
         paint.setStyle(Paint.Style.FILL);
 
         paint.setColor(Color.RED);
-        canvas.drawCircle(points[0][0], points[0][1], 25, paint);
-        canvas.drawCircle(points[1][0], points[1][1], 25, paint);
-        canvas.drawCircle(points[2][0], points[2][1], 25, paint);
-        canvas.drawCircle(points[3][0], points[3][1], 25, paint);
+        for (int i = 0; i < pointCount; i++) {
+            canvas.drawCircle(points[2 * i], points[2 * i + 1], 25, paint);
+        }
 
         if (selectedPoint != -1) {
             paint.setColor(Color.GREEN);
-            canvas.drawCircle(points[selectedPoint][0], points[selectedPoint][1], 25, paint);
+            canvas.drawCircle(points[2 * selectedPoint], points[2 * selectedPoint + 1], 25, paint);
         }
 
-
         paint.setColor(Color.WHITE);
-        canvas.drawText("0", points[0][0]-13f, points[0][1]+14f, paint);
-        canvas.drawText("1", points[1][0]-13f, points[1][1]+14f, paint);
-        canvas.drawText("2", points[2][0]-13f, points[2][1]+14f, paint);
-        canvas.drawText("3", points[3][0]-13f, points[3][1]+14f, paint);
+        for (int i = 0; i < pointCount; i++) {
+            String label = Integer.toString(i);
+            canvas.drawText(label, points[2 * i] - 13f * label.length(), points[2 * i + 1] + 14f, paint);
+        }
+    }
+
+    /**
+     * Draws the spline from the segments' cached lines, flattening only the ones that changed.
+     */
+    private void drawSpline(Canvas canvas) {
+        if (spline == null) {
+            spline = new BezierSpline(renderMode == RENDER_SPLINE_C1 ? BezierSpline.C1 : BezierSpline.C2, TOLERANCE);
+            for (int i = 0; i < SPLINE_START_POINTS; i++) {
+                spline.addPoint(getWidth() * (i + 1) / (SPLINE_START_POINTS + 1.0f),
+                        getHeight() * (i % 2 == 0 ? 0.4f : 0.6f));
+            }
+            handles.clear();
+            indexSplinePoints(0, spline.getPointCount() - 1);
+        }
+        lastFlattened = spline.refresh();
 
+        // Draw each handle's line to its joint, or the control polygon of a B-spline.
+        paint.setColor(Color.GRAY);
+        int count = spline.getPointCount();
+        for (int i = 1; i < count; i++) {
+            if (spline.getContinuity() == BezierSpline.C2) {
+                canvas.drawLine(spline.getX(i - 1), spline.getY(i - 1), spline.getX(i), spline.getY(i), paint);
+            } else if (!spline.isJoint(i)) {
+                int joint = i % 3 == 1 ? i - 1 : i + 1;
+                if (joint < count) {
+                    canvas.drawLine(spline.getX(joint), spline.getY(joint), spline.getX(i), spline.getY(i), paint);
+                }
+            }
+        }
+
+        paint.setColor(Color.BLACK);
+        for (int s = 0; s < spline.getSegmentCount(); s++) {
+            canvas.drawLines(spline.getSegmentLines(s), 0, spline.getSegmentFloats(s), paint);
+        }
+
+        for (int i = 0; i < count; i++) {
+            paint.setColor(i == selectedPoint ? Color.GREEN : spline.isJoint(i) ? Color.RED : Color.BLUE);
+            canvas.drawCircle(spline.getX(i), spline.getY(i), spline.isJoint(i) ? 20 : 14, paint);
+        }
     }
 
-    @Override
-    public boolean onTouch(View view, MotionEvent event) {
-        hasBeenTouched = true;
-        // React to the touch event: down, move, cancel or up.
-        switch (event.getAction()) {
-            case MotionEvent.ACTION_DOWN:
-                float[] thisTouch = new float[]{event.getX(), event.getY()};
-                float closeDist = getDistance(points[0], thisTouch);
-                int indexOfClosest = 0;
-                for (int i = 1; i < points.length; i++) {
-                    float currentDist = getDistance(points[i], thisTouch);
-                    if (currentDist < closeDist) {
-                        closeDist = currentDist;
-                        indexOfClosest = i;
-                    }
+    /**
+     * Handles a touch sample in the spline modes: grab the closest point, or add one, and drag it.
+     */
+    private void onSplineTouch(int action, float x, float y) {
+        if (spline == null) {
+            return;
+        }
+        switch (action) {
+            case TouchBatch.DOWN:
+                selectedPoint = handles.nearest(x, y, HIT_RADIUS);
+                if (selectedPoint == -1) {
+                    int oldCount = spline.getPointCount();
+                    spline.addPoint(x, y);
+                    indexSplinePoints(oldCount, spline.getPointCount() - 1);
+                    selectedPoint = spline.getPointCount() - 1;
                 }
+                break;
+            case TouchBatch.MOVE:
+                if (selectedPoint != -1) {
+                    spline.movePoint(selectedPoint, x, y);
+                    // A C1 move can carry the neighbouring handles, or the mirrored one, along with it.
+                    indexSplinePoints(selectedPoint - 2, selectedPoint + 2);
+                }
+                break;
+            case TouchBatch.CANCEL:
+            case TouchBatch.UP:
+                selectedPoint = -1;
+                break;
+        }
+    }
 
-                if (closeDist <= 50f) {
-                    selectedPoint = indexOfClosest;
+    /**
+     * Handles a touch sample on the single curve: grab the closest point, or add one, and drag it.
+     */
+    private void onCurveTouch(int action, float x, float y) {
+        hasBeenTouched = true;
+        // React to the touch: down, move, cancel or up.
+        switch (action) {
+            case TouchBatch.DOWN:
+                selectedPoint = handles.nearest(x, y, HIT_RADIUS);
+                if (selectedPoint == -1 && pointCount < MAX_POINTS) {
+                    // Nothing close enough, so add a new point to the end of the curve and let it be dragged.
+                    if (points.length < 2 * (pointCount + 1)) {
+                        points = Arrays.copyOf(points, Math.min(2 * MAX_POINTS, points.length * 2));
+                    }
+                    selectedPoint = pointCount++;
                 }
 
-            case MotionEvent.ACTION_MOVE:
+            case TouchBatch.MOVE:
                 if (selectedPoint != -1) {
-                    points[selectedPoint] = new float[]{event.getX(), event.getY()};
-                    invalidate();
+                    points[2 * selectedPoint] = x;
+                    points[2 * selectedPoint + 1] = y;
+                    handles.set(selectedPoint, x, y);
                 }
 
                 break;
-            case MotionEvent.ACTION_CANCEL:
-            case MotionEvent.ACTION_UP:
+            case TouchBatch.CANCEL:
+            case TouchBatch.UP:
                 selectedPoint = -1;
-                invalidate();
                 break;
         }
-        return true; // Indicate that the touch event has been handled.
     }
 
-    private static float getDistance(float[] pointA, float[] pointB) {
-        return (float)Math.sqrt(Math.pow(pointA[0] - pointB[0], 2) + Math.pow(pointA[1] - pointB[1], 2));
+    @Override
+    public void onTouchBatch(TouchBatch batch) {
+        // Apply every sample in order, so a quick tap that goes down and up within a frame still lands,
+        // then redraw once for all of them in this frame.
+        for (int i = 0; i < batch.size(); i++) {
+            if (renderMode != RENDER_SINGLE) {
+                onSplineTouch(batch.getAction(i), batch.getX(i), batch.getY(i));
+            } else {
+                onCurveTouch(batch.getAction(i), batch.getX(i), batch.getY(i));
+            }
+        }
+        FrameScheduler.getInstance().invalidate(this);
+    }
+
+    /**
+     * Brings the handle index up to date with a range of the spline's points.
+     */
+    private void indexSplinePoints(int first, int last) {
+        for (int i = Math.max(0, first); i <= Math.min(last, spline.getPointCount() - 1); i++) {
+            handles.set(i, spline.getX(i), spline.getY(i));
+        }
     }
 
 }
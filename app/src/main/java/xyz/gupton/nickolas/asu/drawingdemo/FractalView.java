@@ -2,19 +2,72 @@ package xyz.gupton.nickolas.asu.drawingdemo;
 
 import android.app.Activity;
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
-import android.view.MotionEvent;
 import android.view.View;
 import android.widget.TextView;
 
+import xyz.gupton.nickolas.asu.drawingdemo.core.FractalGeometry;
+import xyz.gupton.nickolas.asu.drawingdemo.core.FractalRule;
+import xyz.gupton.nickolas.asu.drawingdemo.core.TouchBatch;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
 /**
- * A View that draws substitution fractals, one per swipe.
+ * A View that draws substitution fractals, one per swipe, using any of the rules in FractalRule.
+ * The fractal is drawn on a background thread into an off-screen bitmap, one depth at a time,
+ * so the UI thread only ever has to copy a finished bitmap to the screen.
+ * In adaptive detail mode, branches that are off screen or smaller than a pixel aren't split any further.
  * @author Rob LeGrand
  */
-class FractalView extends View implements View.OnTouchListener {
+class FractalView extends View implements TouchInput.Listener, RenderModes, RetainedMemory, BackgroundWork {
+
+    /**
+     * Runs the background renders, one at a time.
+     */
+    private static final ExecutorService renderExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "FractalRender");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /**
+     * The levels of detail the fractal can be drawn with. Every rule can be drawn at every level,
+     * so the render modes are each rule in FractalRule.RULES with each level of detail.
+     */
+    static final int DETAIL_FULL = 0;
+    static final int DETAIL_ADAPTIVE = 1;
+    private static final String[] DETAIL_NAMES = {"full detail", "adaptive detail"};
 
+    /**
+     * How often a render waiting for the UI thread to show a finished depth checks whether it has been cancelled.
+     * The UI thread may be busy, or the View detached, for any length of time, so the render never gives up on its own.
+     */
+    private static final long SWAP_CHECK_MS = 250;
+
+    /**
+     * Thrown from the render's SegmentSink to stop a render that has been cancelled.
+     */
+    private static final class RenderCancelledException extends RuntimeException {
+        RenderCancelledException() {
+            super("Fractal render cancelled");
+        }
+    }
+
+    /**
+     * Hands each finished depth back to the UI thread.
+     */
+    private final BackgroundResults backgroundResults = new BackgroundResults(this);
 
     /**
      * Is true when the user is currently swiping for a new fractal.
@@ -56,6 +109,68 @@ class FractalView extends View implements View.OnTouchListener {
      */
     private TextView instructionsTextView;
 
+    /**
+     * Builds and caches the fractal's segments. Only used on the render thread.
+     */
+    private final FractalGeometry renderGeometry = new FractalGeometry();
+
+    /**
+     * The Paint used on the render thread, since Paint objects can't be shared between threads.
+     */
+    private final Paint renderPaint;
+
+    /**
+     * The Canvas the render thread draws on, pointed at whichever bitmap is being drawn.
+     */
+    private final Canvas renderCanvas = new Canvas();
+
+    /**
+     * Counts the renders started. A render stops as soon as this no longer matches the one it was started with.
+     */
+    private volatile int renderGeneration = 0;
+
+    /**
+     * Guards frontBitmap and backBitmap, which are swapped on the UI thread.
+     */
+    private final Object bitmapLock = new Object();
+
+    /**
+     * The finished bitmap the UI thread draws.
+     */
+    private Bitmap frontBitmap;
+
+    /**
+     * The bitmap the render thread draws the next depth into.
+     */
+    private Bitmap backBitmap;
+
+    /**
+     * The depth of the fractal in frontBitmap, or 0 if there is nothing to show yet.
+     */
+    private int shownDepth;
+
+    /**
+     * The number of segments drawn and skipped for the fractal in frontBitmap.
+     */
+    private long shownEmitted;
+    private long shownCulled;
+
+    /**
+     * How the fractal is drawn, one of the DETAIL_ constants.
+     */
+    private volatile int detail = DETAIL_ADAPTIVE;
+
+    /**
+     * How each line of the fractal is turned into several.
+     */
+    private volatile FractalRule rule = FractalRule.PAPERFOLDING;
+
+    /**
+     * MIN_SEGMENT_LENGTH | float: In adaptive detail mode, the size in pixels below which a branch is drawn
+     * as a single line. At 1 the picture looks the same as full detail.
+     */
+    private static final float MIN_SEGMENT_LENGTH = 1.0f;
+
     /**
      * Sets up a new FractalView.
      * @param context   The Context (probably an Activity) the FractalView is running in.
@@ -64,8 +179,8 @@ class FractalView extends View implements View.OnTouchListener {
         // Call the constructor of the View class.
         super(context);
 
-        // Make it so that the onTouch method gets called when the FractalView is touched.
-        setOnTouchListener(this);
+        // Make it so that the onTouchBatch method gets every touch sample, once per frame.
+        new TouchInput(this, this);
 
         // Make sure nothing will be drawn until the first swipe.
         isMoving = false;
@@ -75,6 +190,9 @@ class FractalView extends View implements View.OnTouchListener {
         paint = new Paint();
         // Make the lines wider.
         paint.setStrokeWidth(3.0f);
+        renderPaint = new Paint();
+        renderPaint.setStrokeWidth(3.0f);
+        renderPaint.setColor(Color.BLACK);
 
         // Find the instructions TextView and save it to use later.
         try {
@@ -87,93 +205,288 @@ class FractalView extends View implements View.OnTouchListener {
         }
     }
 
+    @Override
+    protected void onSizeChanged(int width, int height, int oldWidth, int oldHeight) {
+        super.onSizeChanged(width, height, oldWidth, oldHeight);
+
+        // Stop any render into the old bitmaps and make new ones at the new size.
+        cancelRender();
+        synchronized (bitmapLock) {
+            frontBitmap = null;
+            backBitmap = null;
+            if (width > 0 && height > 0) {
+                frontBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+                backBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            }
+        }
+        if (!isMoving && depth > 0) {
+            startRender();
+        }
+    }
+
+    @Override
+    public BackgroundResults getBackgroundResults() {
+        return backgroundResults;
+    }
+
+    @Override
+    public long getRetainedBytes() {
+        synchronized (bitmapLock) {
+            long bytes = 0;
+            if (frontBitmap != null) {
+                bytes += frontBitmap.getByteCount();
+            }
+            if (backBitmap != null) {
+                bytes += backBitmap.getByteCount();
+            }
+            return bytes;
+        }
+    }
+
+    @Override
+    public void release() {
+        cancelRender();
+        // The render thread may still be finishing a line in backBitmap, so the bitmaps are left to the
+        // garbage collector rather than recycled under it.
+        synchronized (bitmapLock) {
+            frontBitmap = null;
+            backBitmap = null;
+        }
+    }
+
+    @Override
+    public CharSequence[] getRenderModeNames() {
+        CharSequence[] names = new CharSequence[FractalRule.RULES.length * DETAIL_NAMES.length];
+        for (int r = 0; r < FractalRule.RULES.length; r++) {
+            for (int d = 0; d < DETAIL_NAMES.length; d++) {
+                names[r * DETAIL_NAMES.length + d] = FractalRule.RULES[r].getName() + " (" + DETAIL_NAMES[d] + ")";
+            }
+        }
+        return names;
+    }
+
+    @Override
+    public int getRenderMode() {
+        return Arrays.asList(FractalRule.RULES).indexOf(rule) * DETAIL_NAMES.length + detail;
+    }
+
+    @Override
+    public void setRenderMode(int mode) {
+        if (mode == getRenderMode()) {
+            return;
+        }
+        rule = FractalRule.RULES[mode / DETAIL_NAMES.length];
+        detail = mode % DETAIL_NAMES.length;
+        if (!isMoving && depth > 0) {
+            startRender();
+            invalidate();
+        }
+    }
+
+    /**
+     * Stops the current render, if there is one, and forgets what it showed.
+     */
+    private void cancelRender() {
+        renderGeneration++;
+        shownDepth = 0;
+    }
+
     /**
-     * Recursively draw a substitution fractal on the given Canvas.
-     * @param canvas   The Canvas to draw on.
-     * @param fromX    The x coordinate of the point to draw from.
-     * @param fromY    The y coordinate of the point to draw from.
-     * @param toX      The x coordinate of the point to draw to.
-     * @param toY      The y coordinate of the point to draw to.
-     * @param depth    The depth of the recursion tree to use.
+     * Starts drawing the current fractal on the render thread, one depth at a time.
      */
-    private void drawFractal(Canvas canvas, float fromX, float fromY, float toX, float toY, int depth) {
-        // The lines array determines how each line is turned into several lines.
-        // These values will simulate the regular paperfolding sequence:
-        final float[][][] lines = {
-                {{0.00f, 0.00f}, {0.30f, 0.60f}},
-                {{0.25f, 0.25f}, {0.47f, 0.75f}},
-                {{0.75f, 0.40f}, {0.30f, 0.60f}},
-                {{0.47f, 0.75f}, {0.75f, 0.75f}}
+    private void startRender() {
+        cancelRender();
+        final int generation = renderGeneration;
+        final float fromX = this.fromX;
+        final float fromY = this.fromY;
+        final float toX = this.toX;
+        final float toY = this.toY;
+        final int depth = this.depth;
+        final FractalRule rule = this.rule;
+        final int detail = this.detail;
+        backgroundResults.started();
+        renderExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    renderProgressively(generation, rule, detail, fromX, fromY, toX, toY, depth);
+                } finally {
+                    backgroundResults.finished();
+                }
+            }
+        });
+        reportDepth();
+    }
+
+    /**
+     * Shows how far the render has got. Called when a render starts and when each depth is shown,
+     * rather than on every frame.
+     */
+    private void reportDepth() {
+        try {
+            if (shownDepth < depth) {
+                instructionsTextView.setText("Fractal depth: " + shownDepth + " (drawing " + (shownDepth + 1) + " of " + depth + ")");
+            } else {
+                instructionsTextView.setText("Fractal depth: " + depth + " (" + shownEmitted + " lines drawn, "
+                        + shownCulled + " culled)");
+            }
+        } catch (NullPointerException ex) {
+            // We couldn't get instructionsTextView, so we can't report the depth.
+        }
+    }
+
+    /**
+     * Draws the fractal into backBitmap at depth 1, 2, and so on up to the given depth,
+     * handing each finished depth to the UI thread while the next one is drawn. Runs on the render thread.
+     */
+    private void renderProgressively(final int generation, FractalRule rule, int detail,
+                                     float fromX, float fromY, float toX, float toY, int depth) {
+        final Semaphore swapped = new Semaphore(0);
+        for (int d = 1; d <= depth; d++) {
+            Bitmap target;
+            synchronized (bitmapLock) {
+                target = backBitmap;
+            }
+            if (target == null || generation != renderGeneration) {
+                return;
+            }
+
+            target.eraseColor(Color.TRANSPARENT);
+            renderCanvas.setBitmap(target);
+            try {
+                drawFractal(generation, rule, detail, fromX, fromY, toX, toY, d);
+            } catch (RenderCancelledException ex) {
+                return;
+            } finally {
+                renderCanvas.setBitmap(null);
+            }
+
+            // Let the UI thread swap the bitmaps, and wait so the next depth isn't drawn into one on screen.
+            final int finishedDepth = d;
+            final long emitted = renderGeometry.getEmittedCount();
+            final long culled = renderGeometry.getCulledCount();
+            backgroundResults.post(new Runnable() {
+                @Override
+                public void run() {
+                    showRenderedDepth(generation, finishedDepth, emitted, culled);
+                    swapped.release();
+                }
+            });
+            try {
+                while (!swapped.tryAcquire(SWAP_CHECK_MS, TimeUnit.MILLISECONDS)) {
+                    if (generation != renderGeneration) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException ex) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Draw a substitution fractal on renderCanvas, using the memoized geometry.
+     * @param generation   The render this drawing belongs to; it stops if that render is cancelled.
+     * @param rule         How each line is turned into several.
+     * @param detail       One of the DETAIL_ constants.
+     * @param fromX        The x coordinate of the point to draw from.
+     * @param fromY        The y coordinate of the point to draw from.
+     * @param toX          The x coordinate of the point to draw to.
+     * @param toY          The y coordinate of the point to draw to.
+     * @param depth        The depth of the recursion tree to use.
+     */
+    private void drawFractal(final int generation, FractalRule rule, int detail, float fromX, float fromY, float toX, float toY, int depth) {
+        FractalGeometry.SegmentSink sink = new FractalGeometry.SegmentSink() {
+            @Override
+            public void segments(float[] lines, int count) {
+                if (generation != renderGeneration) {
+                    throw new RenderCancelledException();
+                }
+                renderCanvas.drawLines(lines, 0, count, renderPaint);
+            }
         };
-        if (depth <= 0) {
-            // We've recursed enough, so just draw a line.
-            canvas.drawLine(fromX, fromY, toX, toY, paint);
+        if (detail == DETAIL_ADAPTIVE) {
+            // Pad the visible area by the stroke width so lines just off the edge still get their ends drawn.
+            float pad = renderPaint.getStrokeWidth();
+            renderGeometry.emitAdaptive(rule, depth, fromX, fromY, toX, toY, -pad, -pad,
+                    renderCanvas.getWidth() + pad, renderCanvas.getHeight() + pad, MIN_SEGMENT_LENGTH, sink);
         } else {
-            // We need to recurse some more.  Turn this line into several.
-            float cosDistance = (toX - fromX + toY - fromY) / 2.0f;
-            float sinDistance = (fromX - toX + toY - fromY) / 2.0f;
-            int whichLine;
-            for (whichLine = 0; whichLine < lines.length; whichLine += 1) {
-                drawFractal(
-                        canvas,
-                        fromX + lines[whichLine][0][0] * cosDistance - lines[whichLine][0][1] * sinDistance,
-                        fromY + lines[whichLine][0][0] * sinDistance + lines[whichLine][0][1] * cosDistance,
-                        fromX + lines[whichLine][1][0] * cosDistance - lines[whichLine][1][1] * sinDistance,
-                        fromY + lines[whichLine][1][0] * sinDistance + lines[whichLine][1][1] * cosDistance,
-                        depth - 1
-                );
-            }
+            renderGeometry.emit(rule, depth, fromX, fromY, toX, toY, sink);
         }
     }
 
+    /**
+     * Puts a finished depth on screen by swapping the bitmaps. Runs on the UI thread.
+     */
+    private void showRenderedDepth(int generation, int finishedDepth, long emitted, long culled) {
+        if (generation != renderGeneration) {
+            return;
+        }
+        synchronized (bitmapLock) {
+            Bitmap finished = backBitmap;
+            backBitmap = frontBitmap;
+            frontBitmap = finished;
+        }
+        shownDepth = finishedDepth;
+        shownEmitted = emitted;
+        shownCulled = culled;
+        reportDepth();
+        FrameScheduler.getInstance().invalidate(this);
+    }
+
     @Override
     public void onDraw(Canvas canvas) {
+        long start = System.nanoTime();
         if (isMoving) {
             // Just draw a line to indicate the current selection.
             paint.setColor(Color.BLUE);
             canvas.drawLine(fromX, fromY, toX, toY, paint);
         } else if (depth > 0) {
-            // Draw a fractal at the selected location and report the current depth.
-            paint.setColor(Color.BLACK);
-            drawFractal(canvas, fromX, fromY, toX, toY, depth);
-            try {
-                instructionsTextView.setText("Fractal depth: " + depth);
-            } catch (NullPointerException ex) {
-                // We couldn't get instructionsTextView, so we can't report the depth.
+            // Draw the deepest finished fractal.
+            if (shownDepth > 0) {
+                synchronized (bitmapLock) {
+                    canvas.drawBitmap(frontBitmap, 0, 0, null);
+                }
             }
         }
+        FrameScheduler.getInstance().drawFinished(start);
     }
+
     @Override
-    public boolean onTouch(View view, MotionEvent event) {
-        // React to the touch event: down, move, cancel or up.
-        switch (event.getAction()) {
-            case MotionEvent.ACTION_DOWN:
-                // Set the original point.
-                isMoving = true;
-                fromX = event.getX();
-                fromY = event.getY();
-
-                if (depth > 17) {
-                    depth = 0;
-                }
+    public void onTouchBatch(TouchBatch batch) {
+        // React to each touch sample in order: down, move, cancel or up.
+        for (int i = 0; i < batch.size(); i++) {
+            float x = batch.getX(i);
+            float y = batch.getY(i);
+            switch (batch.getAction(i)) {
+                case TouchBatch.DOWN:
+                    // Stop drawing the old fractal right away and set the original point.
+                    cancelRender();
+                    isMoving = true;
+                    fromX = x;
+                    fromY = y;
+
+                    if (depth > 17) {
+                        depth = 0;
+                    }
 
-                break;
-            case MotionEvent.ACTION_MOVE:
-                // Set the terminal point and show the user the current line.
-                toX = event.getX();
-                toY = event.getY();
-                invalidate(); // Force the Canvas to redraw.
-                break;
-            case MotionEvent.ACTION_CANCEL:
-            case MotionEvent.ACTION_UP:
-                // Set the terminal point and draw the fractal.
-                isMoving = false;
-                toX = event.getX();
-                toY = event.getY();
-                depth += 1; // Increase the recursion depth after each swipe.
-                invalidate(); // Force the Canvas to redraw.
-                break;
-        }
-        return true; // Indicate that the touch event has been handled.
+                    break;
+                case TouchBatch.MOVE:
+                    // Set the terminal point to show the user the current line.
+                    toX = x;
+                    toY = y;
+                    break;
+                case TouchBatch.CANCEL:
+                case TouchBatch.UP:
+                    // Set the terminal point and draw the fractal.
+                    isMoving = false;
+                    toX = x;
+                    toY = y;
+                    depth += 1; // Increase the recursion depth after each swipe.
+                    startRender(); // Draw the new fractal in the background.
+                    break;
+            }
+        }
+        FrameScheduler.getInstance().invalidate(this); // Redraw in this frame, once for the whole batch.
     }
 }
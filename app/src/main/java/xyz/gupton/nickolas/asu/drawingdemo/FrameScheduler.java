@@ -0,0 +1,175 @@
+package xyz.gupton.nickolas.asu.drawingdemo;
+
+import android.os.Looper;
+import android.view.Choreographer;
+import android.view.View;
+
+import xyz.gupton.nickolas.asu.drawingdemo.core.FrameStats;
+
+import java.util.ArrayList;
+
+/**
+ * Runs the views' updates and redraws at most once per vsync.
+ *
+ * Instead of calling invalidate() from every touch event, a View asks the scheduler to update it or
+ * to redraw it. The requests are collected until the next Choreographer frame, which runs each update
+ * once and then invalidates each dirty View once, so a burst of requests costs one frame of work, and
+ * a frame where nothing asked for anything costs nothing at all. Everything runs on the UI thread.
+ */
+class FrameScheduler implements Choreographer.FrameCallback {
+
+    /**
+     * Something that does work once per frame before the views are drawn.
+     */
+    interface Client {
+
+        /**
+         * @param frameNanos   The vsync time of the frame, on the System.nanoTime() clock.
+         */
+        void onFrame(long frameNanos);
+    }
+
+    /**
+     * The scheduler for the UI thread.
+     */
+    private static FrameScheduler instance;
+
+    /**
+     * The clients to update in the next frame, and the ones updated so far in this one.
+     */
+    private final ArrayList<Client> pendingClients = new ArrayList<>();
+    private final ArrayList<Client> updatedClients = new ArrayList<>();
+
+    /**
+     * Clients that asked again after already being updated in this frame, which wait for the next one.
+     */
+    private final ArrayList<Client> laterClients = new ArrayList<>();
+
+    /**
+     * The views to redraw in the next frame.
+     */
+    private final ArrayList<View> dirtyViews = new ArrayList<>();
+
+    /**
+     * The timings of the recent frames.
+     */
+    private final FrameStats stats = new FrameStats(120);
+
+    /**
+     * Is true when a frame callback has been posted and hasn't run yet.
+     */
+    private boolean posted = false;
+
+    /**
+     * Is true while the frame callback is running.
+     */
+    private boolean inFrame = false;
+
+    /**
+     * When the work for the next frame was first asked for.
+     */
+    private long requestNanos;
+
+    /**
+     * @return The scheduler for the UI thread. Must only be used from the UI thread, except that
+     * invalidate() and drawFinished() may be called from others, which they ignore.
+     */
+    static FrameScheduler getInstance() {
+        if (instance == null) {
+            instance = new FrameScheduler();
+        }
+        return instance;
+    }
+
+    /**
+     * Asks for a client to be updated in the next frame. Asking again before then does nothing more.
+     * A client asked for while another is being updated is updated in the same frame.
+     */
+    void requestUpdate(Client client) {
+        if (inFrame && updatedClients.contains(client)) {
+            if (!laterClients.contains(client)) {
+                laterClients.add(client);
+            }
+            return;
+        }
+        if (!pendingClients.contains(client)) {
+            pendingClients.add(client);
+        }
+        post();
+    }
+
+    /**
+     * Asks for a View to be redrawn in the next frame, after the updates. Use this instead of View.invalidate().
+     */
+    void invalidate(View view) {
+        if (!onUiThread()) {
+            return;
+        }
+        if (!dirtyViews.contains(view)) {
+            dirtyViews.add(view);
+        }
+        post();
+    }
+
+    /**
+     * Adds a View's drawing time to the current frame. Call at the end of onDraw().
+     * @param startNanos   The System.nanoTime() at the start of onDraw().
+     */
+    void drawFinished(long startNanos) {
+        if (!onUiThread()) {
+            return;
+        }
+        stats.addDrawTime(System.nanoTime() - startNanos);
+    }
+
+    FrameStats getStats() {
+        return stats;
+    }
+
+    /**
+     * @return False on other threads, where the only callers are Views a ViewReplayTarget is driving off screen.
+     * They draw themselves once per replayed frame, so their redraw requests and drawing times are left out.
+     */
+    private static boolean onUiThread() {
+        return Looper.myLooper() == Looper.getMainLooper();
+    }
+
+    private void post() {
+        if (!posted && !inFrame) {
+            posted = true;
+            requestNanos = System.nanoTime();
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameNanos) {
+        posted = false;
+        inFrame = true;
+        stats.beginFrame(frameNanos, requestNanos);
+
+        // Updates can ask for more updates, like a touch batch moving a point that another client
+        // follows, so keep going until no more are waiting.
+        long start = System.nanoTime();
+        while (!pendingClients.isEmpty()) {
+            Client client = pendingClients.remove(0);
+            updatedClients.add(client);
+            client.onFrame(frameNanos);
+        }
+        stats.addUpdateTime(System.nanoTime() - start);
+
+        // The views are drawn in this frame's traversal, right after the frame callbacks.
+        for (int i = 0; i < dirtyViews.size(); i++) {
+            dirtyViews.get(i).invalidate();
+        }
+        dirtyViews.clear();
+        updatedClients.clear();
+        inFrame = false;
+
+        if (!laterClients.isEmpty()) {
+            pendingClients.addAll(laterClients);
+            laterClients.clear();
+            post();
+        }
+    }
+}
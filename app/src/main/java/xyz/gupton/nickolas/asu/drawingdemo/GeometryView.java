@@ -1,17 +1,36 @@
 package xyz.gupton.nickolas.asu.drawingdemo;
 
+import android.app.Activity;
 import android.content.Context;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
-import android.view.MotionEvent;
 import android.view.View;
+import android.widget.TextView;
+
+import xyz.gupton.nickolas.asu.drawingdemo.core.HandleIndex;
+import xyz.gupton.nickolas.asu.drawingdemo.core.TouchBatch;
 
 /**
  * Draws shapes based off of 2 movable points.
+ * Touching near either point drags it; touching anywhere else moves the green point there.
  * @author Nickolas Gupton
  */
-class GeometryView extends View implements View.OnTouchListener {
+class GeometryView extends View implements TouchInput.Listener, RenderModes, SceneCache.Recorder {
+
+    /**
+     * The ways the GeometryView can draw, in the order they appear in the menu.
+     * With RENDER_CACHED the labelled points are recorded once and played back wherever they are moved,
+     * and only recorded again when they change color.
+     */
+    static final int RENDER_DIRECT = 0;
+    static final int RENDER_CACHED = 1;
+    private static final CharSequence[] RENDER_MODE_NAMES = {"Draw everything every frame", "Cache the labelled points"};
+
+    /**
+     * MARKER_BOX | int: The size of the box each labelled point is recorded in, centered on the point.
+     */
+    private static final int MARKER_BOX = 64;
 
     /**
      * points | float[][]: points[0 for point A, 1 for point B][0 for X, 1 for Y].
@@ -21,6 +40,21 @@ class GeometryView extends View implements View.OnTouchListener {
             {0f, 0f}
     };
 
+    /**
+     * HIT_RADIUS | float: How close in pixels a touch has to be to a point to grab it.
+     */
+    private static final float HIT_RADIUS = 50f;
+
+    /**
+     * handles | HandleIndex: Finds the point under a touch.
+     */
+    private final HandleIndex handles = new HandleIndex(HIT_RADIUS);
+
+    /**
+     * draggedPoint | int: The point grabbed at the start of the touch, or -1 if the green point is being placed.
+     */
+    private int draggedPoint = -1;
+
     /**
      * selectingA | boolean: True if A is the point which should green and selectable.
      */
@@ -37,29 +71,78 @@ class GeometryView extends View implements View.OnTouchListener {
     private Paint paint;
 
     /**
-     * Sets up a new PointsView.
-     * @param context   The Context (probably an Activity) the PointsView is running in.
+     * renderMode | int: One of the RENDER_ constants.
+     */
+    private int renderMode = RENDER_DIRECT;
+
+    /**
+     * scene | SceneCache: The recorded labelled points A (0) and B (1), used with RENDER_CACHED.
+     */
+    private final SceneCache scene = new SceneCache(2);
+
+    /**
+     * The TextView object needed to report the cache counts.
+     */
+    private TextView instructionsTextView;
+
+    /**
+     * Sets up a new GeometryView.
+     * @param context   The Context (probably an Activity) the GeometryView is running in.
      */
     public GeometryView(Context context) {
         // Call the constructor of the View class.
         super(context);
 
-        // Make it so that the onTouch method gets called when the SketchyView is touched.
-        setOnTouchListener(this);
+        // Make it so that the onTouchBatch method gets every touch sample, once per frame.
+        new TouchInput(this, this);
 
         // Create a new paintbrush to use to draw to the Canvas.
         paint = new Paint();
         paint.setStrokeWidth(5f);
         paint.setTextSize(40.0f);
+
+        for (int point = 0; point < 2; point++) {
+            scene.setBounds(point, MARKER_BOX, MARKER_BOX, MARKER_BOX / 2f, MARKER_BOX / 2f);
+        }
+
+        // Find the instructions TextView and save it to use later.
+        try {
+            Activity activity = (Activity) context;
+            instructionsTextView = activity.findViewById(R.id.instructionsTextView);
+        } catch (ClassCastException ex) {
+            // context must not have been an Activity object, so we can't use instructionsTextView.
+        } catch (NullPointerException ex) {
+            // context must have been a null reference, so we can't use instructionsTextView.
+        }
+    }
+
+    @Override
+    public CharSequence[] getRenderModeNames() {
+        return RENDER_MODE_NAMES;
+    }
+
+    @Override
+    public int getRenderMode() {
+        return renderMode;
+    }
+
+    @Override
+    public void setRenderMode(int mode) {
+        renderMode = mode;
+        scene.clear();
+        invalidate();
     }
 
     @Override
     public void onDraw(Canvas canvas) {
+        long start = System.nanoTime();
         if (!hasBeenTouched) {
             points[0][0] = getWidth() / 3.0f;
             points[0][1] = 2.0f * getHeight() / 3.0f;
             points[1][0] = 2.0f * getWidth() / 3.0f;
             points[1][1] = getHeight() / 3.0f;
+            handles.set(0, points[0][0], points[0][1]);
+            handles.set(1, points[1][0], points[1][1]);
         }
 
         // Paint the background a very light blue.
@@ -83,49 +166,79 @@ class GeometryView extends View implements View.OnTouchListener {
 
         canvas.drawLine(points[0][0], points[0][1], points[1][0], points[1][1], paint);
 
-        paint.setColor(Color.GREEN);
-        canvas.drawCircle(selectingA?points[0][0]:points[1][0], selectingA?points[0][1]:points[1][1], 25, paint);
-
-        paint.setColor(Color.RED);
-        canvas.drawCircle(selectingA?points[1][0]:points[0][0], selectingA?points[1][1]:points[0][1], 25, paint);
-
-        paint.setColor(Color.WHITE);
-        canvas.drawText("A", points[0][0]-14f, points[0][1]+14f, paint);
-        canvas.drawText("B", points[1][0]-14f, points[1][1]+14f, paint);
+        if (renderMode == RENDER_CACHED) {
+            scene.draw(canvas, 0, points[0][0], points[0][1], this);
+            scene.draw(canvas, 1, points[1][0], points[1][1], this);
+            try {
+                scene.report(instructionsTextView);
+            } catch (NullPointerException ex) {
+                // We couldn't get instructionsTextView, so we can't report the counts.
+            }
+        } else {
+            drawMarker(canvas, 0, points[0][0], points[0][1]);
+            drawMarker(canvas, 1, points[1][0], points[1][1]);
+        }
 
+        FrameScheduler.getInstance().drawFinished(start);
     }
 
     @Override
-    public boolean onTouch(View view, MotionEvent event) {
+    public void onTouchBatch(TouchBatch batch) {
         hasBeenTouched = true;
-        // React to the touch event: down, move, cancel or up.
-        switch (event.getAction()) {
-            case MotionEvent.ACTION_DOWN:
-            case MotionEvent.ACTION_MOVE:
-                if (selectingA) {
-                    points[0][0] = event.getX();
-                    points[0][1] = event.getY();
-                } else {
-                    points[1][0] = event.getX();
-                    points[1][1] = event.getY();
-                }
-
-                invalidate();
-                break;
-            case MotionEvent.ACTION_CANCEL:
-            case MotionEvent.ACTION_UP:
-                if (selectingA) {
-                    points[0][0] = event.getX();
-                    points[0][1] = event.getY();
-                } else {
-                    points[1][0] = event.getX();
-                    points[1][1] = event.getY();
-                }
-
-                selectingA = !selectingA;
-                invalidate();
-                break;
+        // React to each touch sample in order: down, move, cancel or up.
+        for (int i = 0; i < batch.size(); i++) {
+            float x = batch.getX(i);
+            float y = batch.getY(i);
+            switch (batch.getAction(i)) {
+                case TouchBatch.DOWN:
+                    draggedPoint = handles.nearest(x, y, HIT_RADIUS);
+                case TouchBatch.MOVE:
+                    if (draggedPoint != -1) {
+                        movePoint(draggedPoint, x, y);
+                        break;
+                    }
+                    movePoint(selectingA ? 0 : 1, x, y);
+                    break;
+                case TouchBatch.CANCEL:
+                case TouchBatch.UP:
+                    if (draggedPoint != -1) {
+                        // A dragged point stays where it was dropped and doesn't change which point is green.
+                        movePoint(draggedPoint, x, y);
+                        draggedPoint = -1;
+                        break;
+                    }
+                    movePoint(selectingA ? 0 : 1, x, y);
+
+                    selectingA = !selectingA;
+                    // Both points change color.
+                    scene.markAllDirty();
+                    break;
+            }
         }
-        return true; // Indicate that the touch event has been handled.
+        FrameScheduler.getInstance().invalidate(this); // Redraw in this frame, once for the whole batch.
+    }
+
+    @Override
+    public void record(Canvas canvas, int point) {
+        drawMarker(canvas, point, 0f, 0f);
+    }
+
+    /**
+     * Draws point A (0) or B (1) centered on (x, y), green if it is the one selectable and red if not, with its label.
+     */
+    private void drawMarker(Canvas canvas, int point, float x, float y) {
+        paint.setColor((point == 0) == selectingA ? Color.GREEN : Color.RED);
+        canvas.drawCircle(x, y, 25, paint);
+        paint.setColor(Color.WHITE);
+        canvas.drawText(point == 0 ? "A" : "B", x - 14f, y + 14f, paint);
+    }
+
+    /**
+     * Moves point A (0) or B (1), keeping the handle index up to date.
+     */
+    private void movePoint(int point, float x, float y) {
+        points[point][0] = x;
+        points[point][1] = y;
+        handles.set(point, x, y);
     }
 }
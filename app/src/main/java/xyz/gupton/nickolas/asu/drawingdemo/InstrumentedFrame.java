@@ -0,0 +1,195 @@
+package xyz.gupton.nickolas.asu.drawingdemo;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.os.Debug;
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import xyz.gupton.nickolas.asu.drawingdemo.core.FrameStats;
+import xyz.gupton.nickolas.asu.drawingdemo.core.GestureTrace;
+import xyz.gupton.nickolas.asu.drawingdemo.core.RenderRecorder;
+import xyz.gupton.nickolas.asu.drawingdemo.core.TouchBatch;
+
+import java.util.List;
+
+/**
+ * Wraps a mode's View to time how long it takes to draw and to handle each touch,
+ * and optionally shows the timings on top of it. The overlay is only redrawn when the View is,
+ * so that it doesn't fill the draw timings with frames where nothing changed.
+ *
+ * The timings go into a RenderRecorder under "<name> draw" and "<name> touch". While the overlay
+ * is showing, allocations on the UI thread are counted too; counting slows the runtime down a
+ * little, so it is left off otherwise.
+ */
+class InstrumentedFrame extends FrameLayout {
+
+    /**
+     * The timings of the wrapped View's drawing and touch handling.
+     */
+    private final RenderRecorder.Channel drawChannel;
+    private final RenderRecorder.Channel touchChannel;
+
+    /**
+     * The View being wrapped.
+     */
+    private final View view;
+
+    /**
+     * Every channel for the wrapped View, for the overlay.
+     */
+    private final RenderRecorder recorder;
+    private final String name;
+
+    /**
+     * recording | GestureTrace: Where touches are recorded, or null when they aren't.
+     */
+    private GestureTrace recording;
+
+    /**
+     * showOverlay | boolean: Whether the timings are drawn on top of the View.
+     */
+    private boolean showOverlay = false;
+
+    /**
+     * The Paint objects needed to draw the overlay.
+     */
+    private final Paint textPaint;
+    private final Paint backgroundPaint;
+
+    /**
+     * Sets up a new InstrumentedFrame around a View.
+     * @param context    The Context (probably an Activity) the InstrumentedFrame is running in.
+     * @param view       The View to wrap.
+     * @param recorder   Where to record the timings.
+     * @param name       The name the timings are recorded under, such as "Fractal".
+     */
+    InstrumentedFrame(Context context, View view, RenderRecorder recorder, String name) {
+        super(context);
+        this.view = view;
+        this.recorder = recorder;
+        this.name = name;
+        drawChannel = recorder.channel(name + " draw");
+        touchChannel = recorder.channel(name + " touch");
+        addView(view, new FrameLayout.LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT));
+
+        textPaint = new Paint();
+        textPaint.setColor(Color.WHITE);
+        textPaint.setTextSize(32.0f);
+        backgroundPaint = new Paint();
+        backgroundPaint.setColor(Color.argb(160, 0, 0, 0));
+    }
+
+    View getWrappedView() {
+        return view;
+    }
+
+    /**
+     * Shows or hides the timings, counting allocations only while they are shown.
+     */
+    @SuppressWarnings("deprecation")
+    void setShowOverlay(boolean showOverlay) {
+        if (showOverlay == this.showOverlay) {
+            return;
+        }
+        this.showOverlay = showOverlay;
+        if (showOverlay) {
+            Debug.startAllocCounting();
+        } else {
+            Debug.stopAllocCounting();
+        }
+        invalidate();
+    }
+
+    boolean isShowingOverlay() {
+        return showOverlay;
+    }
+
+    /**
+     * Starts or stops recording every touch sample the View gets into a trace.
+     * @param recording   The trace to add the samples to, or null to stop.
+     */
+    void setRecording(GestureTrace recording) {
+        this.recording = recording;
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    protected void dispatchDraw(Canvas canvas) {
+        long start = System.nanoTime();
+        if (showOverlay) {
+            int allocations = Debug.getThreadAllocCount();
+            super.dispatchDraw(canvas);
+            drawChannel.record(System.nanoTime() - start, Debug.getThreadAllocCount() - allocations);
+            drawOverlay(canvas);
+        } else {
+            super.dispatchDraw(canvas);
+            drawChannel.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public boolean dispatchTouchEvent(MotionEvent event) {
+        if (recording != null) {
+            record(event);
+        }
+        long start = System.nanoTime();
+        boolean handled;
+        if (showOverlay) {
+            int allocations = Debug.getThreadAllocCount();
+            handled = super.dispatchTouchEvent(event);
+            touchChannel.record(System.nanoTime() - start, Debug.getThreadAllocCount() - allocations);
+        } else {
+            handled = super.dispatchTouchEvent(event);
+            touchChannel.record(System.nanoTime() - start);
+        }
+        return handled;
+    }
+
+    /**
+     * Adds an event's samples, including the batched history of a move, to the recording.
+     */
+    private void record(MotionEvent event) {
+        int action = TouchInput.toBatchAction(event.getActionMasked());
+        if (action == -1) {
+            return;
+        }
+        for (int i = 0; i < event.getHistorySize(); i++) {
+            recording.add(TouchBatch.MOVE, event.getHistoricalX(i), event.getHistoricalY(i), event.getHistoricalEventTime(i));
+        }
+        recording.add(action, event.getX(), event.getY(), event.getEventTime());
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        setShowOverlay(false);
+    }
+
+    /**
+     * Draws this View's timings and the frame scheduler's in the top left corner.
+     */
+    private void drawOverlay(Canvas canvas) {
+        List<RenderRecorder.Channel> channels = recorder.getChannels(name + " ");
+        FrameStats frames = FrameScheduler.getInstance().getStats();
+        float lineHeight = textPaint.getTextSize() * 1.25f;
+        canvas.drawRect(0, 0, getWidth(), lineHeight * (channels.size() + 1) + lineHeight / 2, backgroundPaint);
+
+        float y = lineHeight;
+        for (int i = 0; i < channels.size(); i++) {
+            RenderRecorder.Channel channel = channels.get(i);
+            String line = channel.toString();
+            double allocations = channel.getMeanAllocations();
+            if (!Double.isNaN(allocations)) {
+                line += ", " + Math.round(allocations) + " allocs";
+            }
+            canvas.drawText(line, 16f, y, textPaint);
+            y += lineHeight;
+        }
+        canvas.drawText("Frames: " + frames, 16f, y, textPaint);
+    }
+}
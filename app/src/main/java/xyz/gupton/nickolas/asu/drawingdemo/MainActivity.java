@@ -1,15 +1,31 @@
 package xyz.gupton.nickolas.asu.drawingdemo;
 
+import android.content.ComponentCallbacks2;
+import android.content.Context;
 import android.os.Bundle;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.view.View;
 import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
 import android.widget.LinearLayout;
 import android.widget.Spinner;
 import android.widget.TextView;
+import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 
+import xyz.gupton.nickolas.asu.drawingdemo.core.GestureReplayer;
+import xyz.gupton.nickolas.asu.drawingdemo.core.GestureTrace;
+import xyz.gupton.nickolas.asu.drawingdemo.core.RenderRecorder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
 /**
  * An Activity that allows the user to choose among different drawing modes.
  * It listens for changes to the Spinner to change the mode.
@@ -26,6 +42,20 @@ public class MainActivity extends AppCompatActivity implements AdapterView.OnIte
     private static final int MODE_BEZIER = 5;
     private static final int MODE_VORONOI = 6;
 
+    /**
+     * The options menu group that holds the render modes of the current View.
+     */
+    private static final int MENU_GROUP_RENDER_MODES = 1;
+
+    /**
+     * The options menu group that holds the timing items, and their IDs.
+     */
+    private static final int MENU_GROUP_TIMINGS = 2;
+    private static final int MENU_SHOW_TIMINGS = 1001;
+    private static final int MENU_EXPORT_TIMINGS = 1002;
+    private static final int MENU_RECORD_GESTURES = 1003;
+    private static final int MENU_REPLAY_GESTURES = 1004;
+
     /**
      * Instructions specific to each mode to be put in a TextView.
      */
@@ -34,9 +64,9 @@ public class MainActivity extends AppCompatActivity implements AdapterView.OnIte
             "Swipe the screen to draw a pretty fractal.",
             "Tap the screen to plot a point.",
             "Tap the screen to register a point to include in the average",
-            "Move the green point around to make shapes.",
-            "Drag the points around to change the Bezier curve.",
-            "Tap to add points to the Voronoi diagram."
+            "Move the green point around to make shapes, or drag either point to move just that one.",
+            "Drag the points around to change the Bezier curve, or tap away from them to add more.",
+            "Tap to add points to the Voronoi diagram. Drag a point to move it, or hold it to delete it."
     };
 
     /**
@@ -44,6 +74,53 @@ public class MainActivity extends AppCompatActivity implements AdapterView.OnIte
      */
     private int indexOfAddedView;
 
+    /**
+     * The View added for the current mode.
+     */
+    private View modeView;
+
+    /**
+     * The wrapper around modeView that times it.
+     */
+    private InstrumentedFrame instrumentedFrame;
+
+    /**
+     * The Views of the modes used recently, kept so switching back to one doesn't start it over.
+     * They may take up to a quarter of the heap.
+     */
+    private final ModeViewCache modeViews = new ModeViewCache(Runtime.getRuntime().maxMemory() / 4);
+
+    /**
+     * The draw and touch timings of every mode used since the app started.
+     */
+    private final RenderRecorder recorder = new RenderRecorder();
+
+    /**
+     * Whether the timings are shown on top of the current mode.
+     */
+    private boolean showTimings = false;
+
+    /**
+     * The number of the current mode.
+     */
+    private int currentMode;
+
+    /**
+     * The touches being recorded, or null when they aren't.
+     */
+    private GestureTrace recording;
+
+    /**
+     * The last recording finished, and the mode it was recorded in, to replay instead of a made-up workload.
+     */
+    private GestureTrace lastRecording;
+    private int lastRecordingMode;
+
+    /**
+     * Is true while a replay is running, so only one runs at a time.
+     */
+    private boolean replaying = false;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -78,38 +155,233 @@ public class MainActivity extends AppCompatActivity implements AdapterView.OnIte
             instructionsTextView.setText("Please choose a mode above.");
         }
 
-        // Remove the old added View and add a new one according to the new mode.
+        // Stop recording the old View's touches, since a trace only makes sense in one mode.
+        if (instrumentedFrame != null) {
+            instrumentedFrame.setRecording(null);
+        }
+        recording = null;
+
+        // Remove the old added View and add the new mode's, reusing the one kept from last time if there is one.
         LinearLayout layout = findViewById(R.id.artsyLayout);
         layout.removeViewAt(indexOfAddedView);
-        View newView;
+        InstrumentedFrame frame = modeViews.get(mode);
+        if (frame == null) {
+            // Wrap the View so its drawing and touch handling are timed.
+            View newView = createModeView(this, mode);
+            frame = new InstrumentedFrame(this, newView, recorder, newView.getClass().getSimpleName());
+            modeViews.put(mode, frame);
+        }
+        modeViews.trim(mode);
+        frame.setShowOverlay(showTimings);
+        layout.addView(frame);
+        indexOfAddedView = layout.indexOfChild(frame);
+        modeView = frame.getWrappedView();
+        instrumentedFrame = frame;
+        currentMode = mode;
+
+        // The options menu lists the render modes of the new View, if it has any.
+        invalidateOptionsMenu();
+    }
+
+    /**
+     * Makes the View for a mode.
+     * @param context   The Context the View will run in. Views made with an Activity report to its instructions.
+     * @param mode      The number of the mode.
+     * @return The View, or a plain View if the mode isn't valid.
+     */
+    static View createModeView(Context context, int mode) {
         switch (mode) {
             case MODE_SKETCHY:
-                newView = new SketchyView(this);
-                break;
+                return new SketchyView(context);
             case MODE_FRACTAL:
-                newView = new FractalView(this);
-                break;
+                return new FractalView(context);
             case MODE_POINTS:
-                newView = new PointsView(this);
-                break;
+                return new PointsView(context);
             case MODE_AVERAGING:
-                newView = new AveragingView(this);
-                break;
+                return new AveragingView(context);
             case MODE_GEOMETRY:
-                newView = new GeometryView(this);
-                break;
+                return new GeometryView(context);
             case MODE_BEZIER:
-                newView = new BezierView(this);
-                break;
+                return new BezierView(context);
             case MODE_VORONOI:
-                newView = new VoronoiView(this);
-                break;
+                return new VoronoiView(context);
             default: // It must not be one of the valid modes.
-                newView = new View(this); // Generic and useless, but removable.
-                break;
+                return new View(context); // Generic and useless, but removable.
+        }
+    }
+
+    /**
+     * Makes the standard replay workload for a mode, so that every build is timed on the same input.
+     * @param mode     The number of the mode.
+     * @param width    The width of the View, in pixels.
+     * @param height   The height of the View, in pixels.
+     */
+    static GestureTrace createWorkload(int mode, int width, int height) {
+        switch (mode) {
+            case MODE_FRACTAL:
+                // One swipe per depth, up to the deepest the FractalView goes before starting over.
+                return GestureTrace.swipes(17, 60, width, height, 42);
+            case MODE_POINTS:
+            case MODE_AVERAGING:
+            case MODE_VORONOI:
+                return GestureTrace.taps(500, width, height, 42);
+            case MODE_GEOMETRY:
+            case MODE_BEZIER:
+                // Grab a point where the View starts one off and drag it around.
+                return GestureTrace.drag(width / 3.0f, height / 3.0f, Math.min(width, height) / 4.0f, 2000);
+            default:
+                return GestureTrace.swipes(100, 60, width, height, 42);
+        }
+    }
+
+    @Override
+    public boolean onPrepareOptionsMenu(Menu menu) {
+        menu.clear();
+        if (modeView instanceof RenderModes) {
+            RenderModes renderModes = (RenderModes) modeView;
+            CharSequence[] names = renderModes.getRenderModeNames();
+            for (int i = 0; i < names.length; i++) {
+                menu.add(MENU_GROUP_RENDER_MODES, Menu.FIRST + i, i, names[i]);
+            }
+            menu.setGroupCheckable(MENU_GROUP_RENDER_MODES, true, true);
+            menu.findItem(Menu.FIRST + renderModes.getRenderMode()).setChecked(true);
+        }
+        menu.add(MENU_GROUP_TIMINGS, MENU_SHOW_TIMINGS, Menu.CATEGORY_SECONDARY, "Show timings")
+                .setCheckable(true).setChecked(showTimings);
+        menu.add(MENU_GROUP_TIMINGS, MENU_EXPORT_TIMINGS, Menu.CATEGORY_SECONDARY, "Export timings as CSV");
+        menu.add(MENU_GROUP_TIMINGS, MENU_RECORD_GESTURES, Menu.CATEGORY_SECONDARY, "Record gestures")
+                .setCheckable(true).setChecked(recording != null);
+        menu.add(MENU_GROUP_TIMINGS, MENU_REPLAY_GESTURES, Menu.CATEGORY_SECONDARY, "Replay gestures");
+        return super.onPrepareOptionsMenu(menu);
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getGroupId() == MENU_GROUP_RENDER_MODES && modeView instanceof RenderModes) {
+            // Switch the current View to the chosen render mode.
+            ((RenderModes) modeView).setRenderMode(item.getItemId() - Menu.FIRST);
+            item.setChecked(true);
+            return true;
+        }
+        if (item.getItemId() == MENU_SHOW_TIMINGS) {
+            showTimings = !showTimings;
+            item.setChecked(showTimings);
+            instrumentedFrame.setShowOverlay(showTimings);
+            return true;
+        }
+        if (item.getItemId() == MENU_EXPORT_TIMINGS) {
+            exportTimings();
+            return true;
+        }
+        if (item.getItemId() == MENU_RECORD_GESTURES) {
+            if (recording == null) {
+                recording = new GestureTrace();
+                instrumentedFrame.setRecording(recording);
+            } else {
+                instrumentedFrame.setRecording(null);
+                saveRecording(recording);
+                recording = null;
+            }
+            item.setChecked(recording != null);
+            return true;
+        }
+        if (item.getItemId() == MENU_REPLAY_GESTURES) {
+            replayGestures();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    /**
+     * @return The app's external files directory, where files can be pulled off the device without
+     *         any permissions, or its internal one if the external storage isn't available.
+     */
+    private File getTimingsDirectory() {
+        File directory = getExternalFilesDir(null);
+        if (directory == null) {
+            directory = getFilesDir();
+        }
+        return directory;
+    }
+
+    /**
+     * Writes every mode's timings to render-timings.csv in the timings directory and says where it went.
+     */
+    private void exportTimings() {
+        File file = new File(getTimingsDirectory(), "render-timings.csv");
+        try (Writer writer = new FileWriter(file)) {
+            recorder.writeCsv(writer);
+            Toast.makeText(this, "Timings saved to " + file.getPath(), Toast.LENGTH_LONG).show();
+        } catch (IOException ex) {
+            Toast.makeText(this, "Couldn't save the timings: " + ex.getMessage(), Toast.LENGTH_LONG).show();
+        }
+    }
+
+    /**
+     * Keeps a finished recording to replay, and saves it as gestures.trace next to the timings.
+     */
+    private void saveRecording(GestureTrace trace) {
+        lastRecording = trace;
+        lastRecordingMode = currentMode;
+        File file = new File(getTimingsDirectory(), "gestures.trace");
+        try (OutputStream out = new FileOutputStream(file)) {
+            trace.write(out);
+            Toast.makeText(this, trace.size() + " samples saved to " + file.getPath(), Toast.LENGTH_LONG).show();
+        } catch (IOException ex) {
+            Toast.makeText(this, "Couldn't save the gestures: " + ex.getMessage(), Toast.LENGTH_LONG).show();
+        }
+    }
+
+    /**
+     * Plays the last recording made in this mode, or the mode's standard workload, into a new View
+     * of the current mode's size drawing off screen, and reports how fast it went.
+     * The replay runs on a thread of its own, so the UI keeps going and a View's renders can be waited for.
+     */
+    private void replayGestures() {
+        final int width = modeView.getWidth();
+        final int height = modeView.getHeight();
+        if (replaying || width == 0 || height == 0) {
+            return;
+        }
+        final int mode = currentMode;
+        final GestureTrace trace = lastRecording != null && lastRecordingMode == mode
+                ? lastRecording : createWorkload(mode, width, height);
+
+        // The application Context keeps the replayed View from writing to the instructions.
+        final Context context = getApplicationContext();
+        replaying = true;
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                String report;
+                try {
+                    ViewReplayTarget target = new ViewReplayTarget(createModeView(context, mode), width, height);
+                    GestureReplayer.Result result = new GestureReplayer(60).replay(trace, target);
+                    target.release();
+                    report = result.toString();
+                } catch (InterruptedException ex) {
+                    report = "The replay was interrupted";
+                }
+
+                final String shown = report;
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        replaying = false;
+                        Toast.makeText(context, shown, Toast.LENGTH_LONG).show();
+                    }
+                });
+            }
+        }, "GestureReplay").start();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            // Only the mode being shown is worth keeping when memory is short.
+            modeViews.clearExcept(currentMode);
         }
-        layout.addView(newView);
-        indexOfAddedView = layout.indexOfChild(newView);
     }
 
     @Override
@@ -0,0 +1,123 @@
+package xyz.gupton.nickolas.asu.drawingdemo;
+
+import android.view.View;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the Views of modes that were used recently, so switching back to a mode shows it as it
+ * was left, Voronoi sites, fractal, rendered bitmaps and all, instead of starting over.
+ *
+ * The Views are kept in least recently used order. Whenever a mode is shown the total size of
+ * what is kept is worked out again, since Views grow as they are used, and the least recently used
+ * Views are let go of until it fits within the budget. The View being shown is never let go of.
+ * Views that are let go of are released, so their background work stops and their buffers go at once.
+ */
+class ModeViewCache {
+
+    /**
+     * VIEW_BYTES | long: What a View is counted as on top of its RetainedMemory, covering its
+     * points, paints and other small state.
+     */
+    private static final long VIEW_BYTES = 64 * 1024;
+
+    /**
+     * budgetBytes | long: How much the kept Views may take up altogether.
+     */
+    private final long budgetBytes;
+
+    /**
+     * frames | LinkedHashMap<Integer, InstrumentedFrame>: The kept Views, wrapped, by mode,
+     * from least to most recently used.
+     */
+    private final LinkedHashMap<Integer, InstrumentedFrame> frames = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Sets up a new, empty ModeViewCache.
+     * @param budgetBytes   How much the kept Views may take up altogether.
+     */
+    ModeViewCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * @return The kept View for a mode, now the most recently used, or null if there isn't one.
+     */
+    InstrumentedFrame get(int mode) {
+        return frames.get(mode);
+    }
+
+    /**
+     * Keeps a View for a mode, as the most recently used.
+     */
+    void put(int mode, InstrumentedFrame frame) {
+        frames.put(mode, frame);
+    }
+
+    /**
+     * Lets go of the least recently used Views until the rest fit within the budget.
+     * @param keepMode   The mode being shown, which is kept whatever its size.
+     * @return The number of Views let go of.
+     */
+    int trim(int keepMode) {
+        long total = getRetainedBytes();
+        int evicted = 0;
+        Iterator<Map.Entry<Integer, InstrumentedFrame>> entries = frames.entrySet().iterator();
+        while (total > budgetBytes && entries.hasNext()) {
+            Map.Entry<Integer, InstrumentedFrame> entry = entries.next();
+            if (entry.getKey() != keepMode) {
+                total -= estimateBytes(entry.getValue());
+                entries.remove();
+                release(entry.getValue());
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Lets go of every View but the one being shown, such as when memory runs low.
+     */
+    void clearExcept(int keepMode) {
+        InstrumentedFrame kept = frames.remove(keepMode);
+        for (InstrumentedFrame frame : frames.values()) {
+            release(frame);
+        }
+        frames.clear();
+        if (kept != null) {
+            frames.put(keepMode, kept);
+        }
+    }
+
+    int size() {
+        return frames.size();
+    }
+
+    /**
+     * @return Roughly how many bytes the kept Views take up right now.
+     */
+    long getRetainedBytes() {
+        long total = 0;
+        for (InstrumentedFrame frame : frames.values()) {
+            total += estimateBytes(frame);
+        }
+        return total;
+    }
+
+    private static void release(InstrumentedFrame frame) {
+        View view = frame.getWrappedView();
+        if (view instanceof RetainedMemory) {
+            ((RetainedMemory) view).release();
+        }
+    }
+
+    private static long estimateBytes(InstrumentedFrame frame) {
+        View view = frame.getWrappedView();
+        if (view instanceof RetainedMemory) {
+            return VIEW_BYTES + ((RetainedMemory) view).getRetainedBytes();
+        }
+        return VIEW_BYTES;
+    }
+}
@@ -1,40 +1,60 @@
 package xyz.gupton.nickolas.asu.drawingdemo;
 
+import android.app.Activity;
 import android.content.Context;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.view.MotionEvent;
 import android.view.View;
+import android.widget.TextView;
+
+import xyz.gupton.nickolas.asu.drawingdemo.core.PointStore;
 
 /**
  * Adds up to 9 points and draws lines between them.
  * @author Nickolas Gupton
  */
-class PointsView extends View implements View.OnTouchListener {
+class PointsView extends View implements View.OnTouchListener, RenderModes, SceneCache.Recorder {
+
+    /**
+     * The ways the PointsView can draw, in the order they appear in the menu.
+     * With RENDER_CACHED the lines and numbers are recorded once and only recorded again when a point is added.
+     */
+    static final int RENDER_DIRECT = 0;
+    static final int RENDER_CACHED = 1;
+    private static final CharSequence[] RENDER_MODE_NAMES = {"Draw everything every frame", "Cache the lines and numbers"};
+
+    /**
+     * MAX_POINTS | int: How many points are kept before starting over.
+     */
+    private static final int MAX_POINTS = 9;
 
     /**
-     * points | float[][]: points[pointNumber][0 for X, 1 for Y].
+     * points | PointStore: The points tapped so far, in order.
      */
-    private final float[][] points = {
-            {0f, 0f},
-            {0f, 0f},
-            {0f, 0f},
-            {0f, 0f},
-            {0f, 0f},
-            {0f, 0f},
-            {0f, 0f},
-            {0f, 0f},
-            {0f, 0f}
-    };
-
-    private int currentNum = 0;
+    private final PointStore points = new PointStore(MAX_POINTS);
 
     /**
      * The Paint object needed to draw on the Canvas.
      */
     private Paint paint;
 
+    /**
+     * renderMode | int: One of the RENDER_ constants.
+     */
+    private int renderMode = RENDER_DIRECT;
+
+    /**
+     * scene | SceneCache: The recorded lines and numbers as a single part covering the View, used with RENDER_CACHED.
+     */
+    private final SceneCache scene = new SceneCache(1);
+
+    /**
+     * The TextView object needed to report the cache counts.
+     */
+    private TextView instructionsTextView;
+
     /**
      * Sets up a new PointsView.
      * @param context   The Context (probably an Activity) the PointsView is running in.
@@ -52,6 +72,39 @@ class PointsView extends View implements View.OnTouchListener {
         paint.setTextSize(40.0f);
         // Make the lines wider.
         paint.setStrokeWidth(3.0f);
+
+        // Find the instructions TextView and save it to use later.
+        try {
+            Activity activity = (Activity) context;
+            instructionsTextView = activity.findViewById(R.id.instructionsTextView);
+        } catch (ClassCastException ex) {
+            // context must not have been an Activity object, so we can't use instructionsTextView.
+        } catch (NullPointerException ex) {
+            // context must have been a null reference, so we can't use instructionsTextView.
+        }
+    }
+
+    @Override
+    public CharSequence[] getRenderModeNames() {
+        return RENDER_MODE_NAMES;
+    }
+
+    @Override
+    public int getRenderMode() {
+        return renderMode;
+    }
+
+    @Override
+    public void setRenderMode(int mode) {
+        renderMode = mode;
+        scene.clear();
+        invalidate();
+    }
+
+    @Override
+    protected void onSizeChanged(int width, int height, int oldWidth, int oldHeight) {
+        super.onSizeChanged(width, height, oldWidth, oldHeight);
+        scene.setBounds(0, width, height, 0f, 0f);
     }
 
     @Override
@@ -59,16 +112,35 @@ class PointsView extends View implements View.OnTouchListener {
         // Paint the background a very light blue.
         canvas.drawColor(Color.WHITE);
 
+        if (renderMode == RENDER_CACHED) {
+            scene.draw(canvas, 0, 0f, 0f, this);
+            try {
+                scene.report(instructionsTextView);
+            } catch (NullPointerException ex) {
+                // We couldn't get instructionsTextView, so we can't report the counts.
+            }
+        } else {
+            record(canvas, 0);
+        }
+    }
+
+    /**
+     * Draws the lines between the points and their numbers.
+     */
+    @Override
+    public void record(Canvas canvas, int part) {
         // Draw lines among the points
+        float[] xs = points.getXs();
+        float[] ys = points.getYs();
         paint.setColor(Color.GRAY);
-        for (int i = 1; i < currentNum; i++) {
-            canvas.drawLine(points[i-1][0], points[i-1][1], points[i][0], points[i][1], paint);
+        for (int i = 1; i < points.size(); i++) {
+            canvas.drawLine(xs[i-1], ys[i-1], xs[i], ys[i], paint);
         }
 
         // Draw numbers
         paint.setColor(Color.BLACK);
-        for (int i = 0; i < currentNum; i++) {
-            canvas.drawText(String.valueOf(i+1), points[i][0]-14f, points[i][1]+14f, paint);
+        for (int i = 0; i < points.size(); i++) {
+            canvas.drawText(String.valueOf(i+1), xs[i]-14f, ys[i]+14f, paint);
         }
     }
 
@@ -82,15 +154,13 @@ class PointsView extends View implements View.OnTouchListener {
                 break;
             case MotionEvent.ACTION_CANCEL:
             case MotionEvent.ACTION_UP:
-                if (currentNum == 9) {
-                    currentNum = 0;
+                if (points.size() == MAX_POINTS) {
+                    points.clear();
                 }
 
-                // Set new point B and force the Canvas to redraw.
-                points[currentNum][0] = event.getX();
-                points[currentNum][1] = event.getY();
-
-                currentNum++;
+                // Add the new point and force the Canvas to redraw.
+                points.add(event.getX(), event.getY(), Color.BLACK);
+                scene.markDirty(0);
                 invalidate();
                 break;
         }
@@ -98,4 +168,3 @@ class PointsView extends View implements View.OnTouchListener {
     }
 
 }
-
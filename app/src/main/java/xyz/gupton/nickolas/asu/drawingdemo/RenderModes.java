@@ -0,0 +1,24 @@
+package xyz.gupton.nickolas.asu.drawingdemo;
+
+/**
+ * Implemented by Views that can draw themselves in more than one way.
+ * MainActivity lists the modes in its options menu while such a View is showing.
+ */
+interface RenderModes {
+
+    /**
+     * @return The names of the modes, in the order they are numbered.
+     */
+    CharSequence[] getRenderModeNames();
+
+    /**
+     * @return The number of the mode currently used.
+     */
+    int getRenderMode();
+
+    /**
+     * Switches to another mode and redraws.
+     * @param renderMode   The number of the mode to switch to.
+     */
+    void setRenderMode(int renderMode);
+}
@@ -0,0 +1,19 @@
+package xyz.gupton.nickolas.asu.drawingdemo;
+
+/**
+ * Implemented by Views that hold on to large buffers, such as rendered bitmaps, between frames.
+ * MainActivity uses it to decide which cached mode Views to let go of first, and to tell them when they have been.
+ */
+interface RetainedMemory {
+
+    /**
+     * @return Roughly how many bytes the View's buffers take up right now.
+     */
+    long getRetainedBytes();
+
+    /**
+     * Stops any work the View has running in the background and drops its buffers.
+     * Called once the View has been let go of and won't be shown again.
+     */
+    void release();
+}
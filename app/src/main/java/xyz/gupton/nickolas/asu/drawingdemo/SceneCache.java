@@ -0,0 +1,182 @@
+package xyz.gupton.nickolas.asu.drawingdemo;
+
+import android.graphics.Canvas;
+import android.graphics.Picture;
+import android.os.Build;
+import android.widget.TextView;
+
+/**
+ * Records the parts of a scene that rarely change, like labelled markers, into Pictures once,
+ * and plays the recordings back on later frames instead of issuing every draw call again.
+ * Text is the most expensive thing these Views draw, and a recorded Picture skips laying it out.
+ *
+ * Each part is recorded around an anchor point, so a part that only moves is played back somewhere
+ * else without being recorded again; only marking a part dirty, because what it looks like changed,
+ * makes it record again. It counts how often each happens.
+ */
+class SceneCache {
+
+    /**
+     * Draws a part of the scene.
+     */
+    interface Recorder {
+
+        /**
+         * Draws a part with its anchor at (0, 0).
+         * @param canvas   The Canvas to draw on, which may be a Picture being recorded.
+         * @param part     The number of the part.
+         */
+        void record(Canvas canvas, int part);
+    }
+
+    /**
+     * The recording of each part, or null if it hasn't been recorded yet.
+     */
+    private final Picture[] pictures;
+
+    /**
+     * The size of the box each part is recorded in, and where its anchor is in that box.
+     */
+    private final int[] widths;
+    private final int[] heights;
+    private final float[] anchorXs;
+    private final float[] anchorYs;
+
+    /**
+     * Whether each part has to be recorded again before it is drawn.
+     */
+    private final boolean[] dirty;
+
+    /**
+     * REPORT_INTERVAL_NANOS | long: The shortest time between two reports of the counts.
+     */
+    private static final long REPORT_INTERVAL_NANOS = 500000000L;
+
+    /**
+     * hits, reRecords | long: How many times a part was played back, and how many times one was recorded.
+     */
+    private long hits = 0;
+    private long reRecords = 0;
+
+    /**
+     * reportedNanos, reportedReRecords | long: When the counts were last shown, and how many recordings there were then.
+     */
+    private long reportedNanos = 0;
+    private long reportedReRecords = -1;
+
+    /**
+     * Sets up a new SceneCache.
+     * @param partCount   How many parts the scene has.
+     */
+    SceneCache(int partCount) {
+        pictures = new Picture[partCount];
+        widths = new int[partCount];
+        heights = new int[partCount];
+        anchorXs = new float[partCount];
+        anchorYs = new float[partCount];
+        dirty = new boolean[partCount];
+    }
+
+    /**
+     * Sets the box a part is recorded in, which everything it draws has to fit inside, and marks it dirty.
+     * @param width     The width of the box.
+     * @param height    The height of the box.
+     * @param anchorX   Where the part's (0, 0) is in the box, across.
+     * @param anchorY   Where the part's (0, 0) is in the box, down.
+     */
+    void setBounds(int part, int width, int height, float anchorX, float anchorY) {
+        widths[part] = width;
+        heights[part] = height;
+        anchorXs[part] = anchorX;
+        anchorYs[part] = anchorY;
+        dirty[part] = true;
+    }
+
+    /**
+     * Makes a part record again the next time it is drawn, because what it looks like has changed.
+     */
+    void markDirty(int part) {
+        dirty[part] = true;
+    }
+
+    void markAllDirty() {
+        for (int i = 0; i < dirty.length; i++) {
+            dirty[i] = true;
+        }
+    }
+
+    /**
+     * Draws a part with its anchor at (x, y), recording it first if it is dirty.
+     */
+    void draw(Canvas canvas, int part, float x, float y, Recorder recorder) {
+        // Before Marshmallow a Picture can't be played back on a hardware accelerated Canvas.
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M && canvas.isHardwareAccelerated()) {
+            int saved = canvas.save();
+            canvas.translate(x, y);
+            recorder.record(canvas, part);
+            canvas.restoreToCount(saved);
+            return;
+        }
+
+        if (dirty[part] || pictures[part] == null) {
+            if (pictures[part] == null) {
+                pictures[part] = new Picture();
+            }
+            Canvas recording = pictures[part].beginRecording(widths[part], heights[part]);
+            recording.translate(anchorXs[part], anchorYs[part]);
+            recorder.record(recording, part);
+            pictures[part].endRecording();
+            dirty[part] = false;
+            reRecords++;
+        } else {
+            hits++;
+        }
+
+        int saved = canvas.save();
+        canvas.translate(x - anchorXs[part], y - anchorYs[part]);
+        canvas.drawPicture(pictures[part]);
+        canvas.restoreToCount(saved);
+    }
+
+    long getHits() {
+        return hits;
+    }
+
+    long getReRecords() {
+        return reRecords;
+    }
+
+    /**
+     * Forgets the recordings, such as when caching is turned off.
+     */
+    void clear() {
+        for (int i = 0; i < pictures.length; i++) {
+            pictures[i] = null;
+        }
+        markAllDirty();
+        reportedReRecords = -1;
+    }
+
+    /**
+     * Shows the counts in a TextView, right away if a part was recorded since the last time and otherwise
+     * at most twice a second, so calling it from onDraw doesn't set the text on every frame.
+     * @param textView   Where to show the counts.
+     */
+    void report(TextView textView) {
+        long now = System.nanoTime();
+        if (reRecords == reportedReRecords && now - reportedNanos < REPORT_INTERVAL_NANOS) {
+            return;
+        }
+        textView.setText(toString());
+        reportedNanos = now;
+        reportedReRecords = reRecords;
+    }
+
+    /**
+     * @return The counts, to show in the instructions.
+     */
+    @Override
+    public String toString() {
+        return "Scene cache: " + hits + " hits, " + reRecords + " re-recorded";
+    }
+}
@@ -1,18 +1,39 @@
 package xyz.gupton.nickolas.asu.drawingdemo;
 
+import android.app.Activity;
 import android.content.Context;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.view.MotionEvent;
 import android.view.View;
+import android.widget.TextView;
 
 /**
  * A View that illustrates some simple drawing using a Canvas.
  * @author Rob LeGrand
  */
-class SketchyView extends View implements View.OnTouchListener {
+class SketchyView extends View implements View.OnTouchListener, RenderModes, SceneCache.Recorder {
 
+    /**
+     * The ways the SketchyView can draw, in the order they appear in the menu.
+     * With RENDER_CACHED the labelled points are recorded once and played back wherever they are moved.
+     */
+    static final int RENDER_DIRECT = 0;
+    static final int RENDER_CACHED = 1;
+    private static final CharSequence[] RENDER_MODE_NAMES = {"Draw everything every frame", "Cache the labelled points"};
+
+    /**
+     * The parts of the scene that are cached: the three labelled points.
+     */
+    private static final int PART_A = 0;
+    private static final int PART_B = 1;
+    private static final int PART_C = 2;
+
+    /**
+     * MARKER_BOX | int: The size of the box each labelled point is recorded in, centered on the point.
+     */
+    private static final int MARKER_BOX = 80;
 
     /**
      * Becomes true once the SketchyView object has been touched,
@@ -47,6 +68,21 @@ class SketchyView extends View implements View.OnTouchListener {
      */
     private Paint paint;
 
+    /**
+     * renderMode | int: One of the RENDER_ constants.
+     */
+    private int renderMode = RENDER_DIRECT;
+
+    /**
+     * scene | SceneCache: The recorded labelled points, used with RENDER_CACHED.
+     */
+    private final SceneCache scene = new SceneCache(3);
+
+    /**
+     * The TextView object needed to report the cache counts.
+     */
+    private TextView instructionsTextView;
+
     /**
      * Sets up a new SketchyView.
      * @param context   The Context (probably an Activity) the SketchyView is running in.
@@ -67,6 +103,37 @@ class SketchyView extends View implements View.OnTouchListener {
         paint.setTextSize(40.0f);
         // Make the lines wider.
         paint.setStrokeWidth(5.0f);
+
+        for (int part = PART_A; part <= PART_C; part++) {
+            scene.setBounds(part, MARKER_BOX, MARKER_BOX, MARKER_BOX / 2f, MARKER_BOX / 2f);
+        }
+
+        // Find the instructions TextView and save it to use later.
+        try {
+            Activity activity = (Activity) context;
+            instructionsTextView = activity.findViewById(R.id.instructionsTextView);
+        } catch (ClassCastException ex) {
+            // context must not have been an Activity object, so we can't use instructionsTextView.
+        } catch (NullPointerException ex) {
+            // context must have been a null reference, so we can't use instructionsTextView.
+        }
+    }
+
+    @Override
+    public CharSequence[] getRenderModeNames() {
+        return RENDER_MODE_NAMES;
+    }
+
+    @Override
+    public int getRenderMode() {
+        return renderMode;
+    }
+
+    @Override
+    public void setRenderMode(int mode) {
+        renderMode = mode;
+        scene.clear();
+        invalidate();
     }
 
     @Override
@@ -89,20 +156,54 @@ class SketchyView extends View implements View.OnTouchListener {
         canvas.drawLine(pointBX, pointBY, getWidth(), 0.0f, paint);
 
         // Draw the points and label them.
-        paint.setColor(Color.rgb(0, 170, 170));
-        canvas.drawCircle(pointAX, pointAY, 27.0f, paint);
-        paint.setColor(Color.rgb(170, 0, 170));
-        canvas.drawRect(pointBX - 24.0f, pointBY - 24.0f, pointBX + 24.0f, pointBY + 24.0f, paint);
-        paint.setColor(Color.WHITE);
-        canvas.drawText("A", pointAX - 13.0f, pointAY + 14.0f, paint);
-        canvas.drawText("B", pointBX - 13.0f, pointBY + 14.0f, paint);
-
         pointC[0] = (pointAX + pointBX)/2;
         pointC[1] = (pointAY + pointBY)/2;
-        paint.setColor(Color.rgb(170, 25, 25));
-        canvas.drawOval(pointC[0]-20f, pointC[1]-30f,pointC[0]+20f, pointC[1]+30f, paint);
-        paint.setColor(Color.WHITE);
-        canvas.drawText("C", pointC[0] - 13.0f, pointC[1] + 14.0f, paint);
+        if (renderMode == RENDER_CACHED) {
+            // The points only ever move, so their recordings are played back without recording them again.
+            scene.draw(canvas, PART_A, pointAX, pointAY, this);
+            scene.draw(canvas, PART_B, pointBX, pointBY, this);
+            scene.draw(canvas, PART_C, pointC[0], pointC[1], this);
+            try {
+                scene.report(instructionsTextView);
+            } catch (NullPointerException ex) {
+                // We couldn't get instructionsTextView, so we can't report the counts.
+            }
+        } else {
+            drawMarker(canvas, PART_A, pointAX, pointAY);
+            drawMarker(canvas, PART_B, pointBX, pointBY);
+            drawMarker(canvas, PART_C, pointC[0], pointC[1]);
+        }
+    }
+
+    @Override
+    public void record(Canvas canvas, int part) {
+        drawMarker(canvas, part, 0f, 0f);
+    }
+
+    /**
+     * Draws one of the labelled points centered on (x, y).
+     */
+    private void drawMarker(Canvas canvas, int part, float x, float y) {
+        switch (part) {
+            case PART_A:
+                paint.setColor(Color.rgb(0, 170, 170));
+                canvas.drawCircle(x, y, 27.0f, paint);
+                paint.setColor(Color.WHITE);
+                canvas.drawText("A", x - 13.0f, y + 14.0f, paint);
+                break;
+            case PART_B:
+                paint.setColor(Color.rgb(170, 0, 170));
+                canvas.drawRect(x - 24.0f, y - 24.0f, x + 24.0f, y + 24.0f, paint);
+                paint.setColor(Color.WHITE);
+                canvas.drawText("B", x - 13.0f, y + 14.0f, paint);
+                break;
+            case PART_C:
+                paint.setColor(Color.rgb(170, 25, 25));
+                canvas.drawOval(x - 20f, y - 30f, x + 20f, y + 30f, paint);
+                paint.setColor(Color.WHITE);
+                canvas.drawText("C", x - 13.0f, y + 14.0f, paint);
+                break;
+        }
     }
 
     @Override
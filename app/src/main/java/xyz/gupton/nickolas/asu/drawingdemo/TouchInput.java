@@ -0,0 +1,103 @@
+package xyz.gupton.nickolas.asu.drawingdemo;
+
+import android.view.MotionEvent;
+import android.view.View;
+
+import xyz.gupton.nickolas.asu.drawingdemo.core.TouchBatch;
+import xyz.gupton.nickolas.asu.drawingdemo.core.TouchRingBuffer;
+
+/**
+ * Gathers every touch sample a View gets and hands them over once per frame.
+ *
+ * Android packs the samples a fast touch panel reports between frames into the history of a single
+ * ACTION_MOVE, so reading just getX() and getY() throws most of them away. This drains the history
+ * into a TouchRingBuffer along with the current sample, and delivers everything that arrived as one
+ * TouchBatch in the next FrameScheduler frame, so the View sees every sample but redraws at most once per vsync.
+ */
+class TouchInput implements View.OnTouchListener, FrameScheduler.Client {
+
+    /**
+     * Receives the touch samples for a frame.
+     */
+    interface Listener {
+
+        /**
+         * @param batch   The samples, oldest first. Only valid until this method returns.
+         */
+        void onTouchBatch(TouchBatch batch);
+    }
+
+    /**
+     * Where the samples are delivered.
+     */
+    private final Listener listener;
+
+    /**
+     * The samples waiting for the next frame.
+     */
+    private final TouchRingBuffer samples = new TouchRingBuffer(64);
+
+    /**
+     * The batch handed to the listener, reused every frame.
+     */
+    private final TouchBatch batch = new TouchBatch();
+
+    /**
+     * Starts listening to a View's touches.
+     * @param view       The View to listen to. Its OnTouchListener is replaced.
+     * @param listener   Where to deliver the samples.
+     */
+    TouchInput(View view, Listener listener) {
+        this.listener = listener;
+        view.setOnTouchListener(this);
+    }
+
+    /**
+     * Delivers the samples that arrived since the last frame.
+     */
+    @Override
+    public void onFrame(long frameNanos) {
+        samples.drainTo(batch);
+        if (batch.size() > 0) {
+            listener.onTouchBatch(batch);
+        }
+    }
+
+    @Override
+    public boolean onTouch(View view, MotionEvent event) {
+        int action = toBatchAction(event.getActionMasked());
+        if (action == -1) {
+            // Other pointers going up and down don't matter to these single-touch views.
+            return true;
+        }
+
+        // The batched samples all come before the current one and are all moves.
+        int history = event.getHistorySize();
+        for (int i = 0; i < history; i++) {
+            samples.push(TouchBatch.MOVE, event.getHistoricalX(i), event.getHistoricalY(i), event.getHistoricalEventTime(i));
+        }
+        samples.push(action, event.getX(), event.getY(), event.getEventTime());
+
+        FrameScheduler.getInstance().requestUpdate(this);
+        return true; // Indicate that the touch event has been handled.
+    }
+
+    /**
+     * Turns a MotionEvent action into the TouchBatch action of the same name.
+     * @return The TouchBatch action, or -1 for actions the views don't use.
+     */
+    static int toBatchAction(int actionMasked) {
+        switch (actionMasked) {
+            case MotionEvent.ACTION_DOWN:
+                return TouchBatch.DOWN;
+            case MotionEvent.ACTION_MOVE:
+                return TouchBatch.MOVE;
+            case MotionEvent.ACTION_UP:
+                return TouchBatch.UP;
+            case MotionEvent.ACTION_CANCEL:
+                return TouchBatch.CANCEL;
+            default:
+                return -1;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package xyz.gupton.nickolas.asu.drawingdemo;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.view.MotionEvent;
+import android.view.View;
+
+import xyz.gupton.nickolas.asu.drawingdemo.core.GestureReplayer;
+import xyz.gupton.nickolas.asu.drawingdemo.core.TouchBatch;
+
+/**
+ * Lets a GestureReplayer play a trace into any of the mode Views, drawing into an off-screen bitmap
+ * instead of the screen, so a mode can be timed without a window or a finger. It works the same
+ * on a device and under Robolectric.
+ *
+ * Views that take TouchInput batches get each batch directly; the others get a MotionEvent per
+ * sample through dispatchTouchEvent(), just as they would from the screen.
+ *
+ * The target is meant to be used from a thread of its own, which the View then runs on instead of the
+ * UI thread; FrameScheduler ignores the calls the View makes to it from there. For Views with
+ * BackgroundWork, like VoronoiView's and FractalView's renders, the target runs the results of that
+ * work before each frame, as the UI thread would, and waits for all of it to finish at the end, so it
+ * is part of the timings.
+ */
+class ViewReplayTarget implements GestureReplayer.Target {
+
+    /**
+     * The View being driven.
+     */
+    private final View view;
+
+    /**
+     * The off-screen bitmap the View draws into, and the Canvas that draws on it.
+     */
+    private final Bitmap bitmap;
+    private final Canvas canvas;
+
+    /**
+     * Where the View hands back the results of its background work, or null if it doesn't do any.
+     */
+    private final BackgroundResults backgroundResults;
+
+    /**
+     * downTime | long: When the current gesture started, for the MotionEvents.
+     */
+    private long downTime = 0;
+
+    /**
+     * Sets up a new ViewReplayTarget, laying the View out at the given size and waiting for any
+     * background work that starts, so the replay starts from a View that is ready.
+     * @param view     The View to drive. It shouldn't be on screen, and should only be used from this thread.
+     * @param width    The width to lay it out at, in pixels.
+     * @param height   The height to lay it out at, in pixels.
+     */
+    ViewReplayTarget(View view, int width, int height) throws InterruptedException {
+        this.view = view;
+        backgroundResults = view instanceof BackgroundWork ? ((BackgroundWork) view).getBackgroundResults() : null;
+        if (backgroundResults != null) {
+            backgroundResults.startQueueing();
+        }
+        view.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, width, height);
+        bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        canvas = new Canvas(bitmap);
+        if (backgroundResults != null) {
+            backgroundResults.runUntilIdle();
+        }
+    }
+
+    @Override
+    public void onTouchBatch(TouchBatch batch) {
+        if (view instanceof TouchInput.Listener) {
+            ((TouchInput.Listener) view).onTouchBatch(batch);
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            int action;
+            switch (batch.getAction(i)) {
+                case TouchBatch.DOWN:
+                    action = MotionEvent.ACTION_DOWN;
+                    downTime = batch.getTime(i);
+                    break;
+                case TouchBatch.UP:
+                    action = MotionEvent.ACTION_UP;
+                    break;
+                case TouchBatch.CANCEL:
+                    action = MotionEvent.ACTION_CANCEL;
+                    break;
+                default:
+                    action = MotionEvent.ACTION_MOVE;
+                    break;
+            }
+            MotionEvent event = MotionEvent.obtain(downTime, batch.getTime(i), action, batch.getX(i), batch.getY(i), 0);
+            view.dispatchTouchEvent(event);
+            event.recycle();
+        }
+    }
+
+    @Override
+    public void drawFrame() {
+        if (backgroundResults != null) {
+            backgroundResults.runArrived();
+        }
+        view.draw(canvas);
+    }
+
+    @Override
+    public void finish() {
+        if (backgroundResults == null) {
+            return;
+        }
+        try {
+            backgroundResults.runUntilIdle();
+        } catch (InterruptedException ex) {
+            // Stop waiting, and leave the interrupt for whoever started the replay.
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Frees the off-screen bitmap. The target can't be used after this.
+     */
+    void release() {
+        bitmap.recycle();
+    }
+}
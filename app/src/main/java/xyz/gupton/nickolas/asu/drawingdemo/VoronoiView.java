@@ -1,44 +1,241 @@
 package xyz.gupton.nickolas.asu.drawingdemo;
 
+import android.app.Activity;
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
 import android.view.MotionEvent;
 import android.view.View;
+import android.view.ViewConfiguration;
+import android.widget.TextView;
 
+import xyz.gupton.nickolas.asu.drawingdemo.core.DelaunayTriangulation;
+import xyz.gupton.nickolas.asu.drawingdemo.core.FortuneVoronoi;
+import xyz.gupton.nickolas.asu.drawingdemo.core.GridSiteIndex;
+import xyz.gupton.nickolas.asu.drawingdemo.core.JumpFlood;
+import xyz.gupton.nickolas.asu.drawingdemo.core.LloydRelaxation;
+import xyz.gupton.nickolas.asu.drawingdemo.core.NearestSiteIndex;
+import xyz.gupton.nickolas.asu.drawingdemo.core.PointStore;
+import xyz.gupton.nickolas.asu.drawingdemo.core.VoronoiRaster;
+
+import java.util.Locale;
 import java.util.Random;
-import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Draws a Voronoi diagram based off of where the user taps.
  * @author Nickolas Gupton
  */
-class VoronoiView extends View implements View.OnTouchListener {
+class VoronoiView extends View implements View.OnTouchListener, RenderModes, RetainedMemory, BackgroundWork {
+
+    // Constants that indicate how the diagram is drawn.
+    static final int RENDER_RASTER = 0;
+    static final int RENDER_RASTER_PARALLEL = 1;
+    static final int RENDER_EXACT = 2;
+    static final int RENDER_RASTER_SUBDIVIDED = 3;
+    static final int RENDER_JUMP_FLOOD = 4;
+    static final int RENDER_DELAUNAY = 5;
+    static final int RENDER_RELAX = 6;
+
+    /**
+     * HIT_RADIUS | float: How close in pixels a touch has to be to a site to grab it.
+     */
+    private static final float HIT_RADIUS = 50f;
+
+    /**
+     * RELAX_DONE | float: The relaxation stops once no site moves further than this many pixels in a step.
+     */
+    private static final float RELAX_DONE = 0.5f;
+
+    /**
+     * RELAX_MAX_STEPS | int: The relaxation stops after this many steps even if the sites are still moving.
+     */
+    private static final int RELAX_MAX_STEPS = 300;
+
+    /**
+     * renderModeNames | CharSequence[]: The names of the render modes, as shown in the options menu.
+     */
+    private static final CharSequence[] renderModeNames = {
+            "Raster (one thread)",
+            "Raster (all cores)",
+            "Exact polygons",
+            "Raster, quadtree fill (all cores)",
+            "Jump flooding (all cores)",
+            "Raster with Delaunay edges",
+            "Relax the sites (Lloyd's algorithm)"
+    };
+
+    /**
+     * renderPool | ForkJoinPool: Runs full raster renders off the UI thread, split into tiles in parallel mode.
+     */
+    private static final ForkJoinPool renderPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    /**
+     * backgroundResults | BackgroundResults: Hands the renders done on renderPool back to the UI thread.
+     */
+    private final BackgroundResults backgroundResults = new BackgroundResults(this);
 
     /**
-     * points | Vector<float[]>: A vector which contains all of the points which have been clicked.
+     * renderMode | int: How the diagram is drawn, one of the RENDER_ constants.
      */
-    private Vector<float[]> points = new Vector<>();
+    private int renderMode = RENDER_RASTER_PARALLEL;
 
     /**
-     * colors | Vector<Integer>: A vector which contains all of the colors for the points.
+     * points | PointStore: All of the points which have been clicked, along with their colors.
      */
-    private Vector<Integer> colors = new Vector<>();
+    private final PointStore points = new PointStore();
+
+    /**
+     * sites | NearestSiteIndex: Finds the point closest to a location quickly.
+     */
+    private final NearestSiteIndex sites = new GridSiteIndex(points);
 
     /**
      * rdm | Random: A random number generator.
      */
     private Random rdm = new Random();
 
+    /**
+     * raster | VoronoiRaster: The owner and color of every 3x3 cell, kept between frames.
+     * It is null until the first full render finishes.
+     */
+    private VoronoiRaster raster;
+
+    /**
+     * renderGeneration | int: Counts the full renders started, so a render that was overtaken can be thrown away.
+     */
+    private int renderGeneration = 0;
+
+    /**
+     * siteEdits | int: Counts the sites moved or removed, so a full render that started before one can be redone.
+     */
+    private int siteEdits = 0;
+
+    /**
+     * floodErrorSites | PointStore: The sites the last count of jump flooding's wrong cells was made for,
+     * or null if there hasn't been one. Flooding the same sites at the same size gives the same cells.
+     */
+    private PointStore floodErrorSites;
+
+    /**
+     * floodErrorWidth, floodErrorHeight, floodErrors | int: The size of the View for that count, and the count.
+     */
+    private int floodErrorWidth;
+    private int floodErrorHeight;
+    private int floodErrors;
+
+    /**
+     * grabbedSite | int: The site under the finger since ACTION_DOWN, or -1 if the touch didn't start on one.
+     */
+    private int grabbedSite = -1;
+
+    /**
+     * dragging | boolean: True once the grabbed site has been moved further than the touch slop.
+     */
+    private boolean dragging = false;
+
+    /**
+     * touchUsed | boolean: True if the current touch already moved or deleted a site, so lifting it doesn't add one.
+     */
+    private boolean touchUsed = false;
+
+    /**
+     * downX, downY | float: Where the current touch started.
+     */
+    private float downX, downY;
+
+    /**
+     * touchSlop | int: How far in pixels a touch can wander before it counts as a drag.
+     */
+    private final int touchSlop;
+
+    /**
+     * deleteGrabbedSite | Runnable: Deletes the grabbed site when a touch is held on it without moving.
+     */
+    private final Runnable deleteGrabbedSite = new Runnable() {
+        @Override
+        public void run() {
+            if (grabbedSite != -1 && !dragging) {
+                removeSite(grabbedSite);
+                grabbedSite = -1;
+                touchUsed = true;
+            }
+        }
+    };
+
+    /**
+     * bitmap | Bitmap: One pixel per raster cell, stretched over the View when drawn.
+     */
+    private Bitmap bitmap;
+
+    /**
+     * bitmapBounds | Rect: Where the bitmap gets stretched to on the Canvas.
+     */
+    private final Rect bitmapBounds = new Rect();
+
+    /**
+     * polygons | FortuneVoronoi: The exact cell polygons, used in RENDER_EXACT mode.
+     */
+    private final FortuneVoronoi polygons = new FortuneVoronoi();
+
+    /**
+     * polygonsDirty | boolean: True if the sites changed since the polygons were last computed.
+     */
+    private boolean polygonsDirty = true;
+
+    /**
+     * delaunay | DelaunayTriangulation: The dual of the diagram, kept up to date as each site is added
+     * and drawn over the raster in RENDER_DELAUNAY mode.
+     */
+    private DelaunayTriangulation delaunay = new DelaunayTriangulation(0, 0);
+
+    /**
+     * delaunayDirty | boolean: True if a site was moved or removed, which the triangulation can only catch up with by starting over.
+     */
+    private boolean delaunayDirty = false;
+
+    /**
+     * delaunayGeneration | int: Bumped whenever the triangulation goes out of date, so a rebuild started before then is thrown away.
+     */
+    private int delaunayGeneration = 0;
+
+    /**
+     * delaunayBuilding | boolean: True while a rebuild of the current sites is running on renderPool.
+     */
+    private boolean delaunayBuilding = false;
+
+    /**
+     * edgePaint | Paint: Draws the Delaunay edges.
+     */
+    private Paint edgePaint;
+
+    /**
+     * cellPath | Path: Reused to draw each cell polygon.
+     */
+    private final Path cellPath = new Path();
+
     /**
      * The Paint object needed to draw on the Canvas.
      */
     private Paint paint;
 
     /**
-     * Sets up a new PointsView.
-     * @param context   The Context (probably an Activity) the PointsView is running in.
+     * bitmapPaint | Paint: Draws the bitmap without smoothing, so the cells keep their hard edges.
+     */
+    private Paint bitmapPaint;
+
+    /**
+     * The TextView object needed to report how long full renders take.
+     */
+    private TextView instructionsTextView;
+
+    /**
+     * Sets up a new VoronoiView.
+     * @param context   The Context (probably an Activity) the VoronoiView is running in.
      */
     public VoronoiView(Context context) {
         // Call the constructor of the View class.
@@ -49,56 +246,568 @@ class VoronoiView extends View implements View.OnTouchListener {
 
         // Create a new paintbrush to use to draw to the Canvas.
         paint = new Paint();
+        bitmapPaint = new Paint();
+        bitmapPaint.setFilterBitmap(false);
+        edgePaint = new Paint();
+        edgePaint.setColor(Color.WHITE);
+        edgePaint.setStrokeWidth(2f);
+        touchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
+
+        // Find the instructions TextView and save it to use later.
+        try {
+            Activity activity = (Activity) context;
+            instructionsTextView = activity.findViewById(R.id.instructionsTextView);
+        } catch (ClassCastException ex) {
+            // context must not have been an Activity object, so we can't use instructionsTextView.
+        } catch (NullPointerException ex) {
+            // context must have been a null reference, so we can't use instructionsTextView.
+        }
     }
 
     @Override
-    public void onDraw(Canvas canvas) {
-        // Paint the background a very light blue.
-        canvas.drawColor(Color.BLACK);
+    protected void onSizeChanged(int width, int height, int oldWidth, int oldHeight) {
+        super.onSizeChanged(width, height, oldWidth, oldHeight);
+
+        // Let the index fit its grid to the new size of the View.
+        sites.setBounds(width, height);
+
+        // The raster has to be rebuilt at the new size.
+        startFullRender();
+        polygonsDirty = true;
+
+        // So does the triangulation, since its outer triangle is sized to the View.
+        markDelaunayDirty();
+    }
+
+    /**
+     * Marks the triangulation as out of date, dropping any rebuild already running.
+     */
+    private void markDelaunayDirty() {
+        delaunayDirty = true;
+        delaunayGeneration++;
+        delaunayBuilding = false;
+    }
+
+    /**
+     * Starts building the triangulation again on renderPool from a copy of the sites as they are right now.
+     * The old edges keep being drawn until finishDelaunayRebuild() swaps in the new ones.
+     */
+    private void startDelaunayRebuild() {
+        final int generation = delaunayGeneration;
+        final int width = getWidth();
+        final int height = getHeight();
+        final PointStore snapshotPoints = new PointStore(points);
+        delaunayBuilding = true;
 
-        if (points.size() > 0) {
-            for (int x = 0; x < getWidth(); x+=3) {
-                for (int y = 0; y < getHeight(); y+=3) {
-                    int closest = 0;
-                    float closestDist = ((x-points.elementAt(0)[0]) * (x-points.elementAt(0)[0]))
-                            + ((y-points.elementAt(0)[1]) * (y-points.elementAt(0)[1]));
-
-                    for (int i = 1; i < points.size(); i++) {
-                        float dist = ((x-points.elementAt(i)[0]) * (x-points.elementAt(i)[0]))
-                                + ((y-points.elementAt(i)[1]) * (y-points.elementAt(i)[1]));
-                        if (closestDist > dist) {
-                            closest = i;
-                            closestDist = dist;
+        backgroundResults.started();
+        renderPool.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    final DelaunayTriangulation built = new DelaunayTriangulation(width, height);
+                    built.addAll(snapshotPoints);
+                    backgroundResults.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            finishDelaunayRebuild(generation, built, snapshotPoints.size());
                         }
+                    });
+                } finally {
+                    backgroundResults.finished();
+                }
+            }
+        });
+    }
+
+    /**
+     * Swaps in a triangulation built by startDelaunayRebuild(), unless the sites were moved or removed since.
+     * Runs on the UI thread.
+     */
+    private void finishDelaunayRebuild(int generation, DelaunayTriangulation built, int builtSites) {
+        if (generation != delaunayGeneration) {
+            return;
+        }
+
+        // Add the sites that were tapped while it was building.
+        for (int i = builtSites; i < points.size(); i++) {
+            built.add(points.getX(i), points.getY(i));
+        }
+        delaunay = built;
+        delaunayDirty = false;
+        delaunayBuilding = false;
+        invalidate();
+    }
+
+    /**
+     * Starts rendering the whole raster on renderPool, using the sites as they are right now.
+     * The UI thread keeps handling taps meanwhile; finishFullRender() catches the new raster up with them.
+     */
+    private void startFullRender() {
+        if (renderMode == RENDER_RELAX) {
+            // Relaxing renders the raster itself after every step.
+            startRelaxing();
+            return;
+        }
+
+        final int generation = ++renderGeneration;
+        final int width = getWidth();
+        final int height = getHeight();
+        final int edits = siteEdits;
+        final boolean parallel = renderMode != RENDER_RASTER;
+        final boolean subdivide = renderMode == RENDER_RASTER_SUBDIVIDED;
+        final boolean jumpFlood = renderMode == RENDER_JUMP_FLOOD;
+
+        // The render only sees a copy of the sites, so taps can keep changing the real ones.
+        final PointStore snapshotPoints = new PointStore(points);
+        final NearestSiteIndex snapshot = new GridSiteIndex(snapshotPoints);
+        snapshot.setBounds(width, height);
+
+        // Counting the flood's wrong cells takes an exact render, so it is only done once for each set of sites.
+        final boolean countErrors = jumpFlood && (width != floodErrorWidth || height != floodErrorHeight
+                || !samePositions(snapshotPoints, floodErrorSites));
+        final int knownErrors = floodErrors;
+
+        backgroundResults.started();
+        renderPool.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    render();
+                } finally {
+                    backgroundResults.finished();
+                }
+            }
+
+            private void render() {
+                final VoronoiRaster rendered = new VoronoiRaster();
+                rendered.resize(width, height);
+                rendered.setSubdivide(subdivide);
+                long start = System.nanoTime();
+                final long elapsed;
+                final int errors;
+                if (jumpFlood) {
+                    JumpFlood flood = new JumpFlood();
+                    flood.resize(rendered.getCols(), rendered.getRows());
+                    flood.compute(snapshotPoints, renderPool);
+                    rendered.fill(flood.getOwners(), snapshotPoints);
+                    elapsed = System.nanoTime() - start;
+
+                    if (countErrors) {
+                        // Render the exact diagram too, without timing it, to see how many cells the flood got wrong.
+                        VoronoiRaster exact = new VoronoiRaster();
+                        exact.resize(width, height);
+                        exact.setSubdivide(true);
+                        exact.render(snapshot, renderPool);
+                        errors = flood.countErrors(exact, snapshotPoints);
+                    } else {
+                        errors = knownErrors;
+                    }
+                } else {
+                    rendered.render(snapshot, parallel ? renderPool : null);
+                    elapsed = System.nanoTime() - start;
+                    errors = -1;
+                }
+
+                // Hand the finished raster back to the UI thread.
+                backgroundResults.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (countErrors) {
+                            floodErrorSites = snapshotPoints;
+                            floodErrorWidth = width;
+                            floodErrorHeight = height;
+                            floodErrors = errors;
+                        }
+                        finishFullRender(generation, edits, rendered, snapshotPoints.size(), elapsed, parallel, errors);
                     }
+                });
+            }
+        });
+    }
+
+    /**
+     * @return If two sets of sites have the same sites at the same spots, in the same order.
+     */
+    private static boolean samePositions(PointStore a, PointStore b) {
+        if (b == null || a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            if (a.getX(i) != b.getX(i) || a.getY(i) != b.getY(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Swaps in a raster rendered by startFullRender(), unless another render has been started since.
+     * Runs on the UI thread.
+     * @param errors   How many cells are wrong compared to an exact render, or -1 if the render was exact.
+     */
+    private void finishFullRender(int generation, int edits, VoronoiRaster rendered, int renderedSites, long elapsed, boolean parallel, int errors) {
+        if (generation != renderGeneration) {
+            return;
+        }
+        if (edits != siteEdits) {
+            // Sites were moved or removed while it ran, which can't be caught up with by adding sites, so start again.
+            startFullRender();
+            return;
+        }
+
+        // Add the sites that were tapped while the render was running.
+        for (int i = renderedSites; i < points.size(); i++) {
+            rendered.addSite(points, i);
+        }
+        showRaster(rendered);
+
+        // Report how long it took and how many cells had to be searched, so the raster modes can be compared.
+        try {
+            long cells = (long) rendered.getCols() * rendered.getRows();
+            String report = String.format(Locale.US, "Rendered %d sites in %.1f ms on %d thread(s), %d of %d cells searched",
+                    renderedSites, elapsed / 1e6, parallel ? renderPool.getParallelism() : 1,
+                    rendered.getLastQueryCount(), cells);
+            if (errors >= 0) {
+                report += String.format(Locale.US, ", %.3f%% of cells wrong", 100.0 * errors / Math.max(1, cells));
+            }
+            instructionsTextView.setText(report);
+        } catch (NullPointerException ex) {
+            // We couldn't get instructionsTextView, so we can't report the time.
+        }
+    }
+
+    /**
+     * Makes a finished raster the one that gets drawn, resizing the bitmap to match it if needed.
+     */
+    private void showRaster(VoronoiRaster rendered) {
+        raster = rendered;
+        if (bitmap == null || bitmap.getWidth() != raster.getCols() || bitmap.getHeight() != raster.getRows()) {
+            if (bitmap != null) {
+                bitmap.recycle();
+                bitmap = null;
+            }
+            if (raster.getCols() > 0 && raster.getRows() > 0) {
+                bitmap = Bitmap.createBitmap(raster.getCols(), raster.getRows(), Bitmap.Config.ARGB_8888);
+            }
+            bitmapBounds.set(0, 0, raster.getCols() * VoronoiRaster.CELL_SIZE, raster.getRows() * VoronoiRaster.CELL_SIZE);
+        }
+        invalidate();
+    }
+
+    /**
+     * Starts relaxing a copy of the sites on renderPool, one step at a time, showing each step as it finishes.
+     */
+    private void startRelaxing() {
+        int generation = ++renderGeneration;
+        PointStore relaxed = new PointStore(points);
+        NearestSiteIndex relaxedSites = new GridSiteIndex(relaxed);
+        relaxedSites.setBounds(getWidth(), getHeight());
+
+        // Each step reads the raster of the step before and renders into the other one, so they take turns.
+        // Neither is ever shown: the UI thread gets a copy, so taps can edit it while the next step runs.
+        VoronoiRaster first = new VoronoiRaster();
+        first.resize(getWidth(), getHeight());
+        first.setSubdivide(true);
+        VoronoiRaster second = new VoronoiRaster();
+        second.resize(getWidth(), getHeight());
+        second.setSubdivide(true);
+
+        // Each chain gets its own LloydRelaxation, since a step of an overtaken chain may still be running.
+        relaxStep(generation, siteEdits, new LloydRelaxation(), relaxed, relaxedSites, first, second, 0);
+    }
+
+    /**
+     * Runs one step of the relaxation on renderPool: moves the sites to the centroids of their cells in
+     * current, then renders them into next and hands that to the UI thread.
+     */
+    private void relaxStep(final int generation, final int edits, final LloydRelaxation relaxation,
+                           final PointStore relaxed, final NearestSiteIndex relaxedSites, final VoronoiRaster current, final VoronoiRaster next, final int step) {
+        final int width = getWidth();
+        final int height = getHeight();
+        backgroundResults.started();
+        renderPool.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    step();
+                } finally {
+                    backgroundResults.finished();
+                }
+            }
 
-                    paint.setColor(colors.elementAt(closest));
-                    canvas.drawRect(x, y, x+3, y+3, paint);
+            private void step() {
+                if (step == 0) {
+                    current.render(relaxedSites, renderPool);
                 }
+                long start = System.nanoTime();
+                final float moved = relaxation.relax(current, relaxed, renderPool);
+
+                // Every site moved, so rebuilding the index is cheaper than moving them one at a time.
+                relaxedSites.setBounds(width, height);
+                next.render(relaxedSites, renderPool);
+                final long elapsed = System.nanoTime() - start;
+
+                backgroundResults.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        finishRelaxStep(generation, edits, relaxation, relaxed, relaxedSites, current, next, step, moved, elapsed);
+                    }
+                });
             }
+        });
+    }
+
+    /**
+     * Shows a finished relaxation step and starts the next one, unless the sites have settled.
+     * Runs on the UI thread.
+     */
+    private void finishRelaxStep(int generation, int edits, LloydRelaxation relaxation, PointStore relaxed,
+                                 NearestSiteIndex relaxedSites, VoronoiRaster current, VoronoiRaster next, int step, float moved, long elapsed) {
+        if (generation != renderGeneration || renderMode != RENDER_RELAX) {
+            return;
+        }
+        if (edits != siteEdits || relaxed.size() != points.size()) {
+            // The sites were changed by hand while the step ran, so carry on from them instead.
+            startRelaxing();
+            return;
+        }
+
+        for (int i = 0; i < relaxed.size(); i++) {
+            points.set(i, relaxed.getX(i), relaxed.getY(i));
         }
+        sites.setBounds(getWidth(), getHeight());
+        VoronoiRaster shown = raster != null ? raster : new VoronoiRaster();
+        shown.copyFrom(next);
+        showRaster(shown);
+        polygonsDirty = true;
+        markDelaunayDirty();
 
+        boolean settled = moved <= RELAX_DONE || step + 1 >= RELAX_MAX_STEPS;
+        try {
+            instructionsTextView.setText(String.format(Locale.US, "%s %d sites: step %d took %.1f ms and moved them up to %.1f px",
+                    settled ? "Relaxed" : "Relaxing", points.size(), step + 1, elapsed / 1e6, moved));
+        } catch (NullPointerException ex) {
+            // We couldn't get instructionsTextView, so we can't report the step.
+        }
+        if (!settled) {
+            relaxStep(generation, edits, relaxation, relaxed, relaxedSites, next, current, step + 1);
+        }
+    }
+
+    @Override
+    public void onDraw(Canvas canvas) {
+        // Paint the background a very light blue.
+        canvas.drawColor(Color.BLACK);
 
-        for (float[] point : points) {
+        if (renderMode == RENDER_EXACT && points.size() > 0) {
+            drawPolygons(canvas);
+        } else if (points.size() > 0 && raster != null && bitmap != null) {
+            // Copy only the cells that changed into the bitmap, then draw it in one go.
+            if (raster.isDirty()) {
+                int left = raster.getDirtyLeft();
+                int top = raster.getDirtyTop();
+                bitmap.setPixels(raster.getPixels(), top * raster.getCols() + left, raster.getCols(),
+                        left, top, raster.getDirtyRight() - left, raster.getDirtyBottom() - top);
+                raster.clearDirty();
+            }
+            canvas.drawBitmap(bitmap, null, bitmapBounds, bitmapPaint);
+        }
+
+        if (renderMode == RENDER_DELAUNAY) {
+            // Every move of a dragged site would throw a rebuild away, so its old edges stay until it is dropped.
+            if (delaunayDirty && !dragging && !delaunayBuilding) {
+                startDelaunayRebuild();
+            }
+            // Every edge goes to the GPU in one call.
+            canvas.drawLines(delaunay.getLines(), 0, delaunay.getLineFloats(), edgePaint);
+        }
+
+        float[] xs = points.getXs();
+        float[] ys = points.getYs();
+        for (int i = 0; i < points.size(); i++) {
             paint.setColor(Color.BLACK);
-            canvas.drawCircle(point[0], point[1], 14f, paint);
+            canvas.drawCircle(xs[i], ys[i], 14f, paint);
             paint.setColor(Color.WHITE);
-            canvas.drawCircle(point[0], point[1], 7f, paint);
+            canvas.drawCircle(xs[i], ys[i], 7f, paint);
+        }
+    }
+
+    /**
+     * Fills in every cell of the exact diagram, recomputing it first if the sites changed.
+     * @param canvas   The Canvas to draw on.
+     */
+    private void drawPolygons(Canvas canvas) {
+        if (polygonsDirty) {
+            polygons.compute(points, 0, 0, getWidth(), getHeight());
+            polygonsDirty = false;
+        }
+
+        float[] vertices = polygons.getVertices();
+        for (int i = 0; i < polygons.getCellCount(); i++) {
+            int start = polygons.getCellStart(i);
+            int end = polygons.getCellEnd(i);
+            if (end - start < 3) {
+                continue;
+            }
+
+            cellPath.rewind();
+            cellPath.moveTo(vertices[start * 2], vertices[start * 2 + 1]);
+            for (int v = start + 1; v < end; v++) {
+                cellPath.lineTo(vertices[v * 2], vertices[v * 2 + 1]);
+            }
+            cellPath.close();
+            paint.setColor(points.getColor(i));
+            canvas.drawPath(cellPath, paint);
         }
     }
 
+    @Override
+    public BackgroundResults getBackgroundResults() {
+        return backgroundResults;
+    }
+
+    @Override
+    public long getRetainedBytes() {
+        long bytes = raster == null ? 0 : raster.getRetainedBytes();
+        if (bitmap != null) {
+            bytes += bitmap.getByteCount();
+        }
+        return bytes;
+    }
+
+    @Override
+    public void release() {
+        // Bumping the generation throws away any render in flight and ends relaxing after the current step.
+        renderGeneration++;
+        markDelaunayDirty();
+        raster = null;
+        floodErrorSites = null;
+        if (bitmap != null) {
+            bitmap.recycle();
+            bitmap = null;
+        }
+    }
+
+    @Override
+    public CharSequence[] getRenderModeNames() {
+        return renderModeNames;
+    }
+
+    @Override
+    public int getRenderMode() {
+        return renderMode;
+    }
+
+    @Override
+    public void setRenderMode(int renderMode) {
+        this.renderMode = renderMode;
+        if (renderMode != RENDER_EXACT && getWidth() > 0) {
+            // Render the raster again so the raster modes can be timed against each other.
+            startFullRender();
+        }
+        invalidate();
+    }
+
+    /**
+     * Moves a site, repainting only the cells around where it was and where it is now.
+     */
+    private void moveSite(int site, float x, float y) {
+        float oldX = points.getX(site);
+        float oldY = points.getY(site);
+        points.set(site, x, y);
+        sites.moved(site, oldX, oldY);
+        if (raster != null) {
+            raster.moveSite(sites, site, oldX, oldY);
+        }
+        siteEdits++;
+        polygonsDirty = true;
+        markDelaunayDirty();
+        invalidate();
+    }
+
+    /**
+     * Deletes a site. The last site takes its number, so the others keep theirs.
+     */
+    private void removeSite(int site) {
+        float oldX = points.getX(site);
+        float oldY = points.getY(site);
+        int lastSite = points.remove(site);
+        sites.removed(site, oldX, oldY);
+        if (raster != null) {
+            raster.removeSite(sites, site, oldX, oldY, lastSite);
+        }
+        siteEdits++;
+        polygonsDirty = true;
+        markDelaunayDirty();
+        invalidate();
+    }
+
+    /**
+     * Finds the site close enough to a touch to grab it.
+     * @return The site, or -1 if none is within HIT_RADIUS.
+     */
+    private int siteAt(float x, float y) {
+        int site = sites.nearest(x, y);
+        if (site == -1) {
+            return -1;
+        }
+        float dx = points.getX(site) - x;
+        float dy = points.getY(site) - y;
+        return dx * dx + dy * dy <= HIT_RADIUS * HIT_RADIUS ? site : -1;
+    }
+
     @Override
     public boolean onTouch(View view, MotionEvent event) {
         // React to the touch event: down, move, cancel or up.
         switch (event.getAction()) {
             case MotionEvent.ACTION_DOWN:
+                // A touch that starts on a site can drag it, or delete it if held still.
+                downX = event.getX();
+                downY = event.getY();
+                dragging = false;
+                touchUsed = false;
+                grabbedSite = siteAt(downX, downY);
+                if (grabbedSite != -1) {
+                    postDelayed(deleteGrabbedSite, ViewConfiguration.getLongPressTimeout());
+                }
+                break;
             case MotionEvent.ACTION_MOVE:
-                // Do nothing.
+                if (grabbedSite != -1) {
+                    if (!dragging && Math.hypot(event.getX() - downX, event.getY() - downY) > touchSlop) {
+                        dragging = true;
+                        touchUsed = true;
+                        removeCallbacks(deleteGrabbedSite);
+                    }
+                    if (dragging) {
+                        moveSite(grabbedSite, event.getX(), event.getY());
+                    }
+                }
                 break;
             case MotionEvent.ACTION_CANCEL:
             case MotionEvent.ACTION_UP:
-                points.add(new float[]{event.getX(), event.getY()});
-                colors.add(Color.rgb(rdm.nextInt(255), rdm.nextInt(255), rdm.nextInt(255)));
+                removeCallbacks(deleteGrabbedSite);
+                grabbedSite = -1;
+                if (dragging) {
+                    // Redraw so the triangulation is rebuilt around where the site was dropped.
+                    dragging = false;
+                    invalidate();
+                }
+                if (touchUsed) {
+                    // The touch moved or deleted a site, so it doesn't add one.
+                    break;
+                }
+
+                int site = points.add(event.getX(), event.getY(), Color.rgb(rdm.nextInt(255), rdm.nextInt(255), rdm.nextInt(255)));
+                sites.update();
+
+                // Only the cells the new site takes over need to be recolored.
+                if (raster != null) {
+                    raster.addSite(points, site);
+                }
+                polygonsDirty = true;
+                if (!delaunayDirty) {
+                    delaunay.add(event.getX(), event.getY());
+                }
 
                 invalidate();
                 break;
@@ -0,0 +1,63 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How long it takes to turn BezierView's starting curve into lines the way the view does, with
+ * BezierCurve.flatten(), and by evaluating as many evenly spaced points as that made.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BezierBenchmark {
+
+    @Param({"0.25", "1.0"})
+    public float tolerance;
+
+    @Param({"720x1280", "1440x3040"})
+    public String screen;
+
+    private final float[] controls = new float[8];
+    private final float[] work = new float[8];
+    private final float[] point = new float[2];
+    private BezierCurve curve;
+    private int segments;
+    private float[] evenly;
+
+    @Setup
+    public void setUp() {
+        // The square BezierView starts with.
+        float width = Screens.width(screen);
+        float height = Screens.height(screen);
+        float[] start = {width / 3, height / 3, 2 * width / 3, height / 3, 2 * width / 3, 2 * height / 3, width / 3, 2 * height / 3};
+        System.arraycopy(start, 0, controls, 0, 8);
+        curve = new BezierCurve(tolerance);
+        curve.flatten(controls, 4);
+        segments = curve.getSegmentCount();
+        evenly = new float[2 * (segments + 1)];
+    }
+
+    @Benchmark
+    public int flatten() {
+        return curve.flatten(controls, 4);
+    }
+
+    @Benchmark
+    public float[] evaluateEachPoint() {
+        for (int i = 0; i <= segments; i++) {
+            BezierCurve.evaluate(controls, 4, (float)i / segments, work, point);
+            evenly[2 * i] = point[0];
+            evenly[2 * i + 1] = point[1];
+        }
+        return evenly;
+    }
+}
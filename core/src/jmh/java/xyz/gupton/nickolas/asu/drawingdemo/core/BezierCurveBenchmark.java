@@ -0,0 +1,54 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How long BezierCurve takes to flatten curves of different degrees to different tolerances.
+ * The number of lines each flatten produced is in the result, so flatness can be traded against speed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BezierCurveBenchmark {
+
+    @Param({"3", "8", "20"})
+    public int degree;
+
+    @Param({"0.25", "1.0"})
+    public float tolerance;
+
+    @Param({"720x1280", "1440x3040"})
+    public String screen;
+
+    private float[] controls;
+    private BezierCurve curve;
+
+    @Setup
+    public void setUp() {
+        int width = Screens.width(screen);
+        int height = Screens.height(screen);
+        Random random = new Random(42);
+        controls = new float[2 * (degree + 1)];
+        for (int i = 0; i <= degree; i++) {
+            controls[2 * i] = random.nextFloat() * width;
+            controls[2 * i + 1] = random.nextFloat() * height;
+        }
+        curve = new BezierCurve(tolerance);
+    }
+
+    @Benchmark
+    public int flatten() {
+        curve.flatten(controls, degree + 1);
+        return curve.getSegmentCount();
+    }
+}
@@ -0,0 +1,57 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How long one drag step takes in BezierView's spline modes: move a point in the middle of the spline
+ * and re-flatten what changed. This should stay flat as the spline grows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BezierSplineBenchmark {
+
+    @Param({"16", "256", "4096"})
+    public int pointCount;
+
+    @Param({"1", "2"})
+    public int continuity;
+
+    @Param({"720x1280", "1440x3040"})
+    public String screen;
+
+    private BezierSpline spline;
+    private int dragged;
+    private float baseX;
+    private float baseY;
+    private int step;
+
+    @Setup
+    public void setUp() {
+        PointStore points = Screens.randomSites(pointCount, Screens.width(screen), Screens.height(screen));
+        spline = new BezierSpline(continuity, 0.25f);
+        for (int i = 0; i < pointCount; i++) {
+            spline.addPoint(points.getX(i), points.getY(i));
+        }
+        spline.refresh();
+        dragged = spline.getPointCount() / 2;
+        baseX = spline.getX(dragged);
+        baseY = spline.getY(dragged);
+    }
+
+    @Benchmark
+    public int dragStep() {
+        step = (step + 1) & 63;
+        spline.movePoint(dragged, baseX + step, baseY - step);
+        return spline.refresh();
+    }
+}
@@ -0,0 +1,80 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How long each site takes to add to the Delaunay triangulation, with the sites scattered at random
+ * and with them tapped out in rows, where every walk starts right next to where it ends, and with the
+ * scattered sites put in order by addAll().
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DelaunayBenchmark {
+
+    private static final int SITES = 100000;
+
+    @Param({"1440x3040"})
+    public String screen;
+
+    private int width;
+    private int height;
+    private PointStore scattered;
+    private PointStore rows;
+    private DelaunayTriangulation triangulation;
+
+    @Setup
+    public void setUp() {
+        width = Screens.width(screen);
+        height = Screens.height(screen);
+        scattered = Screens.randomSites(SITES, width, height);
+
+        // A little jitter keeps the rows from being exactly in line.
+        PointStore random = Screens.randomSites(SITES, 1, 1);
+        int across = (int)Math.sqrt(SITES * (double)width / height);
+        rows = new PointStore(SITES);
+        for (int i = 0; i < SITES; i++) {
+            float x = (i % across + random.getX(i)) * width / across;
+            float y = (i / across + random.getY(i)) * height / (SITES / across + 1);
+            rows.add(x, y, 0);
+        }
+        triangulation = new DelaunayTriangulation(width, height);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SITES)
+    public int addScattered() {
+        return addInOrder(scattered);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SITES)
+    public int addScatteredSorted() {
+        triangulation.reset(width, height);
+        return triangulation.addAll(scattered);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SITES)
+    public int addRows() {
+        return addInOrder(rows);
+    }
+
+    private int addInOrder(PointStore points) {
+        triangulation.reset(width, height);
+        for (int i = 0; i < points.size(); i++) {
+            triangulation.add(points.getX(i), points.getY(i));
+        }
+        return triangulation.getSkippedCount();
+    }
+}
@@ -0,0 +1,71 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How long FractalGeometry takes to produce every segment of a fractal swiped across most of the screen,
+ * at full detail and at adaptive detail. The segments go to a Blackhole instead of a Canvas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FractalBenchmark {
+
+    @Param({"4", "8", "12"})
+    public int depth;
+
+    @Param({"Paperfolding", "Heighway dragon"})
+    public String rule;
+
+    @Param({"720x1280", "1440x3040"})
+    public String screen;
+
+    private final FractalGeometry geometry = new FractalGeometry();
+    private FractalRule fractalRule;
+    private int width;
+    private int height;
+
+    @Setup
+    public void setUp() {
+        for (FractalRule r : FractalRule.RULES) {
+            if (r.getName().equals(rule)) {
+                fractalRule = r;
+            }
+        }
+        width = Screens.width(screen);
+        height = Screens.height(screen);
+    }
+
+    @Benchmark
+    public long fullDetail(final Blackhole blackhole) {
+        geometry.emit(fractalRule, depth, width * 0.1f, height * 0.5f, width * 0.9f, height * 0.5f, sink(blackhole));
+        return geometry.getEmittedCount();
+    }
+
+    @Benchmark
+    public long adaptiveDetail(final Blackhole blackhole) {
+        geometry.emitAdaptive(fractalRule, depth, width * 0.1f, height * 0.5f, width * 0.9f, height * 0.5f,
+                0, 0, width, height, 1.0f, sink(blackhole));
+        return geometry.getEmittedCount();
+    }
+
+    private static FractalGeometry.SegmentSink sink(final Blackhole blackhole) {
+        return new FractalGeometry.SegmentSink() {
+            @Override
+            public void segments(float[] lines, int count) {
+                blackhole.consume(lines);
+                blackhole.consume(count);
+            }
+        };
+    }
+}
@@ -0,0 +1,91 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+/**
+ * Does what FractalView does for each swipe, without a View: every swipe draws the fractal one depth
+ * deeper, from depth 1 up, in adaptive detail. FractalView renders on a background thread; here the
+ * render happens in the frame after the swipe ends, so its time shows up as drawing time.
+ */
+final class FractalSwipeTarget implements GestureReplayer.Target {
+
+    /**
+     * MAX_DEPTH | int: The deepest FractalView goes before starting over at depth 1.
+     */
+    private static final int MAX_DEPTH = 17;
+
+    /**
+     * PAD | float: How far off screen lines are still drawn, FractalView's stroke width.
+     */
+    private static final float PAD = 3.0f;
+
+    private final FractalGeometry geometry = new FractalGeometry();
+    private final FractalGeometry.SegmentSink sink = new FractalGeometry.SegmentSink() {
+        @Override
+        public void segments(float[] lines, int count) {
+            segments += count / 4;
+        }
+    };
+    private final int width;
+    private final int height;
+
+    private float fromX, fromY, toX, toY;
+    private int depth = 0;
+    private boolean renderDue = false;
+
+    /**
+     * segments | long: How many segments have been drawn, so the rendering can't be skipped as unused.
+     */
+    private long segments = 0;
+
+    FractalSwipeTarget(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    @Override
+    public void onTouchBatch(TouchBatch batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            switch (batch.getAction(i)) {
+                case TouchBatch.DOWN:
+                    renderDue = false;
+                    fromX = batch.getX(i);
+                    fromY = batch.getY(i);
+                    if (depth > MAX_DEPTH) {
+                        depth = 0;
+                    }
+                    break;
+                case TouchBatch.MOVE:
+                    toX = batch.getX(i);
+                    toY = batch.getY(i);
+                    break;
+                default:
+                    toX = batch.getX(i);
+                    toY = batch.getY(i);
+                    depth += 1;
+                    renderDue = true;
+                    break;
+            }
+        }
+    }
+
+    @Override
+    public void drawFrame() {
+        if (!renderDue) {
+            return;
+        }
+        renderDue = false;
+        // FractalView shows each depth as it finishes, so it draws all of the shallower ones first.
+        for (int d = 1; d <= depth; d++) {
+            geometry.emitAdaptive(FractalRule.PAPERFOLDING, d, fromX, fromY, toX, toY,
+                    -PAD, -PAD, width + PAD, height + PAD, 1.0f, sink);
+        }
+    }
+
+    @Override
+    public void finish() {
+        drawFrame();
+    }
+
+    long getSegmentCount() {
+        return segments;
+    }
+}
@@ -0,0 +1,106 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How long BezierView's spline editing takes over a whole recorded drag, replayed through
+ * GestureReplayer without a View: grab the nearest point, move it with every sample, and
+ * re-flatten what changed once per frame.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GestureReplayBenchmark {
+
+    @Param({"16", "256"})
+    public int pointCount;
+
+    @Param({"1", "2"})
+    public int continuity;
+
+    @Param({"720x1280", "1440x3040"})
+    public String screen;
+
+    private GestureTrace trace;
+    private GestureReplayer replayer;
+    private BezierSpline spline;
+    private HandleIndex handles;
+    private GestureReplayer.Target target;
+
+    @Setup
+    public void setUp() throws IOException {
+        int width = Screens.width(screen);
+        int height = Screens.height(screen);
+        PointStore points = Screens.randomSites(pointCount, width, height);
+        spline = new BezierSpline(continuity, 0.25f);
+        handles = new HandleIndex(50f);
+        for (int i = 0; i < pointCount; i++) {
+            spline.addPoint(points.getX(i), points.getY(i));
+        }
+        for (int i = 0; i < spline.getPointCount(); i++) {
+            handles.set(i, spline.getX(i), spline.getY(i));
+        }
+        spline.refresh();
+
+        // Drag the middle point around a circle, and load the trace back from its saved form like a recording.
+        int middle = spline.getPointCount() / 2;
+        GestureTrace drag = GestureTrace.drag(spline.getX(middle), spline.getY(middle), Math.min(width, height) / 4f, 2000);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        drag.write(bytes);
+        trace = GestureTrace.read(new ByteArrayInputStream(bytes.toByteArray()));
+
+        replayer = new GestureReplayer(60);
+        target = new GestureReplayer.Target() {
+            private int selected = -1;
+
+            @Override
+            public void onTouchBatch(TouchBatch batch) {
+                for (int i = 0; i < batch.size(); i++) {
+                    switch (batch.getAction(i)) {
+                        case TouchBatch.DOWN:
+                            selected = handles.nearest(batch.getX(i), batch.getY(i), 50f);
+                            break;
+                        case TouchBatch.MOVE:
+                            if (selected != -1) {
+                                spline.movePoint(selected, batch.getX(i), batch.getY(i));
+                                for (int p = Math.max(0, selected - 2); p <= Math.min(selected + 2, spline.getPointCount() - 1); p++) {
+                                    handles.set(p, spline.getX(p), spline.getY(p));
+                                }
+                            }
+                            break;
+                        default:
+                            selected = -1;
+                            break;
+                    }
+                }
+            }
+
+            @Override
+            public void drawFrame() {
+                spline.refresh();
+            }
+
+            @Override
+            public void finish() {
+                // Everything was done on this thread.
+            }
+        };
+    }
+
+    @Benchmark
+    public long replayDrag() {
+        return replayer.replay(trace, target).getFrames();
+    }
+}
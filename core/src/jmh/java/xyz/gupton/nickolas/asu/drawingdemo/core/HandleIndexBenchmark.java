@@ -0,0 +1,72 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How long it takes to find the handle under a touch, and to move a dragged handle.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HandleIndexBenchmark {
+
+    private static final int TOUCHES = 1024;
+    private static final float RADIUS = 50f;
+
+    @Param({"16", "256", "4096"})
+    public int handleCount;
+
+    @Param({"720x1280", "1440x3040"})
+    public String screen;
+
+    private final HandleIndex handles = new HandleIndex(RADIUS);
+    private float[] touches;
+
+    @Setup
+    public void setUp() {
+        int width = Screens.width(screen);
+        int height = Screens.height(screen);
+        PointStore points = Screens.randomSites(handleCount, width, height);
+        handles.clear();
+        for (int i = 0; i < handleCount; i++) {
+            handles.set(i, points.getX(i), points.getY(i));
+        }
+
+        Random random = new Random(7);
+        touches = new float[2 * TOUCHES];
+        for (int i = 0; i < TOUCHES; i++) {
+            touches[2 * i] = random.nextFloat() * width;
+            touches[2 * i + 1] = random.nextFloat() * height;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TOUCHES)
+    public int nearest() {
+        int sum = 0;
+        for (int i = 0; i < touches.length; i += 2) {
+            sum += handles.nearest(touches[i], touches[i + 1], RADIUS);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TOUCHES)
+    public int drag() {
+        for (int i = 0; i < touches.length; i += 2) {
+            handles.set(0, touches[i], touches[i + 1]);
+        }
+        return handles.size();
+    }
+}
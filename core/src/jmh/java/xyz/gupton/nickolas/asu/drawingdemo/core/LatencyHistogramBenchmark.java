@@ -0,0 +1,68 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How much timing a draw or touch costs: recording into a LatencyHistogram from one thread,
+ * and from a UI thread and a render thread at once while the overlay reads percentiles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LatencyHistogramBenchmark {
+
+    private static final int SAMPLES = 1 << 12;
+
+    private LatencyHistogram histogram;
+    private long[] durations;
+
+    @Setup
+    public void setUp() {
+        // Frame-like durations, mostly a few milliseconds with a long tail.
+        Random random = new Random(42);
+        durations = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            durations[i] = (long)Math.exp(random.nextGaussian() + 15);
+        }
+        histogram = new LatencyHistogram();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public long record() {
+        for (int i = 0; i < SAMPLES; i++) {
+            histogram.record(durations[i]);
+        }
+        return histogram.getCount();
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(2)
+    @OperationsPerInvocation(SAMPLES)
+    public long recordShared() {
+        for (int i = 0; i < SAMPLES; i++) {
+            histogram.record(durations[i]);
+        }
+        return histogram.getCount();
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public long readPercentile() {
+        return histogram.getPercentile(99);
+    }
+}
@@ -0,0 +1,76 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How long one step of Lloyd's algorithm takes: the pass that finds the centroids on one thread and
+ * on every core, and a whole step of the relax mode, centroids plus rendering the moved sites again.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LloydBenchmark {
+
+    @Param({"1000"})
+    public int siteCount;
+
+    @Param({"720x1280", "1440x3040"})
+    public String screen;
+
+    private int width;
+    private int height;
+    private PointStore points;
+    private NearestSiteIndex sites;
+    private VoronoiRaster raster;
+    private LloydRelaxation relaxation;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        width = Screens.width(screen);
+        height = Screens.height(screen);
+        relaxation = new LloydRelaxation();
+        raster = new VoronoiRaster();
+        raster.resize(width, height);
+        raster.setSubdivide(true);
+    }
+
+    /**
+     * Starts every iteration from the same scattered sites, since each step moves them.
+     */
+    @Setup(Level.Iteration)
+    public void scatter() {
+        points = Screens.randomSites(siteCount, width, height);
+        sites = new GridSiteIndex(points);
+        sites.setBounds(width, height);
+        raster.render(sites, null);
+    }
+
+    @Benchmark
+    public float centroidsOneThread() {
+        return relaxation.relax(raster, points, null);
+    }
+
+    @Benchmark
+    public float centroidsAllCores() {
+        return relaxation.relax(raster, points, ForkJoinPool.commonPool());
+    }
+
+    @Benchmark
+    public int[] wholeStep() {
+        relaxation.relax(raster, points, ForkJoinPool.commonPool());
+        sites.setBounds(width, height);
+        raster.render(sites, ForkJoinPool.commonPool());
+        return raster.getOwners();
+    }
+}
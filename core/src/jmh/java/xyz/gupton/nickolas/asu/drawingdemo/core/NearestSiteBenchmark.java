@@ -0,0 +1,63 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How fast each NearestSiteIndex answers the queries VoronoiView makes for every cell and every tap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class NearestSiteBenchmark {
+
+    private static final int QUERIES = 1024;
+
+    @Param({"16", "256", "4096"})
+    public int siteCount;
+
+    @Param({"720x1280", "1440x3040"})
+    public String screen;
+
+    @Param({"linear", "grid"})
+    public String index;
+
+    private NearestSiteIndex sites;
+    private float[] queries;
+
+    @Setup
+    public void setUp() {
+        int width = Screens.width(screen);
+        int height = Screens.height(screen);
+        PointStore points = Screens.randomSites(siteCount, width, height);
+        sites = "grid".equals(index) ? new GridSiteIndex(points) : new LinearSiteIndex(points);
+        sites.setBounds(width, height);
+
+        Random random = new Random(7);
+        queries = new float[2 * QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[2 * i] = random.nextFloat() * width;
+            queries[2 * i + 1] = random.nextFloat() * height;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public int nearest() {
+        int sum = 0;
+        for (int i = 0; i < queries.length; i += 2) {
+            sum += sites.nearest(queries[i], queries[i + 1]);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,32 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+import java.util.Random;
+
+/**
+ * Shared setup for the benchmarks: screen sizes given as "WIDTHxHEIGHT" parameters and random sites.
+ */
+final class Screens {
+
+    private Screens() {
+    }
+
+    static int width(String screen) {
+        return Integer.parseInt(screen.substring(0, screen.indexOf('x')));
+    }
+
+    static int height(String screen) {
+        return Integer.parseInt(screen.substring(screen.indexOf('x') + 1));
+    }
+
+    /**
+     * Scatters sites evenly over a screen. The seed is fixed so every run measures the same layout.
+     */
+    static PointStore randomSites(int count, int width, int height) {
+        Random random = new Random(42);
+        PointStore points = new PointStore(count);
+        for (int i = 0; i < count; i++) {
+            points.add(random.nextFloat() * width, random.nextFloat() * height, random.nextInt() | 0xFF000000);
+        }
+        return points;
+    }
+}
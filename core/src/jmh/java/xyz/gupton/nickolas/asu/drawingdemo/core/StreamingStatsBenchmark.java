@@ -0,0 +1,74 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How long AveragingView's statistics take per point, fed a million synthetic taps
+ * one at a time or in batches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StreamingStatsBenchmark {
+
+    private static final int SAMPLES = 1 << 20;
+
+    @Param({"64", "4096"})
+    public int batchSize;
+
+    @Param({"720x1280", "1440x3040"})
+    public String screen;
+
+    @Param({"0", "0.25"})
+    public double decay;
+
+    private StreamingStats stats;
+    private float[] xs;
+    private float[] ys;
+
+    @Setup
+    public void setUp() {
+        // Taps clustered around the middle of the screen, like a user aiming at one spot.
+        int width = Screens.width(screen);
+        int height = Screens.height(screen);
+        Random random = new Random(42);
+        xs = new float[SAMPLES];
+        ys = new float[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            xs[i] = (float)(width / 2.0 + random.nextGaussian() * width / 8);
+            ys[i] = (float)(height / 2.0 + random.nextGaussian() * height / 8);
+        }
+        stats = new StreamingStats(decay);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public double addEach() {
+        stats.clear();
+        for (int i = 0; i < SAMPLES; i++) {
+            stats.add(xs[i], ys[i]);
+        }
+        return stats.getCovariance();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public double addBatches() {
+        stats.clear();
+        for (int i = 0; i < SAMPLES; i += batchSize) {
+            stats.addAll(xs, ys, i, Math.min(batchSize, SAMPLES - i));
+        }
+        return stats.getCovariance();
+    }
+}
@@ -0,0 +1,52 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How long the touch pipeline takes per sample to collect a frame's worth of touches and drain
+ * them into a batch, for a 60Hz panel (a few samples a frame) up to a 240Hz one behind a dropped frame.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TouchRingBufferBenchmark {
+
+    private static final int FRAMES = 1024;
+
+    @Param({"2", "8", "32"})
+    public int samplesPerFrame;
+
+    private TouchRingBuffer samples;
+    private TouchBatch batch;
+
+    @Setup
+    public void setUp() {
+        samples = new TouchRingBuffer(64);
+        batch = new TouchBatch();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FRAMES)
+    public float pushAndDrain() {
+        float sum = 0;
+        long time = 0;
+        for (int frame = 0; frame < FRAMES; frame++) {
+            for (int i = 0; i < samplesPerFrame; i++) {
+                samples.push(TouchBatch.MOVE, i, frame, time++);
+            }
+            samples.drainTo(batch);
+            sum += batch.getX(batch.size() - 1);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,99 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How long a whole Voronoi diagram takes to build, as a raster on one thread, as a raster on
+ * every core, as a raster filled by quadtree subdivision, by jump flooding, and as exact polygons.
+ * VoronoiRasterTest checks that the subdivided raster is exact, and JumpFloodTest that jump flooding
+ * gets few enough cells wrong.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class VoronoiBenchmark {
+
+    @Param({"16", "256", "4096", "16384"})
+    public int siteCount;
+
+    @Param({"720x1280", "1440x3040"})
+    public String screen;
+
+    private int width;
+    private int height;
+    private PointStore points;
+    private NearestSiteIndex sites;
+    private VoronoiRaster raster;
+    private VoronoiRaster subdivided;
+    private FortuneVoronoi polygons;
+    private JumpFlood flood;
+
+    @Setup
+    public void setUp() {
+        width = Screens.width(screen);
+        height = Screens.height(screen);
+        points = Screens.randomSites(siteCount, width, height);
+        sites = new GridSiteIndex(points);
+        sites.setBounds(width, height);
+        raster = new VoronoiRaster();
+        raster.resize(width, height);
+        subdivided = new VoronoiRaster();
+        subdivided.resize(width, height);
+        subdivided.setSubdivide(true);
+        polygons = new FortuneVoronoi();
+        flood = new JumpFlood();
+        flood.resize(raster.getCols(), raster.getRows());
+    }
+
+    @Benchmark
+    public int[] rasterOneThread() {
+        raster.render(sites, null);
+        return raster.getPixels();
+    }
+
+    @Benchmark
+    public int[] rasterAllCores() {
+        raster.render(sites, ForkJoinPool.commonPool());
+        return raster.getPixels();
+    }
+
+    @Benchmark
+    public int[] rasterSubdividedOneThread() {
+        subdivided.render(sites, null);
+        return subdivided.getPixels();
+    }
+
+    @Benchmark
+    public int[] rasterSubdividedAllCores() {
+        subdivided.render(sites, ForkJoinPool.commonPool());
+        return subdivided.getPixels();
+    }
+
+    @Benchmark
+    public int[] jumpFloodOneThread() {
+        flood.compute(points, null);
+        return flood.getOwners();
+    }
+
+    @Benchmark
+    public int[] jumpFloodAllCores() {
+        flood.compute(points, ForkJoinPool.commonPool());
+        return flood.getOwners();
+    }
+
+    @Benchmark
+    public float[] exactPolygons() {
+        polygons.compute(points, 0, 0, width, height);
+        return polygons.getVertices();
+    }
+}
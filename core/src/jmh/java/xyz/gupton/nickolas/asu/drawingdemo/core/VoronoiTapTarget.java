@@ -0,0 +1,83 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+import java.util.Random;
+
+/**
+ * Does what VoronoiView does for each tap, without a View: look for a site under the finger when it
+ * goes down, and when it comes up add a site, recoloring only the cells it takes over. Each frame copies
+ * the changed cells out, the way VoronoiView copies them into its bitmap.
+ */
+final class VoronoiTapTarget implements GestureReplayer.Target {
+
+    /**
+     * HIT_RADIUS | float: How close a touch has to be to a site to grab it, as in VoronoiView.
+     */
+    private static final float HIT_RADIUS = 50f;
+
+    private final Random random = new Random(42);
+    private final PointStore points = new PointStore();
+    private final NearestSiteIndex sites = new GridSiteIndex(points);
+    private final VoronoiRaster raster = new VoronoiRaster();
+
+    /**
+     * bitmap | int[]: Stands in for VoronoiView's bitmap, one pixel per cell.
+     */
+    private final int[] bitmap;
+
+    /**
+     * grabbed | int: How many touches started on a site.
+     */
+    private int grabbed = 0;
+
+    VoronoiTapTarget(int width, int height) {
+        sites.setBounds(width, height);
+        raster.resize(width, height);
+        raster.render(sites, null);
+        bitmap = new int[raster.getCols() * raster.getRows()];
+    }
+
+    @Override
+    public void onTouchBatch(TouchBatch batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            float x = batch.getX(i);
+            float y = batch.getY(i);
+            if (batch.getAction(i) == TouchBatch.DOWN) {
+                int site = sites.nearest(x, y);
+                if (site != -1 && Math.hypot(points.getX(site) - x, points.getY(site) - y) <= HIT_RADIUS) {
+                    grabbed++;
+                }
+            } else if (batch.getAction(i) == TouchBatch.UP) {
+                int site = points.add(x, y, random.nextInt() | 0xFF000000);
+                sites.update();
+                raster.addSite(points, site);
+            }
+        }
+    }
+
+    @Override
+    public void drawFrame() {
+        if (!raster.isDirty()) {
+            return;
+        }
+        int cols = raster.getCols();
+        int width = raster.getDirtyRight() - raster.getDirtyLeft();
+        for (int r = raster.getDirtyTop(); r < raster.getDirtyBottom(); r++) {
+            int from = r * cols + raster.getDirtyLeft();
+            System.arraycopy(raster.getPixels(), from, bitmap, from, width);
+        }
+        raster.clearDirty();
+    }
+
+    @Override
+    public void finish() {
+        // Taps are handled right away, so there's nothing left to do.
+    }
+
+    int getSiteCount() {
+        return points.size();
+    }
+
+    int getGrabbedCount() {
+        return grabbed;
+    }
+}
@@ -0,0 +1,56 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How long the app's standard replay workloads take on a plain JVM: 500 taps into the Voronoi diagram,
+ * and 17 swipes drawing the fractal one depth deeper each time. They are the same traces MainActivity
+ * replays into the Views, played into targets that do the Views' work with the core classes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class WorkloadReplayBenchmark {
+
+    @Param({"720x1280", "1440x3040"})
+    public String screen;
+
+    private int width;
+    private int height;
+    private GestureTrace taps;
+    private GestureTrace swipes;
+    private GestureReplayer replayer;
+
+    @Setup
+    public void setUp() {
+        width = Screens.width(screen);
+        height = Screens.height(screen);
+        taps = GestureTrace.taps(500, width, height, 42);
+        swipes = GestureTrace.swipes(17, 60, width, height, 42);
+        replayer = new GestureReplayer(60);
+    }
+
+    @Benchmark
+    public int voronoiTaps() {
+        // A new target each time, so every run starts from an empty diagram.
+        VoronoiTapTarget target = new VoronoiTapTarget(width, height);
+        replayer.replay(taps, target);
+        return target.getSiteCount() + target.getGrabbedCount();
+    }
+
+    @Benchmark
+    public long fractalSwipes() {
+        FractalSwipeTarget target = new FractalSwipeTarget(width, height);
+        replayer.replay(swipes, target);
+        return target.getSegmentCount();
+    }
+}
@@ -0,0 +1,184 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+import java.util.Arrays;
+
+/**
+ * Evaluates and flattens Bezier curves with any number of control points.
+ * The control points are kept in a float[] as x0, y0, x1, y1, and so on.
+ *
+ * Flattening splits the curve in half with de Casteljau's algorithm until every piece's control points
+ * lie within the tolerance of the line between its ends. Since a curve lies inside the hull of its
+ * control points, the polyline is then within the tolerance of the curve, and gently curving parts
+ * get far fewer lines than tight bends. The pieces waiting to be split are kept on a preallocated
+ * stack and the polyline goes into an array that is reused from one call to the next.
+ */
+public class BezierCurve {
+
+    /**
+     * MAX_SPLITS | int: How many times a piece may be halved, so a cusp can't make the polyline endless.
+     */
+    public static final int MAX_SPLITS = 16;
+
+    /**
+     * tolerance | float: How far in pixels the polyline may stray from the curve.
+     */
+    private float tolerance;
+
+    /**
+     * stack, stackSplits | float[], int[]: The pieces still to be flattened, each as count control points,
+     * and how many times each has been halved.
+     */
+    private float[] stack = new float[0];
+    private final int[] stackSplits = new int[MAX_SPLITS + 2];
+
+    /**
+     * work | float[]: Scratch space for de Casteljau's algorithm.
+     */
+    private float[] work = new float[0];
+
+    /**
+     * points | float[]: The polyline from the last flatten, as x, y pairs.
+     */
+    private float[] points = new float[64];
+    private int pointFloats = 0;
+
+    /**
+     * Sets up a new BezierCurve.
+     * @param tolerance   How far in pixels the polyline may stray from the curve.
+     */
+    public BezierCurve(float tolerance) {
+        setTolerance(tolerance);
+    }
+
+    public void setTolerance(float tolerance) {
+        if (!(tolerance > 0)) {
+            throw new IllegalArgumentException("The tolerance must be more than 0");
+        }
+        this.tolerance = tolerance;
+    }
+
+    public float getTolerance() {
+        return tolerance;
+    }
+
+    /**
+     * Works out one point of a curve with de Casteljau's algorithm.
+     * @param controls   The control points.
+     * @param count      The number of control points; the degree of the curve is one less.
+     * @param t          How far along the curve to go, from 0 to 1.
+     * @param work       Scratch space for at least 2 * count floats.
+     * @param out        Gets the point as x, y.
+     */
+    public static void evaluate(float[] controls, int count, float t, float[] work, float[] out) {
+        System.arraycopy(controls, 0, work, 0, 2 * count);
+        float s = 1 - t;
+        for (int level = count - 1; level > 0; level--) {
+            for (int i = 0; i < 2 * level; i++) {
+                work[i] = s * work[i] + t * work[i + 2];
+            }
+        }
+        out[0] = work[0];
+        out[1] = work[1];
+    }
+
+    /**
+     * Turns a curve into a polyline, within the tolerance of the curve.
+     * @param controls   The control points.
+     * @param count      The number of control points.
+     * @return The number of floats in getPoints() that make up the polyline.
+     */
+    public int flatten(float[] controls, int count) {
+        pointFloats = 0;
+        if (count <= 0) {
+            return 0;
+        }
+        int size = 2 * count;
+        if (stack.length < (MAX_SPLITS + 2) * size) {
+            stack = new float[(MAX_SPLITS + 2) * size];
+            work = new float[size];
+        }
+
+        addPoint(controls[0], controls[1]);
+        System.arraycopy(controls, 0, stack, 0, size);
+        stackSplits[0] = 0;
+        int pieces = 1;
+        float toleranceSquared = tolerance * tolerance;
+        while (pieces > 0) {
+            int top = (pieces - 1) * size;
+            int splits = stackSplits[pieces - 1];
+            if (splits >= MAX_SPLITS || isFlat(stack, top, count, toleranceSquared)) {
+                // Close enough to a line, so the line to its last point stands in for it.
+                addPoint(stack[top + size - 2], stack[top + size - 1]);
+                pieces--;
+                continue;
+            }
+
+            // Halve the piece. The right half replaces it and the left half goes on top, so it is done first.
+            System.arraycopy(stack, top, work, 0, size);
+            int left = top + size;
+            stack[left] = work[0];
+            stack[left + 1] = work[1];
+            for (int level = count - 1; level > 0; level--) {
+                for (int i = 0; i < 2 * level; i++) {
+                    work[i] = (work[i] + work[i + 2]) * 0.5f;
+                }
+                int r = count - 1 - level + 1;
+                stack[left + 2 * r] = work[0];
+                stack[left + 2 * r + 1] = work[1];
+                stack[top + 2 * level - 2] = work[2 * level - 2];
+                stack[top + 2 * level - 1] = work[2 * level - 1];
+            }
+            stackSplits[pieces - 1] = splits + 1;
+            stackSplits[pieces] = splits + 1;
+            pieces++;
+        }
+        return pointFloats;
+    }
+
+    /**
+     * @return The polyline from the last flatten, as x, y pairs. Only valid until the next flatten.
+     */
+    public float[] getPoints() {
+        return points;
+    }
+
+    /**
+     * @return The number of lines in the polyline from the last flatten.
+     */
+    public int getSegmentCount() {
+        return Math.max(0, pointFloats / 2 - 1);
+    }
+
+    /**
+     * Checks whether every inner control point of a piece lies within the tolerance of the line
+     * between its ends. Distances are to the line segment rather than the infinite line, so a piece
+     * that doubles back on itself isn't mistaken for flat.
+     */
+    private static boolean isFlat(float[] controls, int offset, int count, float toleranceSquared) {
+        float x0 = controls[offset];
+        float y0 = controls[offset + 1];
+        float dx = controls[offset + 2 * count - 2] - x0;
+        float dy = controls[offset + 2 * count - 1] - y0;
+        float lengthSquared = dx * dx + dy * dy;
+        for (int i = 1; i < count - 1; i++) {
+            float px = controls[offset + 2 * i] - x0;
+            float py = controls[offset + 2 * i + 1] - y0;
+            float t = lengthSquared > 0 ? (px * dx + py * dy) / lengthSquared : 0;
+            t = Math.max(0, Math.min(1, t));
+            float ex = px - t * dx;
+            float ey = py - t * dy;
+            if (ex * ex + ey * ey > toleranceSquared) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void addPoint(float x, float y) {
+        if (pointFloats + 2 > points.length) {
+            points = Arrays.copyOf(points, points.length * 2);
+        }
+        points[pointFloats++] = x;
+        points[pointFloats++] = y;
+    }
+}
@@ -0,0 +1,282 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+import java.util.Arrays;
+
+/**
+ * A spline made of cubic Bezier segments, each flattened on its own and cached until one of its
+ * control points moves. Moving a point only re-flattens the few segments it touches, however long
+ * the spline gets.
+ *
+ * With C1 continuity the points are the segments' own control points, x0, y0, x1, y1, ..., with
+ * every third point a joint shared by two segments. The two handles beside a joint are kept mirrored
+ * through it, so the curve's direction and speed don't jump there.
+ *
+ * With C2 continuity the points are the control points of a uniform cubic B-spline and every four
+ * points in a row make one segment, so the curvature doesn't jump either.
+ */
+public class BezierSpline {
+
+    /**
+     * The kinds of continuity a spline can keep at its joints.
+     */
+    public static final int C1 = 1;
+    public static final int C2 = 2;
+
+    /**
+     * continuity | int: C1 or C2.
+     */
+    private final int continuity;
+
+    /**
+     * curve | BezierCurve: Flattens one segment at a time.
+     */
+    private final BezierCurve curve;
+
+    /**
+     * points | float[]: The control points as x, y pairs.
+     */
+    private float[] points = new float[32];
+    private int pointCount = 0;
+
+    /**
+     * segmentLines | float[][]: Each segment's cached lines as x0, y0, x1, y1 groups, ready for Canvas.drawLines().
+     */
+    private float[][] segmentLines = new float[8][];
+
+    /**
+     * segmentFloats | int[]: How many floats of segmentLines each segment uses.
+     */
+    private int[] segmentFloats = new int[8];
+
+    /**
+     * dirty | boolean[]: Whether each segment has to be flattened again before it is drawn.
+     */
+    private boolean[] dirty = new boolean[8];
+
+    /**
+     * bezier | float[]: The four Bezier control points of the segment being flattened.
+     */
+    private final float[] bezier = new float[8];
+
+    /**
+     * Sets up a new, empty BezierSpline.
+     * @param continuity   C1 or C2.
+     * @param tolerance    How far in pixels the flattened lines may stray from the curve.
+     */
+    public BezierSpline(int continuity, float tolerance) {
+        if (continuity != C1 && continuity != C2) {
+            throw new IllegalArgumentException("Unknown continuity " + continuity);
+        }
+        this.continuity = continuity;
+        this.curve = new BezierCurve(tolerance);
+    }
+
+    public int getContinuity() {
+        return continuity;
+    }
+
+    public int getPointCount() {
+        return pointCount;
+    }
+
+    public float getX(int i) {
+        return points[2 * i];
+    }
+
+    public float getY(int i) {
+        return points[2 * i + 1];
+    }
+
+    /**
+     * @return The control points as x, y pairs. Must not be changed; use movePoint() instead.
+     */
+    public float[] getPoints() {
+        return points;
+    }
+
+    /**
+     * @return Whether the point is a joint, the start or end of a segment, rather than a handle.
+     *         Every point of a C2 spline counts as a joint.
+     */
+    public boolean isJoint(int i) {
+        return continuity == C2 || i % 3 == 0;
+    }
+
+    /**
+     * @return The number of cubic segments in the spline.
+     */
+    public int getSegmentCount() {
+        if (continuity == C1) {
+            return Math.max(0, (pointCount - 1) / 3);
+        }
+        return Math.max(0, pointCount - 3);
+    }
+
+    /**
+     * Extends the spline towards a point. A C1 spline gets a new segment ending there, with its first
+     * handle mirroring the last one; a C2 spline gets the point as its next control point.
+     */
+    public void addPoint(float x, float y) {
+        if (continuity == C1 && pointCount > 0) {
+            float lastX = points[2 * pointCount - 2];
+            float lastY = points[2 * pointCount - 1];
+            if (pointCount >= 4) {
+                append(2 * lastX - points[2 * pointCount - 4], 2 * lastY - points[2 * pointCount - 3]);
+            } else {
+                append(lastX + (x - lastX) / 3, lastY + (y - lastY) / 3);
+            }
+            append(lastX + 2 * (x - lastX) / 3, lastY + 2 * (y - lastY) / 3);
+        }
+        append(x, y);
+        markDirty(pointCount - 1);
+    }
+
+    /**
+     * Moves a control point, along with whatever has to move with it to keep the continuity,
+     * and marks the segments it touches to be flattened again.
+     */
+    public void movePoint(int i, float x, float y) {
+        if (continuity == C2) {
+            setPoint(i, x, y);
+            return;
+        }
+
+        if (i % 3 == 0) {
+            // A joint carries its handles along with it.
+            float dx = x - points[2 * i];
+            float dy = y - points[2 * i + 1];
+            setPoint(i, x, y);
+            if (i > 0) {
+                setPoint(i - 1, points[2 * i - 2] + dx, points[2 * i - 1] + dy);
+            }
+            if (i + 1 < pointCount) {
+                setPoint(i + 1, points[2 * i + 2] + dx, points[2 * i + 3] + dy);
+            }
+        } else {
+            // A handle is mirrored through its joint onto the handle on the other side.
+            setPoint(i, x, y);
+            int joint = i % 3 == 1 ? i - 1 : i + 1;
+            int partner = 2 * joint - i;
+            if (partner > 0 && partner < pointCount - 1) {
+                setPoint(partner, 2 * points[2 * joint] - x, 2 * points[2 * joint + 1] - y);
+            }
+        }
+    }
+
+    /**
+     * Flattens every segment that has changed since it was last flattened.
+     * @return The number of segments flattened.
+     */
+    public int refresh() {
+        int flattened = 0;
+        int segments = getSegmentCount();
+        for (int s = 0; s < segments; s++) {
+            if (dirty[s]) {
+                flattenSegment(s);
+                dirty[s] = false;
+                flattened++;
+            }
+        }
+        return flattened;
+    }
+
+    /**
+     * @return A segment's lines as x0, y0, x1, y1 groups, as of the last refresh().
+     */
+    public float[] getSegmentLines(int segment) {
+        return segmentLines[segment];
+    }
+
+    /**
+     * @return How many floats of getSegmentLines() a segment uses.
+     */
+    public int getSegmentFloats(int segment) {
+        return segmentFloats[segment];
+    }
+
+    public void clear() {
+        pointCount = 0;
+    }
+
+    private void append(float x, float y) {
+        if (2 * pointCount + 2 > points.length) {
+            points = Arrays.copyOf(points, points.length * 2);
+        }
+        points[2 * pointCount] = x;
+        points[2 * pointCount + 1] = y;
+        pointCount++;
+
+        int segments = getSegmentCount();
+        if (segments > dirty.length) {
+            int capacity = Math.max(segments, dirty.length * 2);
+            segmentLines = Arrays.copyOf(segmentLines, capacity);
+            segmentFloats = Arrays.copyOf(segmentFloats, capacity);
+            dirty = Arrays.copyOf(dirty, capacity);
+        }
+    }
+
+    private void setPoint(int i, float x, float y) {
+        points[2 * i] = x;
+        points[2 * i + 1] = y;
+        markDirty(i);
+    }
+
+    /**
+     * Marks every segment that uses a control point.
+     */
+    private void markDirty(int i) {
+        int first;
+        int last;
+        if (continuity == C1) {
+            // Segment s uses points 3s to 3s + 3.
+            first = (i - 1) / 3;
+            last = i / 3;
+        } else {
+            // Segment s uses points s to s + 3.
+            first = i - 3;
+            last = i;
+        }
+        int segments = getSegmentCount();
+        for (int s = Math.max(0, first); s <= Math.min(last, segments - 1); s++) {
+            dirty[s] = true;
+        }
+    }
+
+    /**
+     * Works out a segment's Bezier control points, flattens it, and stores the lines.
+     */
+    private void flattenSegment(int s) {
+        if (continuity == C1) {
+            System.arraycopy(points, 6 * s, bezier, 0, 8);
+        } else {
+            // Convert the four B-spline points into the Bezier points of the same cubic.
+            for (int axis = 0; axis < 2; axis++) {
+                float p0 = points[2 * s + axis];
+                float p1 = points[2 * s + 2 + axis];
+                float p2 = points[2 * s + 4 + axis];
+                float p3 = points[2 * s + 6 + axis];
+                bezier[axis] = (p0 + 4 * p1 + p2) / 6;
+                bezier[2 + axis] = (2 * p1 + p2) / 3;
+                bezier[4 + axis] = (p1 + 2 * p2) / 3;
+                bezier[6 + axis] = (p1 + 4 * p2 + p3) / 6;
+            }
+        }
+
+        int count = curve.flatten(bezier, 4);
+        float[] polyline = curve.getPoints();
+        int floats = 2 * (count - 2);
+        float[] lines = segmentLines[s];
+        if (lines == null || lines.length < floats) {
+            lines = new float[Math.max(floats, 64)];
+            segmentLines[s] = lines;
+        }
+        int o = 0;
+        for (int i = 0; i + 3 < count; i += 2) {
+            lines[o++] = polyline[i];
+            lines[o++] = polyline[i + 1];
+            lines[o++] = polyline[i + 2];
+            lines[o++] = polyline[i + 3];
+        }
+        segmentFloats[s] = o;
+    }
+}
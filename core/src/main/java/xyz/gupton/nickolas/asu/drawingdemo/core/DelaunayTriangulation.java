@@ -0,0 +1,583 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The Delaunay triangulation of the sites of a Voronoi diagram, its dual: two sites are joined
+ * whenever their Voronoi cells share an edge. Sites are added one at a time, Bowyer-Watson style.
+ *
+ * A new site is found by walking from the last triangle made towards it, crossing whichever edge the
+ * site is on the far side of, which takes only a few steps when taps land near each other. For sites in
+ * no particular order the walk crosses about the square root of the number of triangles, so addAll()
+ * puts a whole set of sites into an order where each one is near the one before it. Every
+ * triangle whose circumcircle holds the new site is then dug out, and the hole is filled with a fan
+ * of triangles around the site.
+ *
+ * Triangles are kept in int arrays, three corners and three neighbors each, and the slots of dug out
+ * triangles are reused, so adding sites only allocates when the arrays have to grow. Everything starts
+ * inside one huge triangle whose corners aren't sites; triangles touching those corners aren't drawn.
+ * The circumcircle test treats those corners as infinitely far away, so no edge along the outside of
+ * the sites is lost to a circle that only reached a corner because it wasn't far enough.
+ *
+ * The orientation and circumcircle tests are done in plain doubles, which round, so they can get the
+ * answer wrong for sites that are almost in a line or almost on one circle. Near such spots a triangle may
+ * be kept that a slightly different site would have dug out, so the result is only nearly Delaunay there.
+ * A site whose hole the rounding would leave misshapen, and exact duplicates, are skipped instead of
+ * damaging the triangulation, and getSkippedCount() says how many were.
+ */
+public class DelaunayTriangulation {
+
+    /**
+     * SUPER_VERTICES | int: The number of corners of the starting triangle, which come before every site.
+     */
+    private static final int SUPER_VERTICES = 3;
+
+    /**
+     * SUPER_SCALE | double: How many times bigger than the bounds the starting triangle is.
+     * Its corners only need to be far enough out for the walk to find sites a little outside the bounds.
+     */
+    private static final double SUPER_SCALE = 100;
+
+    /**
+     * HILBERT_SIDE | int: How many steps across and down the Hilbert curve addAll() sorts the sites along has.
+     * The curve's positions then fit in 30 bits.
+     */
+    private static final int HILBERT_SIDE = 1 << 15;
+
+    /**
+     * SMALLEST_ROUND | int: addAll() doesn't split the first sites it adds into rounds any smaller than this.
+     */
+    private static final int SMALLEST_ROUND = 64;
+
+    /**
+     * width, height | float: The rectangle the sites are expected to be in.
+     */
+    private float width;
+    private float height;
+
+    /**
+     * xs, ys | double[]: Where each vertex is. Site i is vertex i + SUPER_VERTICES.
+     */
+    private double[] xs = new double[64];
+    private double[] ys = new double[64];
+    private int vertexCount = 0;
+
+    /**
+     * corners | int[]: The three vertices of each triangle, counterclockwise in the sense orient() is positive,
+     * or -1 in the first entry if the slot is free.
+     */
+    private int[] corners = new int[3 * 128];
+
+    /**
+     * neighbors | int[]: The triangle across the edge opposite each corner, or -1 at the outside.
+     */
+    private int[] neighbors = new int[3 * 128];
+
+    /**
+     * slotCount | int: How many triangle slots have been used, free or not.
+     */
+    private int slotCount = 0;
+
+    /**
+     * freeSlots | int[]: Triangle slots freed by dug out triangles, waiting to be reused.
+     */
+    private int[] freeSlots = new int[64];
+    private int freeCount = 0;
+
+    /**
+     * last | int: The triangle the next walk starts from.
+     */
+    private int last = 0;
+
+    /**
+     * cavityStamp, stamp | int[], int: Marks the triangles dug out by the current insert without clearing anything.
+     */
+    private int[] cavityStamp = new int[128];
+    private int stamp = 0;
+
+    /**
+     * cavity | int[]: The triangles dug out by the current insert.
+     */
+    private int[] cavity = new int[64];
+    private int cavityCount = 0;
+
+    /**
+     * edgeFrom, edgeTo, edgeOutside | int[]: The edges around the hole, counterclockwise, and the triangle outside each.
+     */
+    private int[] edgeFrom = new int[64];
+    private int[] edgeTo = new int[64];
+    private int[] edgeOutside = new int[64];
+    private int edgeCount = 0;
+
+    /**
+     * startingAt, endingAt | int[]: The new triangle whose outer edge starts or ends at each vertex, while the hole is filled.
+     */
+    private int[] startingAt = new int[64];
+    private int[] endingAt = new int[64];
+
+    /**
+     * siteCount, skipped | int: The number of sites added and how many of them were left out.
+     */
+    private int siteCount = 0;
+    private int skipped = 0;
+
+    /**
+     * lines | float[]: Every edge between two sites as x0, y0, x1, y1 groups, ready for Canvas.drawLines().
+     */
+    private float[] lines = new float[64];
+    private int lineFloats = 0;
+    private boolean linesDirty = true;
+
+    /**
+     * Sets up a new DelaunayTriangulation for sites inside a rectangle.
+     * @param width    The width of the rectangle.
+     * @param height   The height of the rectangle.
+     */
+    public DelaunayTriangulation(float width, float height) {
+        reset(width, height);
+    }
+
+    /**
+     * Forgets every site and makes room for sites inside a new rectangle.
+     */
+    public void reset(float width, float height) {
+        this.width = width;
+        this.height = height;
+        double size = SUPER_SCALE * Math.max(1, Math.max(width, height));
+        double centerX = width / 2.0;
+        double centerY = height / 2.0;
+        vertexCount = 0;
+        addVertex(centerX - 2 * size, centerY - size);
+        addVertex(centerX + 2 * size, centerY - size);
+        addVertex(centerX, centerY + 2 * size);
+
+        slotCount = 0;
+        freeCount = 0;
+        last = newTriangle(0, 1, 2);
+        neighbors[0] = neighbors[1] = neighbors[2] = -1;
+        siteCount = 0;
+        skipped = 0;
+        linesDirty = true;
+    }
+
+    /**
+     * Adds the next site. Sites are numbered in the order they are added, whether or not they fit.
+     * @return False if the site was left out, because it is outside the rectangle's surroundings,
+     *         on top of another site, or too close to a degenerate spot to place safely.
+     */
+    public boolean add(float x, float y) {
+        int vertex = addVertex(x, y);
+        siteCount++;
+        int containing = locate(x, y);
+        if (containing == -1 || isCorner(containing, x, y) || !digCavity(containing, vertex)) {
+            skipped++;
+            return false;
+        }
+        fillCavity(vertex);
+        linesDirty = true;
+        return true;
+    }
+
+    /**
+     * Adds a whole set of sites, which is much faster than adding them one at a time in no particular order.
+     *
+     * They are added in a biased randomized insertion order: shuffled, then split into rounds that each
+     * hold half of the sites not yet in an earlier one, and each round sorted along a Hilbert curve.
+     * Sites next to each other on the curve are next to each other on the screen, so every walk only
+     * takes a few steps, and the shuffle keeps an unlucky order, like sites tapped out in rows, from
+     * digging out big holes. Sites are numbered in the order they are actually added.
+     * @param points   The sites to add.
+     * @return How many of them were left out.
+     */
+    public int addAll(PointStore points) {
+        int n = points.size();
+        int[] shuffled = new int[n];
+        for (int i = 0; i < n; i++) {
+            shuffled[i] = i;
+        }
+        // A fixed seed, so the same sites always give the same triangulation.
+        Random random = new Random(n);
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = shuffled[i];
+            shuffled[i] = shuffled[j];
+            shuffled[j] = swap;
+        }
+
+        // Each entry is the position along the curve above the site's number, so sorting them sorts the sites.
+        long[] order = new long[n];
+        for (int i = 0; i < n; i++) {
+            int site = shuffled[i];
+            order[i] = (long)hilbert(points.getX(site), points.getY(site)) << 32 | site;
+        }
+        for (int end = n; end > 0; ) {
+            int start = end <= SMALLEST_ROUND ? 0 : end / 2;
+            Arrays.sort(order, start, end);
+            end = start;
+        }
+
+        int skippedBefore = skipped;
+        for (int i = 0; i < n; i++) {
+            int site = (int)order[i];
+            add(points.getX(site), points.getY(site));
+        }
+        return skipped - skippedBefore;
+    }
+
+    /**
+     * @return How far along a Hilbert curve filling the rectangle a point is. Points outside it are moved to its edge.
+     */
+    private int hilbert(float x, float y) {
+        int cx = toCurve(x, width);
+        int cy = toCurve(y, height);
+        int d = 0;
+        for (int s = HILBERT_SIDE / 2; s > 0; s /= 2) {
+            int rx = (cx & s) != 0 ? 1 : 0;
+            int ry = (cy & s) != 0 ? 1 : 0;
+            d += s * s * ((3 * rx) ^ ry);
+            // Turn the quadrant so the curve inside it lines up with the rest.
+            if (ry == 0) {
+                if (rx == 1) {
+                    cx = HILBERT_SIDE - 1 - cx;
+                    cy = HILBERT_SIDE - 1 - cy;
+                }
+                int swap = cx;
+                cx = cy;
+                cy = swap;
+            }
+        }
+        return d;
+    }
+
+    private static int toCurve(float value, float size) {
+        int step = (int)(value / Math.max(1, size) * (HILBERT_SIDE - 1));
+        return Math.max(0, Math.min(HILBERT_SIDE - 1, step));
+    }
+
+    /**
+     * @return The number of sites added, including any that were left out.
+     */
+    public int getSiteCount() {
+        return siteCount;
+    }
+
+    /**
+     * @return How many of the sites added were left out.
+     */
+    public int getSkippedCount() {
+        return skipped;
+    }
+
+    /**
+     * @return The number of triangles between sites, not counting the ones touching the starting triangle's corners.
+     */
+    public int getTriangleCount() {
+        int count = 0;
+        for (int t = 0; t < slotCount; t++) {
+            if (corners[3 * t] >= SUPER_VERTICES && corners[3 * t + 1] >= SUPER_VERTICES && corners[3 * t + 2] >= SUPER_VERTICES) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return Every edge between two sites as x0, y0, x1, y1 groups. Only getLineFloats() of them are used.
+     */
+    public float[] getLines() {
+        updateLines();
+        return lines;
+    }
+
+    /**
+     * @return How many floats of getLines() are used.
+     */
+    public int getLineFloats() {
+        updateLines();
+        return lineFloats;
+    }
+
+    /**
+     * Walks from the last triangle made to the one holding a point.
+     * @return The triangle, or -1 if the point is outside the starting triangle.
+     */
+    private int locate(double x, double y) {
+        int t = last;
+        int limit = slotCount + 3;
+        for (int step = 0; step < limit; step++) {
+            int next = -2;
+            // Trying the edges from a different one each step keeps the walk from going round in circles.
+            for (int i = 0; i < 3; i++) {
+                int k = (i + step) % 3;
+                int a = corners[3 * t + (k + 1) % 3];
+                int b = corners[3 * t + (k + 2) % 3];
+                if (orient(xs[a], ys[a], xs[b], ys[b], x, y) < 0) {
+                    next = neighbors[3 * t + k];
+                    break;
+                }
+            }
+            if (next == -2) {
+                return t;
+            }
+            if (next == -1) {
+                return -1;
+            }
+            t = next;
+        }
+
+        // The walk should always arrive, but look at every triangle rather than loop forever.
+        for (t = 0; t < slotCount; t++) {
+            if (corners[3 * t] != -1 && contains(t, x, y)) {
+                return t;
+            }
+        }
+        return -1;
+    }
+
+    private boolean contains(int t, double x, double y) {
+        for (int k = 0; k < 3; k++) {
+            int a = corners[3 * t + (k + 1) % 3];
+            int b = corners[3 * t + (k + 2) % 3];
+            if (orient(xs[a], ys[a], xs[b], ys[b], x, y) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isCorner(int t, double x, double y) {
+        for (int k = 0; k < 3; k++) {
+            int v = corners[3 * t + k];
+            if (xs[v] == x && ys[v] == y) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds every triangle whose circumcircle holds the new vertex, starting from the one it is in,
+     * and the edges around them. Nothing is changed yet.
+     * @return False if the hole isn't star-shaped around the vertex, which only rounding can cause.
+     */
+    private boolean digCavity(int containing, int vertex) {
+        double x = xs[vertex];
+        double y = ys[vertex];
+        stamp++;
+        if (stamp == 0) {
+            Arrays.fill(cavityStamp, 0);
+            stamp = 1;
+        }
+
+        cavityCount = 0;
+        edgeCount = 0;
+        cavity = ensure(cavity, 1);
+        cavity[cavityCount++] = containing;
+        cavityStamp[containing] = stamp;
+        for (int c = 0; c < cavityCount; c++) {
+            int t = cavity[c];
+            for (int k = 0; k < 3; k++) {
+                int other = neighbors[3 * t + k];
+                if (other != -1 && cavityStamp[other] == stamp) {
+                    continue;
+                }
+                if (other != -1 && inCircle(other, x, y)) {
+                    cavity = ensure(cavity, cavityCount + 1);
+                    cavity[cavityCount++] = other;
+                    cavityStamp[other] = stamp;
+                    continue;
+                }
+
+                // The edge is on the outside of the hole.
+                int a = corners[3 * t + (k + 1) % 3];
+                int b = corners[3 * t + (k + 2) % 3];
+                if (orient(xs[a], ys[a], xs[b], ys[b], x, y) <= 0) {
+                    return false;
+                }
+                edgeFrom = ensure(edgeFrom, edgeCount + 1);
+                edgeTo = ensure(edgeTo, edgeCount + 1);
+                edgeOutside = ensure(edgeOutside, edgeCount + 1);
+                edgeFrom[edgeCount] = a;
+                edgeTo[edgeCount] = b;
+                edgeOutside[edgeCount] = other;
+                edgeCount++;
+            }
+        }
+
+        // Free the dug out triangles; their slots get filled again straight away.
+        for (int c = 0; c < cavityCount; c++) {
+            freeSlots = ensure(freeSlots, freeCount + 1);
+            freeSlots[freeCount++] = cavity[c];
+            corners[3 * cavity[c]] = -1;
+        }
+        return true;
+    }
+
+    /**
+     * Fills the hole left by digCavity() with a triangle from each edge around it to the new vertex.
+     */
+    private void fillCavity(int vertex) {
+        for (int e = 0; e < edgeCount; e++) {
+            int a = edgeFrom[e];
+            int b = edgeTo[e];
+            int outside = edgeOutside[e];
+            int t = newTriangle(vertex, a, b);
+            neighbors[3 * t] = outside;
+            if (outside != -1) {
+                // Point the triangle outside at its new neighbor instead of the dug out one. The slot
+                // may even be the same one, so look for the edge rather than the old triangle.
+                for (int k = 0; k < 3; k++) {
+                    int oa = corners[3 * outside + (k + 1) % 3];
+                    int ob = corners[3 * outside + (k + 2) % 3];
+                    if (oa == b && ob == a) {
+                        neighbors[3 * outside + k] = t;
+                        break;
+                    }
+                }
+            }
+            startingAt[a] = t;
+            endingAt[b] = t;
+        }
+
+        // The edges around the hole make a loop, so each new triangle's sides lead to the ones before and after it.
+        for (int e = 0; e < edgeCount; e++) {
+            int a = edgeFrom[e];
+            int b = edgeTo[e];
+            int t = startingAt[a];
+            neighbors[3 * t + 1] = startingAt[b];
+            neighbors[3 * t + 2] = endingAt[a];
+        }
+        last = startingAt[edgeFrom[0]];
+    }
+
+    private int newTriangle(int a, int b, int c) {
+        int t;
+        if (freeCount > 0) {
+            t = freeSlots[--freeCount];
+        } else {
+            t = slotCount++;
+            if (3 * slotCount > corners.length) {
+                corners = Arrays.copyOf(corners, corners.length * 2);
+                neighbors = Arrays.copyOf(neighbors, neighbors.length * 2);
+                cavityStamp = Arrays.copyOf(cavityStamp, corners.length / 3);
+            }
+        }
+        corners[3 * t] = a;
+        corners[3 * t + 1] = b;
+        corners[3 * t + 2] = c;
+        return t;
+    }
+
+    private int addVertex(double x, double y) {
+        if (vertexCount == xs.length) {
+            xs = Arrays.copyOf(xs, xs.length * 2);
+            ys = Arrays.copyOf(ys, ys.length * 2);
+            startingAt = Arrays.copyOf(startingAt, xs.length);
+            endingAt = Arrays.copyOf(endingAt, xs.length);
+        }
+        xs[vertexCount] = x;
+        ys[vertexCount] = y;
+        return vertexCount++;
+    }
+
+    /**
+     * @return Whether a point is strictly inside a triangle's circumcircle, treating the starting triangle's
+     *         corners as if they were infinitely far away.
+     */
+    private boolean inCircle(int t, double x, double y) {
+        int a = corners[3 * t];
+        int b = corners[3 * t + 1];
+        int c = corners[3 * t + 2];
+        int far = (a < SUPER_VERTICES ? 1 : 0) + (b < SUPER_VERTICES ? 1 : 0) + (c < SUPER_VERTICES ? 1 : 0);
+        if (far == 3) {
+            return true;
+        }
+        if (far > 0) {
+            // Turn the triangle so its first corner is a far one, and the second one too if there are two.
+            while (a >= SUPER_VERTICES || (far == 2 && b >= SUPER_VERTICES)) {
+                int swap = a;
+                a = b;
+                b = c;
+                c = swap;
+            }
+            double side = far == 1 ? orient(xs[b], ys[b], xs[c], ys[c], x, y) : towardsFarCorners(a, b, c, x, y);
+            if (side != 0) {
+                return side > 0;
+            }
+            // Exactly on the line the circle becomes; the real corners, far but not infinitely so, decide.
+        }
+        double adx = xs[a] - x;
+        double ady = ys[a] - y;
+        double bdx = xs[b] - x;
+        double bdy = ys[b] - y;
+        double cdx = xs[c] - x;
+        double cdy = ys[c] - y;
+        double ad = adx * adx + ady * ady;
+        double bd = bdx * bdx + bdy * bdy;
+        double cd = cdx * cdx + cdy * cdy;
+        return ad * (bdx * cdy - cdx * bdy) + bd * (cdx * ady - adx * cdy) + cd * (adx * bdy - bdx * ady) > 0;
+    }
+
+    /**
+     * Near the site c, the circle through it and the far corners a and b is all but a straight line.
+     * @return Positive if a point is on the side of that line the circle is on, negative if not.
+     */
+    private double towardsFarCorners(int a, int b, int c, double x, double y) {
+        // The circle's center lies the same way from c as the center of the circle through the starting
+        // triangle's middle and the two far corners lies from that middle.
+        double middleX = (xs[0] + xs[1] + xs[2]) / 3;
+        double middleY = (ys[0] + ys[1] + ys[2]) / 3;
+        double ax = xs[a] - middleX;
+        double ay = ys[a] - middleY;
+        double bx = xs[b] - middleX;
+        double by = ys[b] - middleY;
+        double d = 2 * (ax * by - ay * bx);
+        double centerX = (by * (ax * ax + ay * ay) - ay * (bx * bx + by * by)) / d;
+        double centerY = (ax * (bx * bx + by * by) - bx * (ax * ax + ay * ay)) / d;
+        return (x - xs[c]) * centerX + (y - ys[c]) * centerY;
+    }
+
+    /**
+     * @return Positive if a, b and c turn counterclockwise (with y pointing up), negative if clockwise, 0 if in a line.
+     */
+    private static double orient(double ax, double ay, double bx, double by, double cx, double cy) {
+        return (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+    }
+
+    private static int[] ensure(int[] array, int length) {
+        return length <= array.length ? array : Arrays.copyOf(array, Math.max(length, array.length * 2));
+    }
+
+    /**
+     * Lists every edge between two sites once, from the triangle with the lower slot number.
+     */
+    private void updateLines() {
+        if (!linesDirty) {
+            return;
+        }
+        int o = 0;
+        for (int t = 0; t < slotCount; t++) {
+            if (corners[3 * t] == -1) {
+                continue;
+            }
+            for (int k = 0; k < 3; k++) {
+                int other = neighbors[3 * t + k];
+                int a = corners[3 * t + (k + 1) % 3];
+                int b = corners[3 * t + (k + 2) % 3];
+                if ((other != -1 && other < t) || a < SUPER_VERTICES || b < SUPER_VERTICES) {
+                    continue;
+                }
+                if (o + 4 > lines.length) {
+                    lines = Arrays.copyOf(lines, lines.length * 2);
+                }
+                lines[o++] = (float)xs[a];
+                lines[o++] = (float)ys[a];
+                lines[o++] = (float)xs[b];
+                lines[o++] = (float)ys[b];
+            }
+        }
+        lineFloats = o;
+        linesDirty = false;
+    }
+}
@@ -0,0 +1,515 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Computes the exact Voronoi diagram of a set of sites with Fortune's sweep-line algorithm
+ * and turns it into one polygon per site, clipped to a rectangle.
+ *
+ * The sweep keeps the beach line in a treap, so finding the arc above a new site takes
+ * O(log n) expected time and the whole sweep takes O(n log n).
+ * Every pair of sites whose arcs ever sit next to each other on the beach line shares a Voronoi edge,
+ * so the sweep only records those pairs. Each cell is then the rectangle cut down by the bisector
+ * of the site and each of its neighbors, which handles unbounded cells without special cases.
+ */
+public class FortuneVoronoi {
+
+    /**
+     * An arc of the beach line. Arcs are kept both in a treap, for searching,
+     * and in a doubly linked list, for walking to neighbors.
+     */
+    private static final class Arc {
+        final int site;
+        final int priority;
+        Arc parent, left, right;
+        Arc prev, next;
+        CircleEvent circle;
+
+        Arc(int site, int priority) {
+            this.site = site;
+            this.priority = priority;
+        }
+    }
+
+    /**
+     * The moment the sweep line reaches the bottom of the circle through three sites,
+     * when the middle arc shrinks away.
+     */
+    private static final class CircleEvent {
+        final Arc arc;
+        final double y;
+        boolean valid = true;
+
+        CircleEvent(Arc arc, double y) {
+            this.arc = arc;
+            this.y = y;
+        }
+    }
+
+    /**
+     * xs, ys | double[]: The coordinates of the sites being swept.
+     */
+    private double[] xs = new double[0];
+    private double[] ys = new double[0];
+
+    /**
+     * root | Arc: The root of the beach line treap.
+     */
+    private Arc root;
+
+    /**
+     * random | Random: Picks the treap priorities.
+     */
+    private final Random random = new Random(1);
+
+    /**
+     * pairs | int[]: Neighboring sites found by the sweep, two entries per pair.
+     */
+    private int[] pairs = new int[64];
+    private int pairCount = 0;
+
+    /**
+     * vertices | float[]: The corners of every cell, as x, y pairs.
+     */
+    private float[] vertices = new float[64];
+
+    /**
+     * cellStarts | int[]: Where each cell's corners start in vertices, counted in corners.
+     * Cell i runs from cellStarts[i] up to cellStarts[i + 1].
+     */
+    private int[] cellStarts = new int[1];
+
+    /**
+     * cellCount | int: The number of cells computed.
+     */
+    private int cellCount = 0;
+
+    /**
+     * Computes the diagram of the given sites.
+     * A site at exactly the same place as an earlier one gets an empty cell, since the earlier one wins ties.
+     * @param points   The sites of the diagram.
+     * @param left     The left edge of the rectangle the cells are clipped to.
+     * @param top      The top edge of the rectangle.
+     * @param right    The right edge of the rectangle.
+     * @param bottom   The bottom edge of the rectangle.
+     */
+    public void compute(PointStore points, float left, float top, float right, float bottom) {
+        int n = points.size();
+        if (xs.length < n) {
+            xs = new double[n];
+            ys = new double[n];
+        }
+        for (int i = 0; i < n; i++) {
+            xs[i] = points.getX(i);
+            ys[i] = points.getY(i);
+        }
+
+        boolean[] duplicate = new boolean[n];
+        sweep(n, duplicate);
+        buildCells(n, duplicate, left, top, right, bottom);
+    }
+
+    /**
+     * @return The number of cells, which is the number of sites.
+     */
+    public int getCellCount() {
+        return cellCount;
+    }
+
+    /**
+     * @param site   The number of the site.
+     * @return The index of the first corner of the site's cell in getVertices(), counted in corners.
+     */
+    public int getCellStart(int site) {
+        return cellStarts[site];
+    }
+
+    /**
+     * @param site   The number of the site.
+     * @return The index just past the last corner of the site's cell, counted in corners.
+     */
+    public int getCellEnd(int site) {
+        return cellStarts[site + 1];
+    }
+
+    /**
+     * @return The corners of every cell as x, y pairs. This is the object's own array, not a copy.
+     */
+    public float[] getVertices() {
+        return vertices;
+    }
+
+    /**
+     * Runs the sweep line over the sites, recording every pair that becomes neighbors on the beach line.
+     */
+    private void sweep(int n, boolean[] duplicate) {
+        root = null;
+        pairCount = 0;
+
+        // Site events happen in order of y, then x.
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                int byY = Double.compare(ys[a], ys[b]);
+                if (byY != 0) {
+                    return byY;
+                }
+                int byX = Double.compare(xs[a], xs[b]);
+                return byX != 0 ? byX : Integer.compare(a, b);
+            }
+        });
+
+        PriorityQueue<CircleEvent> circles = new PriorityQueue<>(16, new Comparator<CircleEvent>() {
+            @Override
+            public int compare(CircleEvent a, CircleEvent b) {
+                return Double.compare(a.y, b.y);
+            }
+        });
+
+        int nextSite = 0;
+        while (nextSite < n || !circles.isEmpty()) {
+            CircleEvent circle = circles.peek();
+            if (circle != null && !circle.valid) {
+                circles.poll();
+            } else if (nextSite < n && (circle == null || ys[order[nextSite]] < circle.y)) {
+                int site = order[nextSite++];
+                if (nextSite > 1) {
+                    int previous = order[nextSite - 2];
+                    if (xs[previous] == xs[site] && ys[previous] == ys[site]) {
+                        // The earlier of two identical sites wins every tie, so this one gets no cell.
+                        duplicate[site] = true;
+                        continue;
+                    }
+                }
+                addArc(site, circles);
+            } else {
+                circles.poll();
+                removeArc(circle.arc, circles);
+            }
+        }
+    }
+
+    /**
+     * Handles a site event: the new site's arc splits the arc above it.
+     */
+    private void addArc(int site, PriorityQueue<CircleEvent> circles) {
+        Arc arc = new Arc(site, random.nextInt());
+        if (root == null) {
+            root = arc;
+            return;
+        }
+
+        Arc above = findArc(xs[site], ys[site]);
+        if (ys[above.site] == ys[site]) {
+            // Only happens while every site so far is on the first row, which sweeps in order of x.
+            insertAfter(above, arc);
+            addPair(above.site, site);
+            return;
+        }
+
+        invalidate(above);
+        Arc copy = new Arc(above.site, random.nextInt());
+        insertAfter(above, arc);
+        insertAfter(arc, copy);
+        addPair(above.site, site);
+
+        checkCircle(above, ys[site], circles);
+        checkCircle(copy, ys[site], circles);
+    }
+
+    /**
+     * Handles a circle event: the arc shrinks away and its neighbors meet.
+     */
+    private void removeArc(Arc arc, PriorityQueue<CircleEvent> circles) {
+        Arc prev = arc.prev;
+        Arc next = arc.next;
+        double sweepY = arc.circle.y;
+        addPair(prev.site, next.site);
+
+        invalidate(prev);
+        invalidate(next);
+        remove(arc);
+
+        checkCircle(prev, sweepY, circles);
+        checkCircle(next, sweepY, circles);
+    }
+
+    /**
+     * Finds the arc of the beach line directly above the given point.
+     */
+    private Arc findArc(double x, double sweepY) {
+        Arc arc = root;
+        while (true) {
+            if (arc.prev != null && arc.left != null && x < breakpoint(arc.prev.site, arc.site, sweepY)) {
+                arc = arc.left;
+            } else if (arc.next != null && arc.right != null && x > breakpoint(arc.site, arc.next.site, sweepY)) {
+                arc = arc.right;
+            } else {
+                return arc;
+            }
+        }
+    }
+
+    /**
+     * Works out where the arc of site a, on the left, meets the arc of site b, on the right.
+     * @return The x coordinate of the breakpoint.
+     */
+    private double breakpoint(int a, int b, double sweepY) {
+        double ax = xs[a], ay = ys[a];
+        double bx = xs[b], by = ys[b];
+        if (ay == by) {
+            return (ax + bx) / 2;
+        }
+        if (ay == sweepY) {
+            return ax;
+        }
+        if (by == sweepY) {
+            return bx;
+        }
+
+        // Both arcs are parabolas y = (x^2 - 2 fx x + fx^2 + fy^2 - l^2) / (2 (fy - l)); solve for equal y.
+        double da = 2 * (ay - sweepY);
+        double db = 2 * (by - sweepY);
+        double qa = 1 / da - 1 / db;
+        double qb = -2 * (ax / da - bx / db);
+        double qc = (ax * ax + ay * ay - sweepY * sweepY) / da - (bx * bx + by * by - sweepY * sweepY) / db;
+        double root = Math.sqrt(Math.max(0, qb * qb - 4 * qa * qc));
+        double x1 = (-qb - root) / (2 * qa);
+        double x2 = (-qb + root) / (2 * qa);
+
+        // The site closer to the sweep line has the narrower arc, which is on top between the two crossings.
+        return ay < by ? Math.min(x1, x2) : Math.max(x1, x2);
+    }
+
+    /**
+     * Schedules the circle event for an arc if its neighbors are closing in on it.
+     */
+    private void checkCircle(Arc arc, double sweepY, PriorityQueue<CircleEvent> circles) {
+        if (arc.prev == null || arc.next == null || arc.prev.site == arc.next.site) {
+            return;
+        }
+        double ax = xs[arc.prev.site], ay = ys[arc.prev.site];
+        double bx = xs[arc.site], by = ys[arc.site];
+        double cx = xs[arc.next.site], cy = ys[arc.next.site];
+
+        // The breakpoints only converge when the three sites turn this way.
+        double cross = (bx - ax) * (cy - ay) - (cx - ax) * (by - ay);
+        if (cross <= 0) {
+            return;
+        }
+
+        double d = 2 * cross;
+        double a2 = (bx - ax) * (bx - ax) + (by - ay) * (by - ay);
+        double c2 = (cx - ax) * (cx - ax) + (cy - ay) * (cy - ay);
+        double ox = ax + ((cy - ay) * a2 - (by - ay) * c2) / d;
+        double oy = ay + ((bx - ax) * c2 - (cx - ax) * a2) / d;
+        double radius = Math.hypot(ox - ax, oy - ay);
+        double y = oy + radius;
+        if (y < sweepY) {
+            return;
+        }
+
+        arc.circle = new CircleEvent(arc, y);
+        circles.add(arc.circle);
+    }
+
+    private static void invalidate(Arc arc) {
+        if (arc.circle != null) {
+            arc.circle.valid = false;
+            arc.circle = null;
+        }
+    }
+
+    private void addPair(int a, int b) {
+        if (pairCount * 2 == pairs.length) {
+            pairs = Arrays.copyOf(pairs, pairs.length * 2);
+        }
+        pairs[pairCount * 2] = a;
+        pairs[pairCount * 2 + 1] = b;
+        pairCount++;
+    }
+
+    /**
+     * Puts a new arc just after another one, both in the list and in the treap.
+     */
+    private void insertAfter(Arc arc, Arc added) {
+        added.prev = arc;
+        added.next = arc.next;
+        if (arc.next != null) {
+            arc.next.prev = added;
+        }
+        arc.next = added;
+
+        if (arc.right == null) {
+            arc.right = added;
+            added.parent = arc;
+        } else {
+            Arc successor = arc.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            successor.left = added;
+            added.parent = successor;
+        }
+        while (added.parent != null && added.priority < added.parent.priority) {
+            rotateUp(added);
+        }
+    }
+
+    /**
+     * Takes an arc out of the list and the treap.
+     */
+    private void remove(Arc arc) {
+        if (arc.prev != null) {
+            arc.prev.next = arc.next;
+        }
+        if (arc.next != null) {
+            arc.next.prev = arc.prev;
+        }
+
+        // Rotate the arc down until it is a leaf, then cut it off.
+        while (arc.left != null || arc.right != null) {
+            if (arc.right == null || (arc.left != null && arc.left.priority < arc.right.priority)) {
+                rotateUp(arc.left);
+            } else {
+                rotateUp(arc.right);
+            }
+        }
+        if (arc.parent == null) {
+            root = null;
+        } else if (arc.parent.left == arc) {
+            arc.parent.left = null;
+        } else {
+            arc.parent.right = null;
+        }
+        arc.parent = null;
+    }
+
+    /**
+     * Rotates a treap node above its parent.
+     */
+    private void rotateUp(Arc node) {
+        Arc parent = node.parent;
+        Arc grandparent = parent.parent;
+        if (parent.left == node) {
+            parent.left = node.right;
+            if (node.right != null) {
+                node.right.parent = parent;
+            }
+            node.right = parent;
+        } else {
+            parent.right = node.left;
+            if (node.left != null) {
+                node.left.parent = parent;
+            }
+            node.left = parent;
+        }
+        parent.parent = node;
+        node.parent = grandparent;
+        if (grandparent == null) {
+            root = node;
+        } else if (grandparent.left == parent) {
+            grandparent.left = node;
+        } else {
+            grandparent.right = node;
+        }
+    }
+
+    /**
+     * Clips the rectangle by the bisector between each site and each of its neighbors.
+     */
+    private void buildCells(int n, boolean[] duplicate, float left, float top, float right, float bottom) {
+        // Group the pairs by site.
+        int[] neighborStarts = new int[n + 1];
+        for (int i = 0; i < pairCount * 2; i++) {
+            neighborStarts[pairs[i] + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            neighborStarts[i + 1] += neighborStarts[i];
+        }
+        int[] neighbors = new int[pairCount * 2];
+        int[] fill = Arrays.copyOf(neighborStarts, n);
+        for (int i = 0; i < pairCount; i++) {
+            int a = pairs[i * 2];
+            int b = pairs[i * 2 + 1];
+            neighbors[fill[a]++] = b;
+            neighbors[fill[b]++] = a;
+        }
+
+        if (cellStarts.length < n + 1) {
+            cellStarts = new int[n + 1];
+        }
+        cellCount = n;
+        int corners = 0;
+
+        // Each clip adds at most one corner, so the scratch polygons only need room for that many.
+        int maxNeighbors = 0;
+        for (int i = 0; i < n; i++) {
+            maxNeighbors = Math.max(maxNeighbors, neighborStarts[i + 1] - neighborStarts[i]);
+        }
+        double[] polygon = new double[(maxNeighbors + 4) * 2];
+        double[] clipped = new double[(maxNeighbors + 4) * 2];
+
+        for (int site = 0; site < n; site++) {
+            cellStarts[site] = corners;
+            if (duplicate[site]) {
+                continue;
+            }
+
+            polygon[0] = left;  polygon[1] = top;
+            polygon[2] = right; polygon[3] = top;
+            polygon[4] = right; polygon[5] = bottom;
+            polygon[6] = left;  polygon[7] = bottom;
+            int count = 4;
+
+            double sx = xs[site], sy = ys[site];
+            for (int k = neighborStarts[site]; k < neighborStarts[site + 1] && count > 0; k++) {
+                int other = neighbors[k];
+                double ox = xs[other], oy = ys[other];
+                // Keep the points p where (o - s) . p <= (|o|^2 - |s|^2) / 2, the site's side of the bisector.
+                double nx = ox - sx, ny = oy - sy;
+                double limit = (ox * ox + oy * oy - sx * sx - sy * sy) / 2;
+
+                int clippedCount = 0;
+                for (int v = 0; v < count; v++) {
+                    double px = polygon[v * 2], py = polygon[v * 2 + 1];
+                    int w = (v + 1) % count;
+                    double qx = polygon[w * 2], qy = polygon[w * 2 + 1];
+                    double pSide = nx * px + ny * py - limit;
+                    double qSide = nx * qx + ny * qy - limit;
+                    if (pSide <= 0) {
+                        clipped[clippedCount * 2] = px;
+                        clipped[clippedCount * 2 + 1] = py;
+                        clippedCount++;
+                    }
+                    if ((pSide < 0 && qSide > 0) || (pSide > 0 && qSide < 0)) {
+                        double t = pSide / (pSide - qSide);
+                        clipped[clippedCount * 2] = px + t * (qx - px);
+                        clipped[clippedCount * 2 + 1] = py + t * (qy - py);
+                        clippedCount++;
+                    }
+                }
+                double[] swap = polygon;
+                polygon = clipped;
+                clipped = swap;
+                count = clippedCount;
+            }
+
+            if ((corners + count) * 2 > vertices.length) {
+                vertices = Arrays.copyOf(vertices, Math.max(vertices.length * 2, (corners + count) * 2));
+            }
+            for (int v = 0; v < count * 2; v++) {
+                vertices[corners * 2 + v] = (float)polygon[v];
+            }
+            corners += count;
+        }
+        cellStarts[n] = corners;
+    }
+}
@@ -0,0 +1,356 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Works out the line segments of the substitution fractals FractalView draws.
+ *
+ * Every substitution step is a rotation and scaling of the parent line, so the leaves of a fractal
+ * swiped from any point to any other are the leaves of the fractal from (0, 0) to (1, 0) moved,
+ * rotated and scaled the same way. Those unit "templates" are built once per depth and kept in a
+ * small least-recently-used cache; drawing a fractal is then one affine transform of a template.
+ *
+ * Fractals deeper than a template are walked with an explicit stack of lines still to be split,
+ * so there is no recursion and nothing is allocated per line. The adaptive mode walks the stack all
+ * the way down instead, skipping any branch whose bounding circle is off screen and drawing a single
+ * line for any branch too small to show detail.
+ */
+public class FractalGeometry {
+
+    /**
+     * Receives segments in batches, ready for Canvas.drawLines().
+     */
+    public interface SegmentSink {
+
+        /**
+         * @param lines   The segments as x0, y0, x1, y1 groups. Only valid until this method returns.
+         * @param count   The number of floats to use from lines.
+         */
+        void segments(float[] lines, int count);
+    }
+
+    /**
+     * TEMPLATE_SEGMENTS | int: The most segments a single template may hold. Deeper fractals draw
+     * the deepest template that fits once for every line of a shallower one.
+     */
+    public static final int TEMPLATE_SEGMENTS = 1 << 16;
+
+    /**
+     * BATCH_FLOATS | int: How many floats the adaptive mode collects before handing them to the sink.
+     */
+    private static final int BATCH_FLOATS = 4 * 4096;
+
+    /**
+     * CACHE_BUDGET | int: How many floats the template cache may hold before it drops the least recently used.
+     */
+    private static final int CACHE_BUDGET = 1 << 19;
+
+    /**
+     * rule | FractalRule: The rule the cached templates were built with.
+     */
+    private FractalRule rule = null;
+
+    /**
+     * maxTemplateDepth | int: The deepest template of the current rule that fits in TEMPLATE_SEGMENTS.
+     */
+    private int maxTemplateDepth = 0;
+
+    /**
+     * templates | LinkedHashMap: The cached templates by depth, in least-recently-used order.
+     */
+    private final LinkedHashMap<Integer, float[]> templates = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * cachedFloats | int: The number of floats held by the cached templates.
+     */
+    private int cachedFloats = 0;
+
+    /**
+     * stackLines, stackDepths | float[], int[]: The lines still to be split, as x0, y0, x1, y1 groups,
+     * and how many more times each one has to be split.
+     */
+    private float[] stackLines = new float[4 * 64];
+    private int[] stackDepths = new int[64];
+
+    /**
+     * leafCounts | long[]: How many leaves a line splits into at each depth, stopping at Long.MAX_VALUE.
+     */
+    private long[] leafCounts = new long[0];
+
+    /**
+     * output | float[]: The reusable array templates are transformed into.
+     */
+    private float[] output = new float[0];
+
+    /**
+     * batch | float[]: Segments collected by the adaptive mode, waiting to go to the sink.
+     */
+    private final float[] batch = new float[BATCH_FLOATS];
+    private int batchCount = 0;
+
+    /**
+     * emittedCount | long: The number of segments sent to the sink by the last emit.
+     */
+    private long emittedCount = 0;
+
+    /**
+     * culledCount | long: The number of full-detail segments the last emit skipped.
+     */
+    private long culledCount = 0;
+
+    /**
+     * Sends every leaf segment of a fractal to a sink.
+     * @param rule    How each line is turned into several.
+     * @param depth   The depth of the fractal.
+     * @param fromX   The x coordinate of the point to draw from.
+     * @param fromY   The y coordinate of the point to draw from.
+     * @param toX     The x coordinate of the point to draw to.
+     * @param toY     The y coordinate of the point to draw to.
+     * @param sink    Where to send the segments.
+     */
+    public void emit(FractalRule rule, int depth, float fromX, float fromY, float toX, float toY, SegmentSink sink) {
+        walk(rule, depth, fromX, fromY, toX, toY, false, 0, 0, 0, 0, 0, sink);
+    }
+
+    /**
+     * Sends the leaf segments of a fractal that can actually be seen to a sink.
+     * Branches whose bounding circle misses the visible rectangle are skipped, and branches whose
+     * bounding circle is narrower than minLength are drawn as their own line instead of being split further.
+     * @param rule        How each line is turned into several.
+     * @param depth       The depth of the fractal.
+     * @param fromX       The x coordinate of the point to draw from.
+     * @param fromY       The y coordinate of the point to draw from.
+     * @param toX         The x coordinate of the point to draw to.
+     * @param toY         The y coordinate of the point to draw to.
+     * @param left        The left edge of the visible rectangle.
+     * @param top         The top edge of the visible rectangle.
+     * @param right       The right edge of the visible rectangle.
+     * @param bottom      The bottom edge of the visible rectangle.
+     * @param minLength   The size in pixels below which a branch isn't split any further.
+     * @param sink        Where to send the segments.
+     */
+    public void emitAdaptive(FractalRule rule, int depth, float fromX, float fromY, float toX, float toY,
+                      float left, float top, float right, float bottom, float minLength, SegmentSink sink) {
+        walk(rule, depth, fromX, fromY, toX, toY, true, left, top, right, bottom, minLength, sink);
+    }
+
+    /**
+     * Splits lines off the stack until every leaf has been sent to the sink, skipped or stood in for.
+     */
+    private void walk(FractalRule rule, int depth, float fromX, float fromY, float toX, float toY, boolean adaptive,
+                      float left, float top, float right, float bottom, float minLength, SegmentSink sink) {
+        useRule(rule);
+        prepare(depth);
+        float[] children = rule.getSegments();
+        float boundRadius = rule.getBoundRadius();
+        emittedCount = 0;
+        culledCount = 0;
+        batchCount = 0;
+
+        stackLines[0] = fromX;
+        stackLines[1] = fromY;
+        stackLines[2] = toX;
+        stackLines[3] = toY;
+        stackDepths[0] = depth;
+        int linesTop = 4;
+        int size = 1;
+        while (size > 0) {
+            size--;
+            linesTop -= 4;
+            int d = stackDepths[size];
+            float fx = stackLines[linesTop];
+            float fy = stackLines[linesTop + 1];
+            float tx = stackLines[linesTop + 2];
+            float ty = stackLines[linesTop + 3];
+            float dx = tx - fx;
+            float dy = ty - fy;
+
+            if (adaptive) {
+                float radius = boundRadius * (float)Math.sqrt(dx * dx + dy * dy);
+                float middleX = (fx + tx) / 2;
+                float middleY = (fy + ty) / 2;
+                if (middleX + radius < left || middleX - radius > right || middleY + radius < top || middleY - radius > bottom) {
+                    // Nothing in this branch can be seen.
+                    culledCount += leafCounts[d];
+                    continue;
+                }
+                if (d <= 0 || 2 * radius < minLength) {
+                    // Either a real leaf or a branch too small to show any detail, so draw just its line.
+                    if (batchCount == BATCH_FLOATS) {
+                        sink.segments(batch, batchCount);
+                        batchCount = 0;
+                    }
+                    batch[batchCount++] = fx;
+                    batch[batchCount++] = fy;
+                    batch[batchCount++] = tx;
+                    batch[batchCount++] = ty;
+                    emittedCount++;
+                    culledCount += leafCounts[d] - 1;
+                    continue;
+                }
+            } else if (d <= maxTemplateDepth) {
+                // The rest of this branch fits in one template.
+                float[] template = template(d);
+                transform(template, fx, fy, tx, ty, output);
+                emittedCount += template.length / 4;
+                sink.segments(output, template.length);
+                continue;
+            }
+
+            // We need to split this line some more.  Push its children, last first, so they come off in order.
+            for (int c = children.length - 4; c >= 0; c -= 4) {
+                stackLines[linesTop] = fx + children[c] * dx - children[c + 1] * dy;
+                stackLines[linesTop + 1] = fy + children[c] * dy + children[c + 1] * dx;
+                stackLines[linesTop + 2] = fx + children[c + 2] * dx - children[c + 3] * dy;
+                stackLines[linesTop + 3] = fy + children[c + 2] * dy + children[c + 3] * dx;
+                stackDepths[size] = d - 1;
+                linesTop += 4;
+                size++;
+            }
+        }
+
+        if (batchCount > 0) {
+            sink.segments(batch, batchCount);
+            batchCount = 0;
+        }
+    }
+
+    /**
+     * @return The number of segments sent to the sink by the last emit.
+     */
+    public long getEmittedCount() {
+        return emittedCount;
+    }
+
+    /**
+     * @return The number of full-detail segments the last emit skipped, because they were off screen
+     *         or stood in for by a single line.
+     */
+    public long getCulledCount() {
+        return culledCount;
+    }
+
+    /**
+     * Gets the leaves of the fractal from (0, 0) to (1, 0) under the current rule, from the cache if possible.
+     * @param depth   The depth of the fractal, at most maxTemplateDepth.
+     * @return The segments as x0, y0, x1, y1 groups.
+     */
+    private float[] template(int depth) {
+        float[] template = templates.get(depth);
+        if (template != null) {
+            return template;
+        }
+
+        // Start from the deepest shallower template still cached and split it one level at a time.
+        int built = depth - 1;
+        float[] parent = null;
+        while (built >= 0 && (parent = templates.get(built)) == null) {
+            built--;
+        }
+        if (parent == null) {
+            parent = new float[]{0f, 0f, 1f, 0f};
+            built = 0;
+        }
+
+        float[] children = rule.getSegments();
+        for (int level = built + 1; level < depth; level++) {
+            parent = split(parent, children);
+        }
+        template = depth > 0 ? split(parent, children) : parent;
+
+        templates.put(depth, template);
+        cachedFloats += template.length;
+        trimCache();
+        return template;
+    }
+
+    /**
+     * Turns each segment of a template into several.
+     */
+    private static float[] split(float[] parent, float[] children) {
+        float[] template = new float[parent.length / 4 * children.length];
+        int t = 0;
+        for (int i = 0; i < parent.length; i += 4) {
+            float fromX = parent[i], fromY = parent[i + 1];
+            float dx = parent[i + 2] - fromX, dy = parent[i + 3] - fromY;
+            for (int c = 0; c < children.length; c += 4) {
+                template[t++] = fromX + children[c] * dx - children[c + 1] * dy;
+                template[t++] = fromY + children[c] * dy + children[c + 1] * dx;
+                template[t++] = fromX + children[c + 2] * dx - children[c + 3] * dy;
+                template[t++] = fromY + children[c + 2] * dy + children[c + 3] * dx;
+            }
+        }
+        return template;
+    }
+
+    /**
+     * Switches to a rule, dropping the templates built with the old one.
+     */
+    private void useRule(FractalRule rule) {
+        if (rule == this.rule) {
+            return;
+        }
+        this.rule = rule;
+        templates.clear();
+        cachedFloats = 0;
+
+        int count = rule.getSegmentCount();
+        maxTemplateDepth = 0;
+        for (long segments = count; count > 1 && segments <= TEMPLATE_SEGMENTS; segments *= count) {
+            maxTemplateDepth++;
+        }
+        if (output.length < 4 * TEMPLATE_SEGMENTS) {
+            output = new float[4 * TEMPLATE_SEGMENTS];
+        }
+    }
+
+    /**
+     * Makes sure the stack can hold the deepest walk and the leaf counts go deep enough.
+     * Splitting pops one line and pushes the rule's lines, so each level can add at most that many minus one.
+     */
+    private void prepare(int depth) {
+        int count = rule.getSegmentCount();
+        int capacity = depth * (count - 1) + 1;
+        if (stackDepths.length < capacity) {
+            stackDepths = Arrays.copyOf(stackDepths, capacity);
+            stackLines = Arrays.copyOf(stackLines, 4 * capacity);
+        }
+
+        if (leafCounts.length < depth + 1) {
+            leafCounts = new long[depth + 1];
+        }
+        leafCounts[0] = 1;
+        for (int d = 1; d <= depth; d++) {
+            leafCounts[d] = leafCounts[d - 1] > Long.MAX_VALUE / count ? Long.MAX_VALUE : leafCounts[d - 1] * count;
+        }
+    }
+
+    /**
+     * Drops the least recently used templates until the cache fits its budget again,
+     * always keeping the newest one.
+     */
+    private void trimCache() {
+        Iterator<Map.Entry<Integer, float[]>> eldest = templates.entrySet().iterator();
+        while (cachedFloats > CACHE_BUDGET && templates.size() > 1) {
+            cachedFloats -= eldest.next().getValue().length;
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Moves, rotates and scales unit segments onto the line from one point to another.
+     */
+    private static void transform(float[] template, float fromX, float fromY, float toX, float toY, float[] out) {
+        float dx = toX - fromX;
+        float dy = toY - fromY;
+        for (int i = 0; i < template.length; i += 2) {
+            float ux = template[i];
+            float uy = template[i + 1];
+            out[i] = fromX + ux * dx - uy * dy;
+            out[i + 1] = fromY + ux * dy + uy * dx;
+        }
+    }
+}
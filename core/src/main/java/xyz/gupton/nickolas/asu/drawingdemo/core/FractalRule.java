@@ -0,0 +1,122 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+/**
+ * A substitution rule for FractalGeometry: how one line is turned into several smaller lines.
+ *
+ * The rule is stored as data in the frame of a line from (0, 0) to (1, 0). A point (u, v) in that frame
+ * lands at from + u * (to - from) + v * perpendicular(to - from) on a real line, so every child line is
+ * the parent line moved, rotated and scaled, and the children of the children follow the same way.
+ */
+public class FractalRule {
+
+    /**
+     * PAPERFOLDING | FractalRule: The regular paperfolding sequence, the fractal this demo always drew.
+     */
+    public static final FractalRule PAPERFOLDING = new FractalRule("Paperfolding", new float[]{
+            0.000f, 0.000f, 0.450f, 0.150f,
+            0.250f, 0.000f, 0.610f, 0.140f,
+            0.575f, -0.175f, 0.450f, 0.150f,
+            0.610f, 0.140f, 0.750f, 0.000f
+    });
+
+    /**
+     * KOCH | FractalRule: The Koch curve, with the bump on the left of the line.
+     */
+    public static final FractalRule KOCH = new FractalRule("Koch curve", new float[]{
+            0.0f, 0.0f, 1 / 3.0f, 0.0f,
+            1 / 3.0f, 0.0f, 0.5f, (float)(-Math.sqrt(3) / 6),
+            0.5f, (float)(-Math.sqrt(3) / 6), 2 / 3.0f, 0.0f,
+            2 / 3.0f, 0.0f, 1.0f, 0.0f
+    });
+
+    /**
+     * DRAGON | FractalRule: The Heighway dragon. The second line runs backwards, which is what makes it fold.
+     */
+    public static final FractalRule DRAGON = new FractalRule("Heighway dragon", new float[]{
+            0.0f, 0.0f, 0.5f, -0.5f,
+            1.0f, 0.0f, 0.5f, -0.5f
+    });
+
+    /**
+     * LEVY_C | FractalRule: The Levy C curve, the dragon with both lines running forwards.
+     */
+    public static final FractalRule LEVY_C = new FractalRule("L\u00e9vy C curve", new float[]{
+            0.0f, 0.0f, 0.5f, -0.5f,
+            0.5f, -0.5f, 1.0f, 0.0f
+    });
+
+    /**
+     * RULES | FractalRule[]: Every built-in rule, in the order they appear in the menu.
+     */
+    public static final FractalRule[] RULES = {PAPERFOLDING, KOCH, DRAGON, LEVY_C};
+
+    /**
+     * name | String: The name shown to the user.
+     */
+    private final String name;
+
+    /**
+     * segments | float[]: The child lines as u0, v0, u1, v1 groups in the frame of the unit line.
+     */
+    private final float[] segments;
+
+    /**
+     * boundRadius | float: Every leaf of a fractal lies within this many line lengths of the middle of its line.
+     */
+    private final float boundRadius;
+
+    /**
+     * Sets up a new FractalRule.
+     * @param name       The name shown to the user.
+     * @param segments   The child lines as u0, v0, u1, v1 groups. Each must be shorter than the unit line.
+     */
+    public FractalRule(String name, float[] segments) {
+        if (segments.length == 0 || segments.length % 4 != 0) {
+            throw new IllegalArgumentException("A rule needs at least one line of four coordinates");
+        }
+        this.name = name;
+        this.segments = segments.clone();
+        this.boundRadius = boundRadius(this.segments);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The child lines as u0, v0, u1, v1 groups. Must not be changed.
+     */
+    public float[] getSegments() {
+        return segments;
+    }
+
+    /**
+     * @return The number of lines each line turns into.
+     */
+    public int getSegmentCount() {
+        return segments.length / 4;
+    }
+
+    public float getBoundRadius() {
+        return boundRadius;
+    }
+
+    /**
+     * Works out the bound radius for a rule.
+     * Each child line is the unit line scaled by r_k about some point, so a circle around the middle of
+     * the unit line that holds the line and holds every child's own circle holds every leaf, which for a
+     * child with middle m_k needs a radius of at least |m_k - (0.5, 0)| / (1 - r_k).
+     */
+    private static float boundRadius(float[] segments) {
+        double radius = 0.5;
+        for (int i = 0; i < segments.length; i += 4) {
+            double scale = Math.hypot(segments[i + 2] - segments[i], segments[i + 3] - segments[i + 1]);
+            if (scale >= 1) {
+                throw new IllegalArgumentException("Every line of a rule must be shorter than the line it replaces");
+            }
+            double offset = Math.hypot((segments[i] + segments[i + 2]) / 2 - 0.5, (segments[i + 1] + segments[i + 3]) / 2);
+            radius = Math.max(radius, offset / (1 - scale));
+        }
+        return (float)radius;
+    }
+}
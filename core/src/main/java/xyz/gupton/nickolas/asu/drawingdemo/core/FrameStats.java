@@ -0,0 +1,172 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+import java.util.Locale;
+
+/**
+ * Keeps the timings of the last few frames: how long updating and drawing took, and how many
+ * vsyncs went by without a frame when there was work waiting for one.
+ *
+ * The vsync period is taken from the shortest gap seen between two frames, so it follows 60, 90
+ * and 120Hz displays without asking the platform, starting from 60Hz until two frames run back to back.
+ */
+public class FrameStats {
+
+    /**
+     * DEFAULT_PERIOD_NANOS | long: The vsync period assumed until a shorter one is seen, 60Hz.
+     */
+    public static final long DEFAULT_PERIOD_NANOS = 16666667L;
+
+    /**
+     * MIN_PERIOD_NANOS | long: Gaps shorter than this, 250Hz, are taken as timestamp jitter rather than the period.
+     */
+    private static final long MIN_PERIOD_NANOS = 4000000L;
+
+    /**
+     * updateNanos, drawNanos | long[]: The update and draw time of each frame in the window, used as a ring.
+     */
+    private final long[] updateNanos;
+    private final long[] drawNanos;
+
+    /**
+     * frameCount | long: The number of frames started.
+     */
+    private long frameCount = 0;
+
+    /**
+     * droppedFrames | long: The number of vsyncs missed while work was waiting.
+     */
+    private long droppedFrames = 0;
+
+    /**
+     * periodNanos | long: The vsync period.
+     */
+    private long periodNanos = DEFAULT_PERIOD_NANOS;
+
+    /**
+     * lastFrameNanos | long: When the last frame started, or -1 before the first.
+     */
+    private long lastFrameNanos = -1;
+
+    /**
+     * Sets up a new FrameStats.
+     * @param window   How many of the most recent frames the averages cover.
+     */
+    public FrameStats(int window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("The window must hold at least one frame");
+        }
+        updateNanos = new long[window];
+        drawNanos = new long[window];
+    }
+
+    /**
+     * Starts a new frame. Update and draw times are added to it until the next one starts.
+     * @param frameNanos     The vsync time the frame is for, on the System.nanoTime() clock.
+     * @param requestNanos   When the work the frame is doing was first asked for, on the same clock.
+     */
+    public void beginFrame(long frameNanos, long requestNanos) {
+        if (lastFrameNanos >= 0) {
+            long gap = frameNanos - lastFrameNanos;
+            if (gap >= MIN_PERIOD_NANOS && gap < periodNanos) {
+                periodNanos = gap;
+            }
+        }
+        lastFrameNanos = frameNanos;
+
+        // The work should have been done on the first vsync after it was asked for, about one period later.
+        // Rounding leaves room for the request landing just either side of a vsync.
+        long waited = (frameNanos - requestNanos + periodNanos / 2) / periodNanos;
+        if (waited > 1) {
+            droppedFrames += waited - 1;
+        }
+
+        int i = (int)(frameCount % updateNanos.length);
+        updateNanos[i] = 0;
+        drawNanos[i] = 0;
+        frameCount++;
+    }
+
+    /**
+     * Adds time spent updating to the current frame.
+     */
+    public void addUpdateTime(long nanos) {
+        if (frameCount > 0) {
+            updateNanos[(int)((frameCount - 1) % updateNanos.length)] += nanos;
+        }
+    }
+
+    /**
+     * Adds time spent drawing to the current frame.
+     */
+    public void addDrawTime(long nanos) {
+        if (frameCount > 0) {
+            drawNanos[(int)((frameCount - 1) % drawNanos.length)] += nanos;
+        }
+    }
+
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    /**
+     * @return The vsync period in milliseconds.
+     */
+    public double getPeriodMillis() {
+        return periodNanos / 1e6;
+    }
+
+    /**
+     * @return The average update time of the frames in the window, in milliseconds.
+     */
+    public double getUpdateMillis() {
+        return average(updateNanos);
+    }
+
+    /**
+     * @return The average draw time of the frames in the window, in milliseconds.
+     */
+    public double getDrawMillis() {
+        return average(drawNanos);
+    }
+
+    /**
+     * @return The longest update plus draw time of the frames in the window, in milliseconds.
+     */
+    public double getWorstFrameMillis() {
+        long worst = 0;
+        int frames = (int)Math.min(frameCount, updateNanos.length);
+        for (int i = 0; i < frames; i++) {
+            worst = Math.max(worst, updateNanos[i] + drawNanos[i]);
+        }
+        return worst / 1e6;
+    }
+
+    public void clear() {
+        frameCount = 0;
+        droppedFrames = 0;
+        periodNanos = DEFAULT_PERIOD_NANOS;
+        lastFrameNanos = -1;
+    }
+
+    private double average(long[] nanos) {
+        int frames = (int)Math.min(frameCount, nanos.length);
+        if (frames == 0) {
+            return 0;
+        }
+        long total = 0;
+        for (int i = 0; i < frames; i++) {
+            total += nanos[i];
+        }
+        return total / 1e6 / frames;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "update %.2f ms, draw %.2f ms, worst %.2f ms, %d dropped of %d frames",
+                getUpdateMillis(), getDrawMillis(), getWorstFrameMillis(), droppedFrames, frameCount);
+    }
+}
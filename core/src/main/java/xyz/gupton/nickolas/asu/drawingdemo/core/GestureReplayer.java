@@ -0,0 +1,164 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+import java.util.Locale;
+
+/**
+ * Plays a GestureTrace into something that draws, as fast as it can, and reports how long the touch
+ * handling and the drawing took.
+ *
+ * The samples are grouped into frames by their timestamps and handed over one TouchBatch per frame,
+ * the same way TouchInput does on a device, and the target draws once after each frame that had input.
+ * Frames run back to back rather than waiting for their time to come, so the result is throughput,
+ * not latency. Once the last frame is drawn the target finishes any work it is still doing in the
+ * background, and that wait is part of the total.
+ */
+public class GestureReplayer {
+
+    /**
+     * Something a trace can be played into, such as a View drawing to an off-screen canvas.
+     */
+    public interface Target {
+
+        /**
+         * Handles the samples of one frame.
+         * @param batch   The samples, oldest first. Only valid until this method returns.
+         */
+        void onTouchBatch(TouchBatch batch);
+
+        /**
+         * Draws the frame.
+         */
+        void drawFrame();
+
+        /**
+         * Waits for any work the target is still doing on other threads, after the last frame.
+         */
+        void finish();
+    }
+
+    /**
+     * What a replay measured.
+     */
+    public static class Result {
+
+        /**
+         * samples, frames | long: How many samples and frames were played.
+         */
+        private final long samples;
+        private final long frames;
+
+        /**
+         * touchNanos, drawNanos, finishNanos, totalNanos | long: Time spent handling touches, drawing,
+         * waiting for the background work at the end, and altogether.
+         */
+        private final long touchNanos;
+        private final long drawNanos;
+        private final long finishNanos;
+        private final long totalNanos;
+
+        Result(long samples, long frames, long touchNanos, long drawNanos, long finishNanos, long totalNanos) {
+            this.samples = samples;
+            this.frames = frames;
+            this.touchNanos = touchNanos;
+            this.drawNanos = drawNanos;
+            this.finishNanos = finishNanos;
+            this.totalNanos = totalNanos;
+        }
+
+        public long getSamples() {
+            return samples;
+        }
+
+        public long getFrames() {
+            return frames;
+        }
+
+        public long getTouchNanos() {
+            return touchNanos;
+        }
+
+        public long getDrawNanos() {
+            return drawNanos;
+        }
+
+        public long getFinishNanos() {
+            return finishNanos;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public double getFramesPerSecond() {
+            return totalNanos == 0 ? 0 : frames * 1e9 / totalNanos;
+        }
+
+        public double getSamplesPerSecond() {
+            return totalNanos == 0 ? 0 : samples * 1e9 / totalNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%d samples in %d frames, %.0f frames/s (touch %.2f ms, draw %.2f ms per frame, "
+                            + "%.1f ms finishing in the background)",
+                    samples, frames, getFramesPerSecond(),
+                    frames == 0 ? 0 : touchNanos / 1e6 / frames, frames == 0 ? 0 : drawNanos / 1e6 / frames, finishNanos / 1e6);
+        }
+    }
+
+    /**
+     * frameMillis | double: How long each frame lasts in the trace's time.
+     */
+    private final double frameMillis;
+
+    /**
+     * The samples of the frame being played, and the batch they are handed over in.
+     */
+    private final TouchRingBuffer samples = new TouchRingBuffer(64);
+    private final TouchBatch batch = new TouchBatch();
+
+    /**
+     * Sets up a new GestureReplayer.
+     * @param frameRate   The refresh rate to group the samples by, such as 60.
+     */
+    public GestureReplayer(double frameRate) {
+        if (!(frameRate > 0)) {
+            throw new IllegalArgumentException("The frame rate must be more than 0");
+        }
+        frameMillis = 1000 / frameRate;
+    }
+
+    /**
+     * Plays a whole trace into a target.
+     */
+    public Result replay(GestureTrace trace, Target target) {
+        long frames = 0;
+        long touchNanos = 0;
+        long drawNanos = 0;
+        long start = System.nanoTime();
+        int i = 0;
+        while (i < trace.size()) {
+            // Everything up to the end of the frame the next sample falls in is one batch.
+            double frameEnd = (Math.floor(trace.getTime(i) / frameMillis) + 1) * frameMillis;
+            do {
+                samples.push(trace.getAction(i), trace.getX(i), trace.getY(i), trace.getTime(i));
+                i++;
+            } while (i < trace.size() && trace.getTime(i) < frameEnd);
+            samples.drainTo(batch);
+
+            long touchStart = System.nanoTime();
+            target.onTouchBatch(batch);
+            long drawStart = System.nanoTime();
+            target.drawFrame();
+            long drawEnd = System.nanoTime();
+            touchNanos += drawStart - touchStart;
+            drawNanos += drawEnd - drawStart;
+            frames++;
+        }
+
+        long finishStart = System.nanoTime();
+        target.finish();
+        long end = System.nanoTime();
+        return new Result(trace.size(), frames, touchNanos, drawNanos, end - finishStart, end - start);
+    }
+}
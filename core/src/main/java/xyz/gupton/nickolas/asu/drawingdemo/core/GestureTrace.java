@@ -0,0 +1,229 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A recording of touch samples that can be saved, loaded and replayed, so every build can be
+ * timed against exactly the same input.
+ *
+ * Saved traces start with the magic number "GTR1" and the number of samples, followed by each
+ * sample as its action in one byte, the milliseconds since the previous sample as a variable-length
+ * integer (one byte for anything under 128ms), and its x and y as floats: about ten bytes a sample.
+ * Times are kept relative to the first sample, which is at 0.
+ */
+public class GestureTrace {
+
+    /**
+     * MAGIC | int: "GTR1", the start of every saved trace.
+     */
+    private static final int MAGIC = 0x47545231;
+
+    /**
+     * actions, xs, ys, times | byte[], float[], float[], long[]: Each sample's TouchBatch action, position and time.
+     */
+    private byte[] actions = new byte[64];
+    private float[] xs = new float[64];
+    private float[] ys = new float[64];
+    private long[] times = new long[64];
+    private int size = 0;
+
+    /**
+     * firstTime | long: The time of the first sample as it was given to add().
+     */
+    private long firstTime;
+
+    /**
+     * Adds a sample to the end of the trace.
+     * @param action   One of the TouchBatch action constants.
+     * @param time     When it happened in milliseconds, on any clock, no earlier than the last sample.
+     */
+    public void add(int action, float x, float y, long time) {
+        if (action < TouchBatch.DOWN || action > TouchBatch.CANCEL) {
+            throw new IllegalArgumentException("Unknown action " + action);
+        }
+        if (size == 0) {
+            firstTime = time;
+        } else if (time - firstTime < times[size - 1]) {
+            throw new IllegalArgumentException("Samples must be added in time order");
+        }
+        if (size == actions.length) {
+            int length = size * 2;
+            actions = Arrays.copyOf(actions, length);
+            xs = Arrays.copyOf(xs, length);
+            ys = Arrays.copyOf(ys, length);
+            times = Arrays.copyOf(times, length);
+        }
+        actions[size] = (byte)action;
+        xs[size] = x;
+        ys[size] = y;
+        times[size] = time - firstTime;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getAction(int i) {
+        return actions[i];
+    }
+
+    public float getX(int i) {
+        return xs[i];
+    }
+
+    public float getY(int i) {
+        return ys[i];
+    }
+
+    /**
+     * @return When the sample happened, in milliseconds after the first one.
+     */
+    public long getTime(int i) {
+        return times[i];
+    }
+
+    /**
+     * @return How long the trace lasts in milliseconds.
+     */
+    public long getDuration() {
+        return size == 0 ? 0 : times[size - 1];
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Saves the trace. The stream is left open.
+     */
+    public void write(OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(MAGIC);
+        out.writeInt(size);
+        long last = 0;
+        for (int i = 0; i < size; i++) {
+            out.writeByte(actions[i]);
+            writeVarLong(out, times[i] - last);
+            out.writeFloat(xs[i]);
+            out.writeFloat(ys[i]);
+            last = times[i];
+        }
+        out.flush();
+    }
+
+    /**
+     * Loads a trace saved by write(). The stream is left open.
+     * @throws IOException   If the stream doesn't hold a whole trace.
+     */
+    public static GestureTrace read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a gesture trace");
+        }
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("Bad sample count " + count);
+        }
+        GestureTrace trace = new GestureTrace();
+        long time = 0;
+        for (int i = 0; i < count; i++) {
+            int action = in.readByte();
+            time += readVarLong(in);
+            float x = in.readFloat();
+            float y = in.readFloat();
+            try {
+                trace.add(action, x, y, time);
+            } catch (IllegalArgumentException ex) {
+                throw new IOException("Bad sample " + i + ": " + ex.getMessage());
+            }
+        }
+        return trace;
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int)(value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int)value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long)(b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new EOFException("Variable-length integer is too long");
+    }
+
+    /**
+     * Makes a trace of quick taps at random places, like adding points to the Voronoi diagram.
+     * @param count   How many taps.
+     */
+    public static GestureTrace taps(int count, float width, float height, long seed) {
+        Random random = new Random(seed);
+        GestureTrace trace = new GestureTrace();
+        long time = 0;
+        for (int i = 0; i < count; i++) {
+            float x = random.nextFloat() * width;
+            float y = random.nextFloat() * height;
+            trace.add(TouchBatch.DOWN, x, y, time);
+            trace.add(TouchBatch.UP, x, y, time + 50);
+            time += 150;
+        }
+        return trace;
+    }
+
+    /**
+     * Makes a trace of straight swipes between random places, like drawing the fractals.
+     * @param count   How many swipes.
+     * @param moves   How many move samples each swipe has, at 240Hz like a fast touch panel.
+     */
+    public static GestureTrace swipes(int count, int moves, float width, float height, long seed) {
+        Random random = new Random(seed);
+        GestureTrace trace = new GestureTrace();
+        long time = 0;
+        for (int i = 0; i < count; i++) {
+            float fromX = random.nextFloat() * width;
+            float fromY = random.nextFloat() * height;
+            float toX = random.nextFloat() * width;
+            float toY = random.nextFloat() * height;
+            trace.add(TouchBatch.DOWN, fromX, fromY, time);
+            for (int m = 1; m <= moves; m++) {
+                float t = (float)m / (moves + 1);
+                trace.add(TouchBatch.MOVE, fromX + t * (toX - fromX), fromY + t * (toY - fromY), time + m * 4);
+            }
+            trace.add(TouchBatch.UP, toX, toY, time + (moves + 1) * 4);
+            time += (moves + 1) * 4 + 300;
+        }
+        return trace;
+    }
+
+    /**
+     * Makes a trace that drags from a point around a circle, like dragging a handle of the Bezier curve.
+     * @param moves   How many move samples, at 240Hz.
+     */
+    public static GestureTrace drag(float startX, float startY, float radius, int moves) {
+        GestureTrace trace = new GestureTrace();
+        trace.add(TouchBatch.DOWN, startX, startY, 0);
+        for (int m = 1; m <= moves; m++) {
+            double angle = 2 * Math.PI * m / moves;
+            trace.add(TouchBatch.MOVE, startX + radius * (float)Math.sin(angle),
+                    startY + radius * (1 - (float)Math.cos(angle)), m * 4);
+        }
+        trace.add(TouchBatch.UP, startX, startY, (moves + 1) * 4);
+        return trace;
+    }
+}
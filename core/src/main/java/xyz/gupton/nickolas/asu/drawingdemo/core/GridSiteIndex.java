@@ -0,0 +1,284 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+import java.util.Arrays;
+
+/**
+ * A NearestSiteIndex that buckets the sites into a uniform grid of cells.
+ * A query looks at the cell it falls in and then at rings of cells around it,
+ * stopping as soon as no unvisited cell could hold anything closer.
+ * The grid is rebuilt whenever the number of sites doubles so each cell keeps only a few sites.
+ * Moving or removing a site only relinks it between two cells, so a dragged site costs next to nothing.
+ */
+public class GridSiteIndex implements NearestSiteIndex {
+
+    /**
+     * SITES_PER_CELL | int: How many sites each cell should hold on average right after a rebuild.
+     */
+    private static final int SITES_PER_CELL = 2;
+
+    /**
+     * MIN_CELL_SIZE | float: The smallest cell size in pixels, so a few sites don't make a huge grid.
+     */
+    private static final float MIN_CELL_SIZE = 8f;
+
+    /**
+     * points | PointStore: The sites.
+     */
+    private final PointStore points;
+
+    /**
+     * next | int[]: For each site, the next site in the same cell, or -1 at the end of the cell.
+     */
+    private int[] next = new int[16];
+
+    /**
+     * head | int[]: For each cell, the first site in it, or -1 if it is empty.
+     */
+    private int[] head = {-1};
+
+    /**
+     * size | int: The number of sites that have been put in the grid.
+     */
+    private int size = 0;
+
+    /**
+     * rebuildAt | int: The number of sites at which the grid gets rebuilt with smaller cells.
+     */
+    private int rebuildAt = 16;
+
+    /**
+     * width, height | int: The area the grid covers. Sites outside it go in the edge cells.
+     */
+    private int width = 1;
+    private int height = 1;
+
+    /**
+     * cellSize | float: The width and height of each cell in pixels.
+     */
+    private float cellSize = 1f;
+
+    /**
+     * cols, rows | int: The number of cells across and down.
+     */
+    private int cols = 1;
+    private int rows = 1;
+
+    /**
+     * Sets up a GridSiteIndex over the given sites.
+     * @param points   The sites.
+     */
+    public GridSiteIndex(PointStore points) {
+        this.points = points;
+        update();
+    }
+
+    @Override
+    public void setBounds(int width, int height) {
+        this.width = Math.max(1, width);
+        this.height = Math.max(1, height);
+        rebuild();
+    }
+
+    @Override
+    public void update() {
+        int count = points.size();
+        if (count < size || count >= rebuildAt) {
+            // Points were cleared, or there are enough new ones for smaller cells.
+            size = count;
+            rebuild();
+            return;
+        }
+
+        if (next.length < count) {
+            next = Arrays.copyOf(next, Math.max(count, next.length * 2));
+        }
+        while (size < count) {
+            link(size++);
+        }
+    }
+
+    @Override
+    public void moved(int site, float oldX, float oldY) {
+        unlink(site, cell(oldX, oldY));
+        link(site);
+    }
+
+    @Override
+    public void removed(int site, float oldX, float oldY) {
+        int last = size - 1;
+        unlink(site, cell(oldX, oldY));
+        if (last != site) {
+            // The last site now goes by the removed one's number, from the same spot.
+            unlink(last, cell(points.getX(site), points.getY(site)));
+            link(site);
+        }
+        size--;
+    }
+
+    @Override
+    public PointStore getPoints() {
+        return points;
+    }
+
+    @Override
+    public int nearest(float x, float y) {
+        if (size == 0) {
+            return -1;
+        }
+
+        int cx = col(x);
+        int cy = row(y);
+        int lastRing = Math.max(Math.max(cx, cols - 1 - cx), Math.max(cy, rows - 1 - cy));
+
+        int closest = -1;
+        float closestDist = Float.POSITIVE_INFINITY;
+        for (int ring = 0; ring <= lastRing; ring++) {
+            if (closest != -1 && ring > 0) {
+                // Everything in this ring is at least this far away, so stop if that's too far.
+                float gap = ringGap(x, y, cx, cy, ring);
+                if (gap > 0 && gap * gap > closestDist) {
+                    break;
+                }
+            }
+
+            int top = cy - ring;
+            int bottom = cy + ring;
+            int left = Math.max(cx - ring, 0);
+            int right = Math.min(cx + ring, cols - 1);
+            for (int c = left; c <= right; c++) {
+                if (top >= 0) {
+                    closest = scanCell(top * cols + c, x, y, closest, closestDist);
+                    closestDist = distance(closest, x, y);
+                }
+                if (ring > 0 && bottom < rows) {
+                    closest = scanCell(bottom * cols + c, x, y, closest, closestDist);
+                    closestDist = distance(closest, x, y);
+                }
+            }
+            if (ring > 0) {
+                for (int r = Math.max(top + 1, 0); r <= Math.min(bottom - 1, rows - 1); r++) {
+                    if (cx - ring >= 0) {
+                        closest = scanCell(r * cols + cx - ring, x, y, closest, closestDist);
+                        closestDist = distance(closest, x, y);
+                    }
+                    if (cx + ring < cols) {
+                        closest = scanCell(r * cols + cx + ring, x, y, closest, closestDist);
+                        closestDist = distance(closest, x, y);
+                    }
+                }
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Checks every site in one cell against the closest site found so far.
+     * @return The closest site after checking the cell.
+     */
+    private int scanCell(int cell, float x, float y, int closest, float closestDist) {
+        float[] xs = points.getXs();
+        float[] ys = points.getYs();
+        for (int i = head[cell]; i != -1; i = next[i]) {
+            float dist = ((x-xs[i]) * (x-xs[i])) + ((y-ys[i]) * (y-ys[i]));
+            if (dist < closestDist || (dist == closestDist && i < closest)) {
+                closest = i;
+                closestDist = dist;
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * @return The squared distance from the location to the site, or infinity if there is no site.
+     */
+    private float distance(int site, float x, float y) {
+        if (site == -1) {
+            return Float.POSITIVE_INFINITY;
+        }
+        float sx = points.getX(site);
+        float sy = points.getY(site);
+        return ((x-sx) * (x-sx)) + ((y-sy) * (y-sy));
+    }
+
+    /**
+     * Works out how close a site in the given ring could possibly be.
+     * Sides of the ring that run off the grid have no cells beyond them, so they don't count.
+     * @return The smallest distance from the location to a cell in the ring.
+     */
+    private float ringGap(float x, float y, int cx, int cy, int ring) {
+        float gap = Float.POSITIVE_INFINITY;
+        if (cx - ring >= 0) {
+            gap = Math.min(gap, x - (cx - ring + 1) * cellSize);
+        }
+        if (cx + ring < cols) {
+            gap = Math.min(gap, (cx + ring) * cellSize - x);
+        }
+        if (cy - ring >= 0) {
+            gap = Math.min(gap, y - (cy - ring + 1) * cellSize);
+        }
+        if (cy + ring < rows) {
+            gap = Math.min(gap, (cy + ring) * cellSize - y);
+        }
+        // Leave a little slack for rounding in the cell calculations.
+        return gap - cellSize * 1e-4f;
+    }
+
+    /**
+     * Sizes the grid for the current number of sites and puts every site back in it.
+     */
+    private void rebuild() {
+        int targetCells = Math.max(1, size / SITES_PER_CELL);
+        cellSize = Math.max(MIN_CELL_SIZE, (float)Math.sqrt((double)width * height / targetCells));
+        cols = Math.max(1, (int)Math.ceil(width / cellSize));
+        rows = Math.max(1, (int)Math.ceil(height / cellSize));
+
+        if (head.length < cols * rows) {
+            head = new int[cols * rows];
+        }
+        if (next.length < size) {
+            next = new int[size];
+        }
+        Arrays.fill(head, 0, cols * rows, -1);
+        for (int i = 0; i < size; i++) {
+            link(i);
+        }
+        rebuildAt = Math.max(16, size * 2);
+    }
+
+    /**
+     * Puts a site at the front of the list for the cell it is in.
+     */
+    private void link(int site) {
+        int cell = cell(points.getX(site), points.getY(site));
+        next[site] = head[cell];
+        head[cell] = site;
+    }
+
+    /**
+     * Takes a site out of the list for a cell. The lists are short, so walking one is cheap.
+     */
+    private void unlink(int site, int cell) {
+        if (head[cell] == site) {
+            head[cell] = next[site];
+            return;
+        }
+        for (int i = head[cell]; i != -1; i = next[i]) {
+            if (next[i] == site) {
+                next[i] = next[site];
+                return;
+            }
+        }
+    }
+
+    private int cell(float x, float y) {
+        return row(y) * cols + col(x);
+    }
+
+    private int col(float x) {
+        return Math.min(Math.max((int)(x / cellSize), 0), cols - 1);
+    }
+
+    private int row(float y) {
+        return Math.min(Math.max((int)(y / cellSize), 0), rows - 1);
+    }
+}
@@ -0,0 +1,203 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+import java.util.Arrays;
+
+/**
+ * Finds the handle closest to a touch, for views with draggable points.
+ *
+ * Handles are numbered from 0 and hashed into buckets by the grid cell they are in, with each bucket
+ * a doubly linked list kept in int arrays, so moving a handle while it is dragged is a couple of array
+ * writes and a query only looks at the cells within the search radius. Nothing is allocated per
+ * query or per move; the arrays only grow when handles are added.
+ */
+public class HandleIndex {
+
+    /**
+     * NONE | int: Marks the end of a bucket, or a handle that isn't in the index.
+     */
+    private static final int NONE = -1;
+
+    /**
+     * cellSize | float: The width and height of each grid cell. Queries are fastest when this is their radius.
+     */
+    private final float cellSize;
+
+    /**
+     * xs, ys | float[]: Where each handle is.
+     */
+    private float[] xs = new float[16];
+    private float[] ys = new float[16];
+
+    /**
+     * bucketOf | int[]: The bucket each handle is in, or NONE if it isn't in the index.
+     */
+    private int[] bucketOf = new int[16];
+
+    /**
+     * next, prev | int[]: The handles after and before each handle in its bucket.
+     */
+    private int[] next = new int[16];
+    private int[] prev = new int[16];
+
+    /**
+     * heads | int[]: The first handle in each bucket. The length is always a power of two.
+     */
+    private int[] heads = new int[16];
+
+    /**
+     * size | int: The number of handles in the index.
+     */
+    private int size = 0;
+
+    /**
+     * Sets up a new, empty HandleIndex.
+     * @param cellSize   The width and height of each grid cell, usually the touch radius.
+     */
+    public HandleIndex(float cellSize) {
+        if (!(cellSize > 0)) {
+            throw new IllegalArgumentException("The cell size must be more than 0");
+        }
+        this.cellSize = cellSize;
+        Arrays.fill(heads, NONE);
+        Arrays.fill(bucketOf, NONE);
+    }
+
+    /**
+     * Puts a handle in the index, or moves it if it is already there.
+     */
+    public void set(int handle, float x, float y) {
+        if (handle >= bucketOf.length) {
+            grow(handle + 1);
+        }
+        int bucket = bucket(x, y);
+        if (bucketOf[handle] == NONE) {
+            size++;
+            if (size > heads.length) {
+                xs[handle] = x;
+                ys[handle] = y;
+                bucketOf[handle] = bucket;
+                rehash(heads.length * 2);
+                return;
+            }
+        } else if (bucketOf[handle] != bucket) {
+            unlink(handle);
+        } else {
+            // Still in the same bucket, so only the position changes.
+            xs[handle] = x;
+            ys[handle] = y;
+            return;
+        }
+        xs[handle] = x;
+        ys[handle] = y;
+        link(handle, bucket);
+    }
+
+    /**
+     * Takes a handle out of the index.
+     */
+    public void remove(int handle) {
+        if (handle < bucketOf.length && bucketOf[handle] != NONE) {
+            unlink(handle);
+            bucketOf[handle] = NONE;
+            size--;
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(heads, NONE);
+        Arrays.fill(bucketOf, NONE);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds the closest handle within a radius, comparing squared distances.
+     * Ties go to the handle with the lower number.
+     * @return The handle, or -1 if none is within the radius.
+     */
+    public int nearest(float x, float y, float radius) {
+        float bestDist = radius * radius;
+        int best = NONE;
+        int left = cell(x - radius);
+        int right = cell(x + radius);
+        int top = cell(y - radius);
+        int bottom = cell(y + radius);
+        int mask = heads.length - 1;
+        for (int cy = top; cy <= bottom; cy++) {
+            for (int cx = left; cx <= right; cx++) {
+                for (int h = heads[hash(cx, cy) & mask]; h != NONE; h = next[h]) {
+                    float dx = xs[h] - x;
+                    float dy = ys[h] - y;
+                    float dist = dx * dx + dy * dy;
+                    if (dist < bestDist || (dist == bestDist && (best == NONE || h < best))) {
+                        bestDist = dist;
+                        best = h;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private void link(int handle, int bucket) {
+        bucketOf[handle] = bucket;
+        prev[handle] = NONE;
+        next[handle] = heads[bucket];
+        if (heads[bucket] != NONE) {
+            prev[heads[bucket]] = handle;
+        }
+        heads[bucket] = handle;
+    }
+
+    private void unlink(int handle) {
+        int bucket = bucketOf[handle];
+        if (prev[handle] != NONE) {
+            next[prev[handle]] = next[handle];
+        } else {
+            heads[bucket] = next[handle];
+        }
+        if (next[handle] != NONE) {
+            prev[next[handle]] = prev[handle];
+        }
+    }
+
+    /**
+     * Spreads the handles over a new number of buckets, so buckets stay short as handles are added.
+     */
+    private void rehash(int buckets) {
+        heads = new int[buckets];
+        Arrays.fill(heads, NONE);
+        for (int h = 0; h < bucketOf.length; h++) {
+            if (bucketOf[h] != NONE) {
+                link(h, bucket(xs[h], ys[h]));
+            }
+        }
+    }
+
+    private void grow(int capacity) {
+        int length = Math.max(capacity, bucketOf.length * 2);
+        int old = bucketOf.length;
+        xs = Arrays.copyOf(xs, length);
+        ys = Arrays.copyOf(ys, length);
+        next = Arrays.copyOf(next, length);
+        prev = Arrays.copyOf(prev, length);
+        bucketOf = Arrays.copyOf(bucketOf, length);
+        Arrays.fill(bucketOf, old, length, NONE);
+    }
+
+    private int bucket(float x, float y) {
+        return hash(cell(x), cell(y)) & (heads.length - 1);
+    }
+
+    private int cell(float coordinate) {
+        return (int)Math.floor(coordinate / cellSize);
+    }
+
+    private static int hash(int cx, int cy) {
+        int h = cx * 73856093 ^ cy * 19349663;
+        return h ^ (h >>> 16);
+    }
+}
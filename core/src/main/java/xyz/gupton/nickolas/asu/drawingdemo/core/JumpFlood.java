@@ -0,0 +1,267 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Works out an approximate Voronoi diagram on the same grid of cells as VoronoiRaster by jump flooding,
+ * which costs the same however many sites there are.
+ *
+ * Every site is first written into the cell nearest it. Then each pass looks at the eight cells a step
+ * away from every cell, in all directions, and keeps whichever of their owners is closest, with the step
+ * halving from about half the grid down to one. After log2 of the grid size passes every cell has heard
+ * of every site that could own it, except in rare spots where a closer site's news was blocked by another
+ * cell along the way; one more pass with a step of one cleans up most of those. Sites that share a cell
+ * with a closer site never get seeded at all, which only matters once there are about as many sites as cells.
+ *
+ * Every cell carries its owner's coordinates along with its number, so a pass reads the grid in order
+ * instead of jumping around the site arrays, and its speed doesn't fall off as the sites stop fitting
+ * in the cache. Each pass reads one copy of the grid and writes the other, so the rows of a pass can be
+ * split over threads.
+ */
+public class JumpFlood {
+
+    /**
+     * ROWS_PER_TASK | int: How many rows a fork/join task floods itself instead of splitting further.
+     */
+    private static final int ROWS_PER_TASK = 16;
+
+    /**
+     * cols, rows | int: The number of cells across and down.
+     */
+    private int cols = 0;
+    private int rows = 0;
+
+    /**
+     * owners | int[]: The best site found for each cell so far, or -1 if none has reached it.
+     */
+    private int[] owners = new int[0];
+
+    /**
+     * ownerXs, ownerYs | float[]: Where each cell's owner is.
+     */
+    private float[] ownerXs = new float[0];
+    private float[] ownerYs = new float[0];
+
+    /**
+     * next, nextXs, nextYs | int[], float[]: Where the pass being run writes, swapped with the owners afterwards.
+     */
+    private int[] next = new int[0];
+    private float[] nextXs = new float[0];
+    private float[] nextYs = new float[0];
+
+    /**
+     * passCount | int: How many flooding passes the last compute() ran.
+     */
+    private int passCount = 0;
+
+    /**
+     * Sizes the grid. Cell (col, row) is sampled at pixel (col * CELL_SIZE, row * CELL_SIZE), as in VoronoiRaster.
+     * @param cols   The number of cells across.
+     * @param rows   The number of cells down.
+     */
+    public void resize(int cols, int rows) {
+        this.cols = cols;
+        this.rows = rows;
+        owners = new int[cols * rows];
+        next = new int[cols * rows];
+        ownerXs = new float[cols * rows];
+        ownerYs = new float[cols * rows];
+        nextXs = new float[cols * rows];
+        nextYs = new float[cols * rows];
+    }
+
+    /**
+     * Floods the sites over the grid.
+     * @param points   The sites.
+     * @param pool     The pool to split the rows of each pass over, or null to run every pass on the calling thread.
+     */
+    public void compute(PointStore points, ForkJoinPool pool) {
+        Arrays.fill(owners, -1);
+        passCount = 0;
+        if (cols == 0 || rows == 0) {
+            return;
+        }
+
+        // Seed each site into the cell whose sample point is closest to it, keeping the closer site when two land together.
+        float[] xs = points.getXs();
+        float[] ys = points.getYs();
+        for (int site = 0; site < points.size(); site++) {
+            int col = Math.min(cols - 1, Math.max(0, Math.round(xs[site] / VoronoiRaster.CELL_SIZE)));
+            int row = Math.min(rows - 1, Math.max(0, Math.round(ys[site] / VoronoiRaster.CELL_SIZE)));
+            int i = row * cols + col;
+            if (owners[i] == -1 || closer(site, owners[i], col * VoronoiRaster.CELL_SIZE, row * VoronoiRaster.CELL_SIZE, xs, ys)) {
+                owners[i] = site;
+                ownerXs[i] = xs[site];
+                ownerYs[i] = ys[site];
+            }
+        }
+
+        for (int step = Integer.highestOneBit(Math.max(1, Math.max(cols, rows) - 1)); step >= 1; step /= 2) {
+            runPass(step, pool);
+        }
+        runPass(1, pool);
+    }
+
+    private void runPass(int step, ForkJoinPool pool) {
+        if (pool == null) {
+            pass(step, 0, rows);
+        } else {
+            pool.invoke(new PassTask(step, 0, rows));
+        }
+        int[] swap = owners;
+        owners = next;
+        next = swap;
+        float[] swapXs = ownerXs;
+        ownerXs = nextXs;
+        nextXs = swapXs;
+        float[] swapYs = ownerYs;
+        ownerYs = nextYs;
+        nextYs = swapYs;
+        passCount++;
+    }
+
+    /**
+     * Runs one pass over a range of rows, reading the owners and writing next.
+     */
+    private void pass(int step, int fromRow, int toRow) {
+        for (int r = fromRow; r < toRow; r++) {
+            float y = r * VoronoiRaster.CELL_SIZE;
+            for (int c = 0; c < cols; c++) {
+                float x = c * VoronoiRaster.CELL_SIZE;
+                int i = r * cols + c;
+                int best = owners[i];
+                float bestX = ownerXs[i];
+                float bestY = ownerYs[i];
+                float bestDist = Float.POSITIVE_INFINITY;
+                if (best != -1) {
+                    bestDist = ((x-bestX) * (x-bestX)) + ((y-bestY) * (y-bestY));
+                }
+
+                for (int dr = -step; dr <= step; dr += step) {
+                    int rr = r + dr;
+                    if (rr < 0 || rr >= rows) {
+                        continue;
+                    }
+                    for (int dc = -step; dc <= step; dc += step) {
+                        int cc = c + dc;
+                        if (cc < 0 || cc >= cols) {
+                            continue;
+                        }
+                        int j = rr * cols + cc;
+                        int site = owners[j];
+                        if (site == -1 || site == best) {
+                            continue;
+                        }
+                        // Ties go to the lower site number, the same as the exact searches.
+                        float sx = ownerXs[j];
+                        float sy = ownerYs[j];
+                        float dist = ((x-sx) * (x-sx)) + ((y-sy) * (y-sy));
+                        if (dist < bestDist || (dist == bestDist && site < best)) {
+                            best = site;
+                            bestX = sx;
+                            bestY = sy;
+                            bestDist = dist;
+                        }
+                    }
+                }
+                next[i] = best;
+                nextXs[i] = bestX;
+                nextYs[i] = bestY;
+            }
+        }
+    }
+
+    /**
+     * @return True if site a is closer to the point than site b, or as close and numbered lower.
+     */
+    private static boolean closer(int a, int b, float x, float y, float[] xs, float[] ys) {
+        float distA = ((x-xs[a]) * (x-xs[a])) + ((y-ys[a]) * (y-ys[a]));
+        float distB = ((x-xs[b]) * (x-xs[b])) + ((y-ys[b]) * (y-ys[b]));
+        return distA < distB || (distA == distB && a < b);
+    }
+
+    /**
+     * Floods a range of rows for one pass, splitting it in half until the pieces are small.
+     */
+    private final class PassTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int step;
+        private final int from;
+        private final int to;
+
+        PassTask(int step, int from, int to) {
+            this.step = step;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= ROWS_PER_TASK) {
+                pass(step, from, to);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new PassTask(step, from, middle), new PassTask(step, middle, to));
+            }
+        }
+    }
+
+    /**
+     * Counts the cells whose owner is farther away than the owner an exact render gave them.
+     * Cells that only differ by which of two equally close sites they picked don't count.
+     * @param exact    A raster of the same size rendered exactly from the same sites.
+     * @param points   The sites.
+     * @return The number of wrong cells.
+     */
+    public int countErrors(VoronoiRaster exact, PointStore points) {
+        float[] xs = points.getXs();
+        float[] ys = points.getYs();
+        int errors = 0;
+        for (int r = 0; r < rows; r++) {
+            float y = r * VoronoiRaster.CELL_SIZE;
+            for (int c = 0; c < cols; c++) {
+                float x = c * VoronoiRaster.CELL_SIZE;
+                int site = owners[r * cols + c];
+                int expected = exact.getOwner(c, r);
+                if (site == expected) {
+                    continue;
+                }
+                if (site == -1 || expected == -1) {
+                    errors++;
+                    continue;
+                }
+                float dist = ((x-xs[site]) * (x-xs[site])) + ((y-ys[site]) * (y-ys[site]));
+                float expectedDist = ((x-xs[expected]) * (x-xs[expected])) + ((y-ys[expected]) * (y-ys[expected]));
+                if (dist != expectedDist) {
+                    errors++;
+                }
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * @return The owner of every cell, row by row. This is the flood's own array, not a copy.
+     */
+    public int[] getOwners() {
+        return owners;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * @return How many flooding passes the last compute() ran.
+     */
+    public int getPassCount() {
+        return passCount;
+    }
+}
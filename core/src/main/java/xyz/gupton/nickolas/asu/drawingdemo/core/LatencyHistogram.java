@@ -0,0 +1,134 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts durations into a fixed set of buckets so percentiles can be read off at any time,
+ * from any thread, without locks and without storing the durations themselves.
+ *
+ * The buckets are log-linear: every power of two is split into SUB_BUCKETS equal steps, so a
+ * percentile is never off by more than one step, about 6%, whether it is a microsecond or a second.
+ * Recording is a few atomic adds; percentiles read while other threads are recording may be a
+ * sample or two behind, which doesn't matter for timings.
+ */
+public class LatencyHistogram {
+
+    /**
+     * SUB_BITS, SUB_BUCKETS | int: How many steps each power of two is split into, as bits and as a count.
+     */
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    /**
+     * BUCKETS | int: Enough buckets for any positive long.
+     */
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+    /**
+     * counts | AtomicLongArray: How many values landed in each bucket.
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * count, total, max | AtomicLong: The number, sum and largest of the values recorded.
+     */
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a value, usually a duration in nanoseconds. Negative values count as 0.
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(bucket(value));
+        count.incrementAndGet();
+        total.addAndGet(value);
+        long seen = max.get();
+        while (value > seen && !max.compareAndSet(seen, value)) {
+            seen = max.get();
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @return The mean of the values recorded, or 0 if there are none.
+     */
+    public double getMean() {
+        long n = count.get();
+        return n == 0 ? 0 : (double)total.get() / n;
+    }
+
+    /**
+     * Finds the value that a given share of the recorded values are at or below.
+     * @param percentile   The share, from 0 to 100, such as 99.
+     * @return The middle of the bucket the percentile falls in, never more than the max, or 0 if there are no values.
+     */
+    public long getPercentile(double percentile) {
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long)Math.ceil(percentile / 100 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                long low = lowestValue(i);
+                long high = lowestValue(i + 1) - 1;
+                return Math.min(low + (high - low) / 2, max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Forgets every value. Values recorded at the same time on other threads may or may not survive.
+     */
+    public void clear() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+
+    /**
+     * Works out which bucket a value goes in. Values below SUB_BUCKETS get a bucket each;
+     * above that, the top bit picks the power of two and the next SUB_BITS bits pick the step.
+     */
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int)value;
+        }
+        int top = 63 - Long.numberOfLeadingZeros(value);
+        int step = (int)(value >>> (top - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (top - SUB_BITS + 1) * SUB_BUCKETS + step;
+    }
+
+    /**
+     * @return The smallest value that goes in a bucket, or Long.MAX_VALUE past the last one.
+     */
+    static long lowestValue(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        if (bucket >= BUCKETS) {
+            return Long.MAX_VALUE;
+        }
+        int top = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        long step = bucket % SUB_BUCKETS;
+        return (SUB_BUCKETS + step) << (top - SUB_BITS);
+    }
+}
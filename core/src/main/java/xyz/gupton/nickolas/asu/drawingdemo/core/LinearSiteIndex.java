@@ -0,0 +1,67 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+/**
+ * A NearestSiteIndex that checks every site on every query.
+ * This is the reference the faster indexes are compared against.
+ */
+public class LinearSiteIndex implements NearestSiteIndex {
+
+    /**
+     * points | PointStore: The sites.
+     */
+    private final PointStore points;
+
+    /**
+     * Sets up a LinearSiteIndex over the given sites.
+     * @param points   The sites.
+     */
+    public LinearSiteIndex(PointStore points) {
+        this.points = points;
+    }
+
+    @Override
+    public void setBounds(int width, int height) {
+        // A linear scan doesn't care where the queries come from.
+    }
+
+    @Override
+    public void update() {
+        // There is nothing to keep up to date.
+    }
+
+    @Override
+    public void moved(int site, float oldX, float oldY) {
+        // Every query reads the points as they are.
+    }
+
+    @Override
+    public void removed(int site, float oldX, float oldY) {
+        // Every query reads the points as they are.
+    }
+
+    @Override
+    public PointStore getPoints() {
+        return points;
+    }
+
+    @Override
+    public int nearest(float x, float y) {
+        int size = points.size();
+        if (size == 0) {
+            return -1;
+        }
+
+        float[] xs = points.getXs();
+        float[] ys = points.getYs();
+        int closest = 0;
+        float closestDist = ((x-xs[0]) * (x-xs[0])) + ((y-ys[0]) * (y-ys[0]));
+        for (int i = 1; i < size; i++) {
+            float dist = ((x-xs[i]) * (x-xs[i])) + ((y-ys[i]) * (y-ys[i]));
+            if (closestDist > dist) {
+                closest = i;
+                closestDist = dist;
+            }
+        }
+        return closest;
+    }
+}
@@ -0,0 +1,148 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs Lloyd's algorithm on the sites of a VoronoiRaster: every site is moved to the centroid of its
+ * cell, and doing that over and over spreads the sites out into an even, honeycomb-like pattern.
+ *
+ * The centroids come from one pass over the raster's owners, adding each cell's position to the
+ * running totals of the site that owns it. The rows are split into one band per thread, and each band
+ * adds into its own arrays, so the threads never write to the same place; the bands' totals are summed
+ * at the end. The totals are whole numbers of cells kept in longs, so they add up exactly in any order.
+ */
+public class LloydRelaxation {
+
+    /**
+     * colSums, rowSums, counts | long[][], long[][], int[][]: For each band, the sums of the columns and
+     * rows of the cells each site owns, and how many cells that is. Kept between steps to avoid allocating.
+     */
+    private long[][] colSums = new long[0][];
+    private long[][] rowSums = new long[0][];
+    private int[][] counts = new int[0][];
+
+    /**
+     * Moves every site to the centroid of its cell. Sites that own no cells stay where they are.
+     * @param raster   A raster rendered from the sites as they are now.
+     * @param points   The sites, which get moved.
+     * @param pool     The pool to split the rows over, or null to do them all on the calling thread.
+     * @return The farthest any site moved, in pixels.
+     */
+    public float relax(VoronoiRaster raster, PointStore points, ForkJoinPool pool) {
+        int siteCount = points.size();
+        int rows = raster.getRows();
+        int bands = pool == null ? 1 : Math.max(1, Math.min(pool.getParallelism(), rows));
+        prepare(bands, siteCount);
+
+        if (bands == 1) {
+            accumulate(raster, siteCount, 0, 0, rows);
+        } else {
+            pool.invoke(new BandTask(raster, siteCount, 0, bands, bands, rows));
+        }
+
+        // Fold every band's totals into the first band's.
+        long[] cols = colSums[0];
+        long[] rowTotals = rowSums[0];
+        int[] cells = counts[0];
+        for (int band = 1; band < bands; band++) {
+            for (int site = 0; site < siteCount; site++) {
+                cols[site] += colSums[band][site];
+                rowTotals[site] += rowSums[band][site];
+                cells[site] += counts[band][site];
+            }
+        }
+
+        float farthest = 0;
+        for (int site = 0; site < siteCount; site++) {
+            if (cells[site] == 0) {
+                continue;
+            }
+            float x = (float)((double)cols[site] * VoronoiRaster.CELL_SIZE / cells[site]);
+            float y = (float)((double)rowTotals[site] * VoronoiRaster.CELL_SIZE / cells[site]);
+            farthest = Math.max(farthest, (float)Math.hypot(x - points.getX(site), y - points.getY(site)));
+            points.set(site, x, y);
+        }
+        return farthest;
+    }
+
+    /**
+     * Makes sure every band has zeroed arrays big enough for the sites.
+     */
+    private void prepare(int bands, int siteCount) {
+        if (colSums.length < bands) {
+            colSums = Arrays.copyOf(colSums, bands);
+            rowSums = Arrays.copyOf(rowSums, bands);
+            counts = Arrays.copyOf(counts, bands);
+        }
+        for (int band = 0; band < bands; band++) {
+            if (colSums[band] == null || colSums[band].length < siteCount) {
+                int capacity = Math.max(siteCount, 16);
+                colSums[band] = new long[capacity];
+                rowSums[band] = new long[capacity];
+                counts[band] = new int[capacity];
+            } else {
+                Arrays.fill(colSums[band], 0, siteCount, 0);
+                Arrays.fill(rowSums[band], 0, siteCount, 0);
+                Arrays.fill(counts[band], 0, siteCount, 0);
+            }
+        }
+    }
+
+    /**
+     * Adds up the cells of a range of rows into one band's arrays.
+     */
+    private void accumulate(VoronoiRaster raster, int siteCount, int band, int fromRow, int toRow) {
+        int[] owners = raster.getOwners();
+        int cols = raster.getCols();
+        long[] colSum = colSums[band];
+        long[] rowSum = rowSums[band];
+        int[] count = counts[band];
+        for (int r = fromRow; r < toRow; r++) {
+            for (int c = 0, i = r * cols; c < cols; c++, i++) {
+                int owner = owners[i];
+                // Skip cells of a raster rendered from more sites than there are points.
+                if (owner >= 0 && owner < siteCount) {
+                    colSum[owner] += c;
+                    rowSum[owner] += r;
+                    count[owner]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds up a range of bands, splitting it in half until each task has one band of rows.
+     */
+    private final class BandTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final VoronoiRaster raster;
+        private final int siteCount;
+        private final int from;
+        private final int to;
+        private final int bands;
+        private final int rows;
+
+        BandTask(VoronoiRaster raster, int siteCount, int from, int to, int bands, int rows) {
+            this.raster = raster;
+            this.siteCount = siteCount;
+            this.from = from;
+            this.to = to;
+            this.bands = bands;
+            this.rows = rows;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                accumulate(raster, siteCount, from, (int)((long)rows * from / bands), (int)((long)rows * to / bands));
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new BandTask(raster, siteCount, from, middle, bands, rows),
+                        new BandTask(raster, siteCount, middle, to, bands, rows));
+            }
+        }
+    }
+}
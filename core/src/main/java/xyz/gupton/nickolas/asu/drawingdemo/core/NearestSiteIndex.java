@@ -0,0 +1,54 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+/**
+ * Answers "which site is closest to this location?" for the points of a PointStore.
+ * Sites are numbered by their index in the PointStore. When two sites are exactly as far away
+ * the lower number wins, which matches the brute-force scan VoronoiView has always used.
+ * Implementations are plain Java so they can be checked and benchmarked off-device.
+ */
+public interface NearestSiteIndex {
+
+    /**
+     * Tells the index the area queries will come from, so it can size itself for it.
+     * @param width    The width of the area in pixels.
+     * @param height   The height of the area in pixels.
+     */
+    void setBounds(int width, int height);
+
+    /**
+     * Picks up the points added to the PointStore since the last call.
+     * Must be called before nearest() once points have been added.
+     */
+    void update();
+
+    /**
+     * Picks up that a site was moved with PointStore.set(). The index must be up to date otherwise.
+     * @param site   The number of the site.
+     * @param oldX   The x coordinate it was moved from.
+     * @param oldY   The y coordinate it was moved from.
+     */
+    void moved(int site, float oldX, float oldY);
+
+    /**
+     * Picks up that a site was taken out with PointStore.remove(), which gave the last site its number.
+     * The index must be up to date otherwise.
+     * @param site   The number of the removed site.
+     * @param oldX   The x coordinate the removed site was at.
+     * @param oldY   The y coordinate the removed site was at.
+     */
+    void removed(int site, float oldX, float oldY);
+
+    /**
+     * @return The PointStore whose points are the sites.
+     */
+    PointStore getPoints();
+
+    /**
+     * Finds the site closest to the given location.
+     * This only reads the index, so several threads may call it at once.
+     * @param x   The x coordinate of the location.
+     * @param y   The y coordinate of the location.
+     * @return The number of the closest site, or -1 if there are no sites.
+     */
+    int nearest(float x, float y);
+}
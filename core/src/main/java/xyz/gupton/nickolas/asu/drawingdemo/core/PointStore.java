@@ -0,0 +1,153 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of colored points kept as parallel primitive arrays.
+ * Adding a point never boxes anything, and loops over the points can walk the arrays directly.
+ * It is not synchronized; each View only touches its own from the UI thread.
+ */
+public class PointStore {
+
+    /**
+     * xs | float[]: The x coordinates of the points. Only the first size entries are used.
+     */
+    private float[] xs;
+
+    /**
+     * ys | float[]: The y coordinates of the points. Only the first size entries are used.
+     */
+    private float[] ys;
+
+    /**
+     * colors | int[]: The colors of the points. Only the first size entries are used.
+     */
+    private int[] colors;
+
+    /**
+     * size | int: The number of points.
+     */
+    private int size = 0;
+
+    /**
+     * Sets up an empty PointStore.
+     */
+    public PointStore() {
+        this(16);
+    }
+
+    /**
+     * Sets up an empty PointStore with room for the given number of points before it has to grow.
+     * @param capacity   The number of points to make room for.
+     */
+    public PointStore(int capacity) {
+        capacity = Math.max(1, capacity);
+        xs = new float[capacity];
+        ys = new float[capacity];
+        colors = new int[capacity];
+    }
+
+    /**
+     * Sets up a PointStore holding a copy of another one's points.
+     * @param other   The PointStore to copy.
+     */
+    public PointStore(PointStore other) {
+        xs = Arrays.copyOf(other.xs, Math.max(1, other.size));
+        ys = Arrays.copyOf(other.ys, Math.max(1, other.size));
+        colors = Arrays.copyOf(other.colors, Math.max(1, other.size));
+        size = other.size;
+    }
+
+    /**
+     * Adds a point to the end of the list.
+     * @param x       The x coordinate of the point.
+     * @param y       The y coordinate of the point.
+     * @param color   The color of the point.
+     * @return The index of the new point.
+     */
+    public int add(float x, float y, int color) {
+        if (size == xs.length) {
+            xs = Arrays.copyOf(xs, size * 2);
+            ys = Arrays.copyOf(ys, size * 2);
+            colors = Arrays.copyOf(colors, size * 2);
+        }
+        xs[size] = x;
+        ys[size] = y;
+        colors[size] = color;
+        return size++;
+    }
+
+    /**
+     * Moves a point.
+     * @param i   The index of the point.
+     * @param x   The new x coordinate.
+     * @param y   The new y coordinate.
+     */
+    public void set(int i, float x, float y) {
+        xs[i] = x;
+        ys[i] = y;
+    }
+
+    /**
+     * Removes a point by moving the last point into its place, so no other point changes its index.
+     * @param i   The index of the point to remove.
+     * @return The index the moved point used to have, which is i itself if the last point was removed.
+     */
+    public int remove(int i) {
+        int last = --size;
+        xs[i] = xs[last];
+        ys[i] = ys[last];
+        colors[i] = colors[last];
+        return last;
+    }
+
+    /**
+     * @return The number of points.
+     */
+    public int size() {
+        return size;
+    }
+
+    public float getX(int i) {
+        return xs[i];
+    }
+
+    public float getY(int i) {
+        return ys[i];
+    }
+
+    public int getColor(int i) {
+        return colors[i];
+    }
+
+    /**
+     * @return The x coordinates, for tight loops. Only the first size() entries are used,
+     *         and the array is replaced when the store grows.
+     */
+    public float[] getXs() {
+        return xs;
+    }
+
+    /**
+     * @return The y coordinates, for tight loops. Only the first size() entries are used,
+     *         and the array is replaced when the store grows.
+     */
+    public float[] getYs() {
+        return ys;
+    }
+
+    /**
+     * @return The colors, for tight loops. Only the first size() entries are used,
+     *         and the array is replaced when the store grows.
+     */
+    public int[] getColors() {
+        return colors;
+    }
+
+    /**
+     * Removes every point, keeping the arrays for reuse.
+     */
+    public void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,169 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects named timings, such as "Fractal draw" or "Bezier touch", each into its own LatencyHistogram,
+ * along with how many objects were allocated during them where the platform can say.
+ * Recording never locks; only creating a new channel does, which happens once per name.
+ */
+public class RenderRecorder {
+
+    /**
+     * One named timing.
+     */
+    public static class Channel {
+
+        /**
+         * name | String: What is being timed.
+         */
+        private final String name;
+
+        /**
+         * durations | LatencyHistogram: The durations in nanoseconds.
+         */
+        private final LatencyHistogram durations = new LatencyHistogram();
+
+        /**
+         * allocations, allocationSamples | AtomicLong: The objects allocated, and how many of the durations counted them.
+         */
+        private final AtomicLong allocations = new AtomicLong();
+        private final AtomicLong allocationSamples = new AtomicLong();
+
+        Channel(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public LatencyHistogram getDurations() {
+            return durations;
+        }
+
+        /**
+         * Records a duration without an allocation count.
+         */
+        public void record(long nanos) {
+            durations.record(nanos);
+        }
+
+        /**
+         * Records a duration along with the number of objects allocated during it.
+         */
+        public void record(long nanos, long allocated) {
+            durations.record(nanos);
+            allocations.addAndGet(allocated);
+            allocationSamples.incrementAndGet();
+        }
+
+        /**
+         * @return The mean number of objects allocated per duration, or NaN if none were counted.
+         */
+        public double getMeanAllocations() {
+            long samples = allocationSamples.get();
+            return samples == 0 ? Double.NaN : (double)allocations.get() / samples;
+        }
+
+        public void clear() {
+            durations.clear();
+            allocations.set(0);
+            allocationSamples.set(0);
+        }
+
+        /**
+         * @return The count and the p50, p95, p99 and max in milliseconds, on one line.
+         */
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s: %d, p50 %.2f, p95 %.2f, p99 %.2f, max %.2f ms",
+                    name, durations.getCount(), millis(durations.getPercentile(50)), millis(durations.getPercentile(95)),
+                    millis(durations.getPercentile(99)), millis(durations.getMax()));
+        }
+    }
+
+    /**
+     * channels | List<Channel>: Every channel, in the order they were made.
+     */
+    private final List<Channel> channels = new CopyOnWriteArrayList<>();
+
+    /**
+     * Finds the channel with a name, making it if there isn't one yet.
+     */
+    public Channel channel(String name) {
+        for (Channel channel : channels) {
+            if (channel.name.equals(name)) {
+                return channel;
+            }
+        }
+        synchronized (channels) {
+            // Check again in case another thread made it first.
+            for (Channel channel : channels) {
+                if (channel.name.equals(name)) {
+                    return channel;
+                }
+            }
+            Channel channel = new Channel(name);
+            channels.add(channel);
+            return channel;
+        }
+    }
+
+    /**
+     * @return The channels whose names start with a prefix, in the order they were made.
+     */
+    public List<Channel> getChannels(String prefix) {
+        List<Channel> matching = new ArrayList<>();
+        for (Channel channel : channels) {
+            if (channel.name.startsWith(prefix)) {
+                matching.add(channel);
+            }
+        }
+        return matching;
+    }
+
+    public void clear() {
+        for (Channel channel : channels) {
+            channel.clear();
+        }
+    }
+
+    /**
+     * Writes every channel as a line of CSV, after a header line. Times are in milliseconds,
+     * and the allocations column is empty for channels that didn't count them.
+     */
+    public void writeCsv(Appendable out) throws IOException {
+        out.append("channel,count,mean_ms,p50_ms,p95_ms,p99_ms,max_ms,mean_allocations\n");
+        for (Channel channel : channels) {
+            LatencyHistogram durations = channel.durations;
+            double allocations = channel.getMeanAllocations();
+            out.append(csvField(channel.name)).append(String.format(Locale.US, ",%d,%.3f,%.3f,%.3f,%.3f,%.3f,",
+                    durations.getCount(), durations.getMean() / 1e6, millis(durations.getPercentile(50)),
+                    millis(durations.getPercentile(95)), millis(durations.getPercentile(99)), millis(durations.getMax())));
+            if (!Double.isNaN(allocations)) {
+                out.append(String.format(Locale.US, "%.1f", allocations));
+            }
+            out.append('\n');
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    /**
+     * Quotes a CSV field if it needs it.
+     */
+    private static String csvField(String text) {
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
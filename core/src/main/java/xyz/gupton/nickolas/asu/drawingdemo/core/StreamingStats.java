@@ -0,0 +1,254 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+/**
+ * Keeps running statistics of a stream of points without storing any of them:
+ * the mean, the variances and covariance, the covariance ellipse, and optionally
+ * an exponentially weighted moving mean that follows the most recent points.
+ *
+ * Points are folded in with Welford's method, which updates the mean and the sums of squared
+ * deviations from it instead of raw totals, so precision doesn't drain away as taps pile up the way
+ * it does when adding floats into a running total. Batches are summarized on their own and merged
+ * in with Chan's formulas, which is also how two accumulators filled on different threads combine.
+ */
+public class StreamingStats {
+
+    /**
+     * count | long: The number of points added.
+     */
+    private long count = 0;
+
+    /**
+     * meanX, meanY | double: The mean of the points so far.
+     */
+    private double meanX = 0;
+    private double meanY = 0;
+
+    /**
+     * sumXX, sumYY, sumXY | double: The sums of squared deviations from the mean, and of their products.
+     */
+    private double sumXX = 0;
+    private double sumYY = 0;
+    private double sumXY = 0;
+
+    /**
+     * decay | double: How much weight the moving mean gives each new point, or 0 to not keep one.
+     */
+    private final double decay;
+
+    /**
+     * movingX, movingY | double: The exponentially weighted moving mean.
+     */
+    private double movingX = 0;
+    private double movingY = 0;
+    private boolean hasMoving = false;
+
+    /**
+     * Sets up a new StreamingStats without a moving mean.
+     */
+    public StreamingStats() {
+        this(0);
+    }
+
+    /**
+     * Sets up a new StreamingStats.
+     * @param decay   How much weight the moving mean gives each new point, from 0 (no moving mean) to 1.
+     */
+    public StreamingStats(double decay) {
+        if (!(decay >= 0 && decay <= 1)) {
+            throw new IllegalArgumentException("The decay must be from 0 to 1");
+        }
+        this.decay = decay;
+    }
+
+    /**
+     * Adds a point.
+     */
+    public void add(float x, float y) {
+        count++;
+        double dx = x - meanX;
+        double dy = y - meanY;
+        meanX += dx / count;
+        meanY += dy / count;
+        sumXX += dx * (x - meanX);
+        sumYY += dy * (y - meanY);
+        sumXY += dx * (y - meanY);
+        updateMoving(x, y);
+    }
+
+    /**
+     * Adds a batch of points. The batch is summarized in one pass and then merged in,
+     * so it costs about the same per point as add() but with fewer dependent divisions.
+     * @param xs       The x coordinates.
+     * @param ys       The y coordinates.
+     * @param offset   The first point to add.
+     * @param length   How many points to add.
+     */
+    public void addAll(float[] xs, float[] ys, int offset, int length) {
+        if (length <= 0) {
+            return;
+        }
+
+        // Summarize the batch around its first point, which keeps the sums small without a second pass.
+        double shiftX = xs[offset];
+        double shiftY = ys[offset];
+        double sx = 0;
+        double sy = 0;
+        double sxx = 0;
+        double syy = 0;
+        double sxy = 0;
+        for (int i = offset; i < offset + length; i++) {
+            double dx = xs[i] - shiftX;
+            double dy = ys[i] - shiftY;
+            sx += dx;
+            sy += dy;
+            sxx += dx * dx;
+            syy += dy * dy;
+            sxy += dx * dy;
+        }
+        double batchMeanX = sx / length;
+        double batchMeanY = sy / length;
+        merge(length, shiftX + batchMeanX, shiftY + batchMeanY,
+                sxx - sx * batchMeanX, syy - sy * batchMeanY, sxy - sx * batchMeanY);
+
+        if (decay > 0) {
+            for (int i = offset; i < offset + length; i++) {
+                updateMoving(xs[i], ys[i]);
+            }
+        }
+    }
+
+    /**
+     * Adds everything another StreamingStats has seen, as if its points had been added here.
+     * The moving mean isn't merged, since the other points have no order relative to these.
+     */
+    public void merge(StreamingStats other) {
+        merge(other.count, other.meanX, other.meanY, other.sumXX, other.sumYY, other.sumXY);
+    }
+
+    private void merge(long otherCount, double otherMeanX, double otherMeanY,
+                       double otherXX, double otherYY, double otherXY) {
+        if (otherCount == 0) {
+            return;
+        }
+        long total = count + otherCount;
+        double dx = otherMeanX - meanX;
+        double dy = otherMeanY - meanY;
+        double weight = (double)count * otherCount / total;
+        sumXX += otherXX + dx * dx * weight;
+        sumYY += otherYY + dy * dy * weight;
+        sumXY += otherXY + dx * dy * weight;
+        meanX += dx * otherCount / total;
+        meanY += dy * otherCount / total;
+        count = total;
+    }
+
+    private void updateMoving(float x, float y) {
+        if (decay == 0) {
+            return;
+        }
+        if (!hasMoving) {
+            movingX = x;
+            movingY = y;
+            hasMoving = true;
+        } else {
+            movingX += decay * (x - movingX);
+            movingY += decay * (y - movingY);
+        }
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return The mean x coordinate, or NaN if there are no points.
+     */
+    public double getMeanX() {
+        return count == 0 ? Double.NaN : meanX;
+    }
+
+    /**
+     * @return The mean y coordinate, or NaN if there are no points.
+     */
+    public double getMeanY() {
+        return count == 0 ? Double.NaN : meanY;
+    }
+
+    /**
+     * @return The sample variance of the x coordinates, or NaN with fewer than two points.
+     */
+    public double getVarianceX() {
+        return count < 2 ? Double.NaN : sumXX / (count - 1);
+    }
+
+    /**
+     * @return The sample variance of the y coordinates, or NaN with fewer than two points.
+     */
+    public double getVarianceY() {
+        return count < 2 ? Double.NaN : sumYY / (count - 1);
+    }
+
+    /**
+     * @return The sample covariance of x and y, or NaN with fewer than two points.
+     */
+    public double getCovariance() {
+        return count < 2 ? Double.NaN : sumXY / (count - 1);
+    }
+
+    /**
+     * @return The moving mean's x coordinate, or NaN if there are no points or no moving mean.
+     */
+    public double getMovingX() {
+        return hasMoving ? movingX : Double.NaN;
+    }
+
+    /**
+     * @return The moving mean's y coordinate, or NaN if there are no points or no moving mean.
+     */
+    public double getMovingY() {
+        return hasMoving ? movingY : Double.NaN;
+    }
+
+    /**
+     * Works out the ellipse expected to hold a given share of the points if they are normally distributed.
+     * @param confidence   The share of points, from 0 to 1, such as 0.95.
+     * @param out          Gets the center x, center y, the radius along the major axis, the radius along
+     *                     the minor axis, and the angle of the major axis in degrees clockwise from the x axis.
+     * @return False, leaving out alone, if there are fewer than two points.
+     */
+    public boolean getEllipse(double confidence, float[] out) {
+        if (count < 2) {
+            return false;
+        }
+        double a = getVarianceX();
+        double c = getVarianceY();
+        double b = getCovariance();
+
+        // The eigenvalues of the covariance matrix are the variances along the ellipse's axes.
+        double middle = (a + c) / 2;
+        double spread = Math.sqrt((a - c) * (a - c) / 4 + b * b);
+        double major = middle + spread;
+        double minor = Math.max(0, middle - spread);
+
+        // For two dimensions the chi-squared quantile has a closed form.
+        double scale = Math.sqrt(-2 * Math.log(1 - confidence));
+        out[0] = (float)meanX;
+        out[1] = (float)meanY;
+        out[2] = (float)(scale * Math.sqrt(major));
+        out[3] = (float)(scale * Math.sqrt(minor));
+        out[4] = (float)Math.toDegrees(0.5 * Math.atan2(2 * b, a - c));
+        return true;
+    }
+
+    public void clear() {
+        count = 0;
+        meanX = 0;
+        meanY = 0;
+        sumXX = 0;
+        sumYY = 0;
+        sumXY = 0;
+        movingX = 0;
+        movingY = 0;
+        hasMoving = false;
+    }
+}
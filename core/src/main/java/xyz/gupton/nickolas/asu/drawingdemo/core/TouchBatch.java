@@ -0,0 +1,65 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+import java.util.Arrays;
+
+/**
+ * The touch samples that arrived during one frame, oldest first, handed to a view all at once.
+ * The arrays are reused from frame to frame, so a batch is only valid until the next one is delivered.
+ */
+public class TouchBatch {
+
+    /**
+     * What happened at a sample, the same as the MotionEvent actions of the same names.
+     */
+    public static final int DOWN = 0;
+    public static final int MOVE = 1;
+    public static final int UP = 2;
+    public static final int CANCEL = 3;
+
+    /**
+     * actions, xs, ys, times | int[], float[], float[], long[]: Each sample's action, position and time in milliseconds.
+     */
+    int[] actions = new int[64];
+    float[] xs = new float[64];
+    float[] ys = new float[64];
+    long[] times = new long[64];
+
+    /**
+     * size | int: The number of samples in the batch.
+     */
+    int size = 0;
+
+    public int size() {
+        return size;
+    }
+
+    public int getAction(int i) {
+        return actions[i];
+    }
+
+    public float getX(int i) {
+        return xs[i];
+    }
+
+    public float getY(int i) {
+        return ys[i];
+    }
+
+    public long getTime(int i) {
+        return times[i];
+    }
+
+    /**
+     * Makes room for at least the given number of samples, dropping whatever is in the batch.
+     */
+    void reset(int capacity) {
+        if (actions.length < capacity) {
+            int length = Math.max(capacity, actions.length * 2);
+            actions = Arrays.copyOf(actions, length);
+            xs = Arrays.copyOf(xs, length);
+            ys = Arrays.copyOf(ys, length);
+            times = Arrays.copyOf(times, length);
+        }
+        size = 0;
+    }
+}
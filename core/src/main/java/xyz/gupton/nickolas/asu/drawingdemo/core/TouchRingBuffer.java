@@ -0,0 +1,100 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+/**
+ * Collects touch samples as they arrive until the next frame drains them into a TouchBatch.
+ * The samples are kept in parallel primitive arrays used as a ring. When a frame is late and the
+ * ring fills up, it doubles instead of dropping samples, so nothing drawn by a finger is lost.
+ */
+public class TouchRingBuffer {
+
+    /**
+     * actions, xs, ys, times | int[], float[], float[], long[]: The samples. The lengths are always a power of two.
+     */
+    private int[] actions;
+    private float[] xs;
+    private float[] ys;
+    private long[] times;
+
+    /**
+     * head | int: Where the oldest sample is.
+     */
+    private int head = 0;
+
+    /**
+     * size | int: The number of samples waiting.
+     */
+    private int size = 0;
+
+    /**
+     * Sets up a new TouchRingBuffer.
+     * @param capacity   How many samples it holds before it has to grow.
+     */
+    public TouchRingBuffer(int capacity) {
+        int length = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        actions = new int[length];
+        xs = new float[length];
+        ys = new float[length];
+        times = new long[length];
+    }
+
+    /**
+     * Adds a sample.
+     * @param action   One of the TouchBatch action constants.
+     */
+    public void push(int action, float x, float y, long time) {
+        if (size == actions.length) {
+            grow();
+        }
+        int i = (head + size) & (actions.length - 1);
+        actions[i] = action;
+        xs[i] = x;
+        ys[i] = y;
+        times[i] = time;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Moves every waiting sample into a batch, oldest first, leaving the ring empty.
+     */
+    public void drainTo(TouchBatch batch) {
+        batch.reset(size);
+        int mask = actions.length - 1;
+        for (int n = 0; n < size; n++) {
+            int i = (head + n) & mask;
+            batch.actions[n] = actions[i];
+            batch.xs[n] = xs[i];
+            batch.ys[n] = ys[i];
+            batch.times[n] = times[i];
+        }
+        batch.size = size;
+        head = (head + size) & mask;
+        size = 0;
+    }
+
+    /**
+     * Doubles the ring, unwrapping the samples so the oldest is first.
+     */
+    private void grow() {
+        int length = actions.length;
+        int[] newActions = new int[2 * length];
+        float[] newXs = new float[2 * length];
+        float[] newYs = new float[2 * length];
+        long[] newTimes = new long[2 * length];
+        for (int n = 0; n < size; n++) {
+            int i = (head + n) & (length - 1);
+            newActions[n] = actions[i];
+            newXs[n] = xs[i];
+            newYs[n] = ys[i];
+            newTimes[n] = times[i];
+        }
+        actions = newActions;
+        xs = newXs;
+        ys = newYs;
+        times = newTimes;
+        head = 0;
+    }
+}
@@ -0,0 +1,624 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Keeps a Voronoi diagram as a grid of colored cells, one cell for every 3x3 block of pixels.
+ * Each cell is sampled at its top left pixel, the same way VoronoiView has always sampled it.
+ * The cells are grouped into tiles that remember how far their farthest cell is from its owner,
+ * which lets a new site skip every tile it can't possibly claim a cell in.
+ * Tiles never share cells, so a full render can hand them out to several threads.
+ *
+ * With subdivision on, a full render doesn't search for every cell's owner. Each tile is split like a
+ * quadtree: the owners of a block's four corner cells are looked up, and if they agree the whole block
+ * is filled with that owner without any more searching. Every Voronoi cell is convex, even with ties
+ * going to the lower site number, so a block whose corners are all in one cell is entirely inside it
+ * and the fill is exact. Blocks whose corners disagree are split in four, so the searches end up
+ * following the cell boundaries and their number grows with the boundaries' length, not the screen's area.
+ */
+public class VoronoiRaster {
+
+    /**
+     * CELL_SIZE | int: The width and height in pixels of each cell.
+     */
+    public static final int CELL_SIZE = 3;
+
+    /**
+     * TILE_SIZE | int: The width and height in cells of each tile.
+     */
+    public static final int TILE_SIZE = 16;
+
+    /**
+     * TILES_PER_TASK | int: How many tiles a fork/join task renders itself instead of splitting further.
+     */
+    private static final int TILES_PER_TASK = 4;
+
+    /**
+     * UNKNOWN | int: Marks a cell whose owner hasn't been looked up yet during a subdivided render.
+     */
+    private static final int UNKNOWN = -2;
+
+    /**
+     * subdivide | boolean: Whether full renders fill blocks whose corners agree instead of searching every cell.
+     */
+    private boolean subdivide = false;
+
+    /**
+     * cols, rows | int: The number of cells across and down.
+     */
+    private int cols = 0;
+    private int rows = 0;
+
+    /**
+     * tileCols, tileRows | int: The number of tiles across and down.
+     */
+    private int tileCols = 0;
+    private int tileRows = 0;
+
+    /**
+     * owners | int[]: The site closest to each cell, or -1 if there are no sites.
+     */
+    private int[] owners = new int[0];
+
+    /**
+     * distances | float[]: The squared distance from each cell to its owner.
+     */
+    private float[] distances = new float[0];
+
+    /**
+     * pixels | int[]: The color of each cell, row by row.
+     */
+    private int[] pixels = new int[0];
+
+    /**
+     * tileMaxDistances | float[]: The largest squared distance from any cell in each tile to its owner.
+     */
+    private float[] tileMaxDistances = new float[0];
+
+    /**
+     * tileQueries | int[]: How many nearest-site searches each tile needed in the last full render.
+     */
+    private int[] tileQueries = new int[0];
+
+    /**
+     * dirtyLeft, dirtyTop, dirtyRight, dirtyBottom | int: The cells changed since the last clearDirty(),
+     * as a half-open rectangle. It is empty when dirtyLeft >= dirtyRight.
+     */
+    private int dirtyLeft, dirtyTop, dirtyRight, dirtyBottom;
+
+    /**
+     * Sizes the raster to cover a View. Every cell is left without an owner until the next render().
+     * @param width    The width of the View in pixels.
+     * @param height   The height of the View in pixels.
+     */
+    public void resize(int width, int height) {
+        cols = (width + CELL_SIZE - 1) / CELL_SIZE;
+        rows = (height + CELL_SIZE - 1) / CELL_SIZE;
+        tileCols = (cols + TILE_SIZE - 1) / TILE_SIZE;
+        tileRows = (rows + TILE_SIZE - 1) / TILE_SIZE;
+
+        owners = new int[cols * rows];
+        distances = new float[cols * rows];
+        pixels = new int[cols * rows];
+        tileMaxDistances = new float[tileCols * tileRows];
+        tileQueries = new int[tileCols * tileRows];
+        Arrays.fill(owners, -1);
+        Arrays.fill(distances, Float.POSITIVE_INFINITY);
+        Arrays.fill(tileMaxDistances, Float.POSITIVE_INFINITY);
+        markDirty(0, 0, cols, rows);
+    }
+
+    /**
+     * Makes this raster a copy of another one, so it can be shown and edited while the other is rendered into again.
+     * The arrays are only reallocated if the sizes differ.
+     * @param other   The raster to copy.
+     */
+    public void copyFrom(VoronoiRaster other) {
+        if (cols != other.cols || rows != other.rows) {
+            cols = other.cols;
+            rows = other.rows;
+            tileCols = other.tileCols;
+            tileRows = other.tileRows;
+            owners = new int[cols * rows];
+            distances = new float[cols * rows];
+            pixels = new int[cols * rows];
+            tileMaxDistances = new float[tileCols * tileRows];
+            tileQueries = new int[tileCols * tileRows];
+        }
+        subdivide = other.subdivide;
+        System.arraycopy(other.owners, 0, owners, 0, owners.length);
+        System.arraycopy(other.distances, 0, distances, 0, distances.length);
+        System.arraycopy(other.pixels, 0, pixels, 0, pixels.length);
+        System.arraycopy(other.tileMaxDistances, 0, tileMaxDistances, 0, tileMaxDistances.length);
+        System.arraycopy(other.tileQueries, 0, tileQueries, 0, tileQueries.length);
+        markDirty(0, 0, cols, rows);
+    }
+
+    /**
+     * Turns the quadtree fill on or off for later full renders.
+     */
+    public void setSubdivide(boolean subdivide) {
+        this.subdivide = subdivide;
+    }
+
+    public boolean isSubdivide() {
+        return subdivide;
+    }
+
+    /**
+     * @return How many nearest-site searches the last full render needed, one per cell without subdivision.
+     */
+    public long getLastQueryCount() {
+        long total = 0;
+        for (int queries : tileQueries) {
+            total += queries;
+        }
+        return total;
+    }
+
+    /**
+     * Works out the owner and color of every cell from scratch.
+     * @param sites    The sites of the diagram. They are only read, so several threads may share them.
+     * @param pool     The pool to split the tiles over, or null to render them all on the calling thread.
+     */
+    public void render(NearestSiteIndex sites, ForkJoinPool pool) {
+        int tileCount = tileCols * tileRows;
+        if (pool == null) {
+            for (int tile = 0; tile < tileCount; tile++) {
+                renderTile(tile, sites);
+            }
+        } else if (tileCount > 0) {
+            pool.invoke(new TileTask(0, tileCount, sites));
+        }
+        markDirty(0, 0, cols, rows);
+    }
+
+    /**
+     * Takes the owner of every cell from a grid worked out some other way, such as by JumpFlood,
+     * and fills in the colors and distances to match. The owners don't have to be the closest sites;
+     * addSite() still works on top of them, and getLastQueryCount() reports no searches.
+     * @param cellOwners   The owner of each cell, row by row, with as many cells as the raster.
+     * @param points       The sites the owners refer to.
+     */
+    public void fill(int[] cellOwners, PointStore points) {
+        System.arraycopy(cellOwners, 0, owners, 0, owners.length);
+        Arrays.fill(tileQueries, 0);
+        for (int tile = 0; tile < tileCols * tileRows; tile++) {
+            finishTile(tile, points);
+        }
+        markDirty(0, 0, cols, rows);
+    }
+
+    /**
+     * Works out the owner and color of every cell in one tile.
+     */
+    private void renderTile(int tile, NearestSiteIndex sites) {
+        if (subdivide) {
+            renderTileSubdivided(tile, sites);
+            return;
+        }
+        float[] xs = sites.getPoints().getXs();
+        float[] ys = sites.getPoints().getYs();
+        int[] colors = sites.getPoints().getColors();
+
+        int left = (tile % tileCols) * TILE_SIZE;
+        int top = (tile / tileCols) * TILE_SIZE;
+        int right = Math.min(left + TILE_SIZE, cols);
+        int bottom = Math.min(top + TILE_SIZE, rows);
+
+        float maxDistance = 0;
+        for (int r = top; r < bottom; r++) {
+            float y = r * CELL_SIZE;
+            for (int c = left; c < right; c++) {
+                float x = c * CELL_SIZE;
+                int i = r * cols + c;
+                int owner = sites.nearest(x, y);
+                owners[i] = owner;
+                if (owner == -1) {
+                    distances[i] = Float.POSITIVE_INFINITY;
+                    pixels[i] = 0;
+                } else {
+                    float sx = xs[owner];
+                    float sy = ys[owner];
+                    distances[i] = ((x-sx) * (x-sx)) + ((y-sy) * (y-sy));
+                    pixels[i] = colors[owner];
+                }
+                maxDistance = Math.max(maxDistance, distances[i]);
+            }
+        }
+        tileMaxDistances[tile] = maxDistance;
+        tileQueries[tile] = (right - left) * (bottom - top);
+    }
+
+    /**
+     * Works out the owner and color of every cell in one tile by splitting it until the corners of each block agree.
+     */
+    private void renderTileSubdivided(int tile, NearestSiteIndex sites) {
+        int left = (tile % tileCols) * TILE_SIZE;
+        int top = (tile / tileCols) * TILE_SIZE;
+        int right = Math.min(left + TILE_SIZE, cols);
+        int bottom = Math.min(top + TILE_SIZE, rows);
+
+        for (int r = top; r < bottom; r++) {
+            Arrays.fill(owners, r * cols + left, r * cols + right, UNKNOWN);
+        }
+        tileQueries[tile] = 0;
+        fillBlock(tile, left, top, right, bottom, sites);
+        finishTile(tile, sites.getPoints());
+    }
+
+    /**
+     * Fills in the distances and colors of a tile's cells from their owners, which is plain arithmetic,
+     * and finds the tile's farthest cell.
+     */
+    private void finishTile(int tile, PointStore points) {
+        int left = (tile % tileCols) * TILE_SIZE;
+        int top = (tile / tileCols) * TILE_SIZE;
+        int right = Math.min(left + TILE_SIZE, cols);
+        int bottom = Math.min(top + TILE_SIZE, rows);
+
+        float[] xs = points.getXs();
+        float[] ys = points.getYs();
+        int[] colors = points.getColors();
+        float maxDistance = 0;
+        for (int r = top; r < bottom; r++) {
+            float y = r * CELL_SIZE;
+            for (int c = left; c < right; c++) {
+                float x = c * CELL_SIZE;
+                int i = r * cols + c;
+                int owner = owners[i];
+                if (owner == -1) {
+                    distances[i] = Float.POSITIVE_INFINITY;
+                    pixels[i] = 0;
+                } else {
+                    float sx = xs[owner];
+                    float sy = ys[owner];
+                    distances[i] = ((x-sx) * (x-sx)) + ((y-sy) * (y-sy));
+                    pixels[i] = colors[owner];
+                }
+                maxDistance = Math.max(maxDistance, distances[i]);
+            }
+        }
+        tileMaxDistances[tile] = maxDistance;
+    }
+
+    /**
+     * Sets the owners of a block of cells, half-open on the right and bottom, filling it in one go
+     * if its corners agree and splitting it in four if they don't.
+     */
+    private void fillBlock(int tile, int left, int top, int right, int bottom, NearestSiteIndex sites) {
+        // Look up all four corners even when the first two disagree, since a small block is finished by them.
+        int owner = ownerOf(tile, left, top, sites);
+        int topRight = ownerOf(tile, right - 1, top, sites);
+        int bottomLeft = ownerOf(tile, left, bottom - 1, sites);
+        int bottomRight = ownerOf(tile, right - 1, bottom - 1, sites);
+        if (owner == topRight && owner == bottomLeft && owner == bottomRight) {
+            for (int r = top; r < bottom; r++) {
+                Arrays.fill(owners, r * cols + left, r * cols + right, owner);
+            }
+            return;
+        }
+        if (right - left <= 2 && bottom - top <= 2) {
+            // Every cell in the block is a corner, so they have all been looked up already.
+            return;
+        }
+
+        int middleCol = (left + right + 1) >>> 1;
+        int middleRow = (top + bottom + 1) >>> 1;
+        if (right - left <= 2) {
+            middleCol = right;
+        }
+        if (bottom - top <= 2) {
+            middleRow = bottom;
+        }
+        fillBlock(tile, left, top, middleCol, middleRow, sites);
+        if (middleCol < right) {
+            fillBlock(tile, middleCol, top, right, middleRow, sites);
+        }
+        if (middleRow < bottom) {
+            fillBlock(tile, left, middleRow, middleCol, bottom, sites);
+            if (middleCol < right) {
+                fillBlock(tile, middleCol, middleRow, right, bottom, sites);
+            }
+        }
+    }
+
+    /**
+     * Looks up the owner of a cell during a subdivided render, searching for it only the first time.
+     */
+    private int ownerOf(int tile, int col, int row, NearestSiteIndex sites) {
+        int i = row * cols + col;
+        if (owners[i] == UNKNOWN) {
+            owners[i] = sites.nearest(col * CELL_SIZE, row * CELL_SIZE);
+            tileQueries[tile]++;
+        }
+        return owners[i];
+    }
+
+    /**
+     * Renders a range of tiles, splitting it in half until the pieces are small.
+     */
+    private final class TileTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final NearestSiteIndex sites;
+
+        TileTask(int from, int to, NearestSiteIndex sites) {
+            this.from = from;
+            this.to = to;
+            this.sites = sites;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= TILES_PER_TASK) {
+                for (int tile = from; tile < to; tile++) {
+                    renderTile(tile, sites);
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new TileTask(from, middle, sites), new TileTask(middle, to, sites));
+            }
+        }
+    }
+
+    /**
+     * Lets a site that was just added claim the cells it is now closest to.
+     * Only tiles that could hold such a cell are looked at, so the cost follows the size of the new site's cell.
+     * The new site must have the highest site number, so it loses any exact ties.
+     * @param points   The sites of the diagram, including the new one.
+     * @param site     The number of the new site.
+     */
+    public void addSite(PointStore points, int site) {
+        claim(points, site);
+    }
+
+    /**
+     * Catches up with a site that was moved: the cells it owned at its old spot go to whichever sites
+     * are closest to them now, and then it claims the cells it is closest to at its new spot.
+     * Only the tiles around the two spots are looked at.
+     * @param sites   The sites of the diagram, with the index already told about the move.
+     * @param site    The number of the moved site.
+     * @param oldX    The x coordinate it was moved from.
+     * @param oldY    The y coordinate it was moved from.
+     */
+    public void moveSite(NearestSiteIndex sites, int site, float oldX, float oldY) {
+        reassign(sites, site, oldX, oldY);
+        claim(sites.getPoints(), site);
+    }
+
+    /**
+     * Catches up with a site that was taken out with PointStore.remove(), which gave the last site its number.
+     * @param sites      The sites of the diagram, with the index already told about the removal.
+     * @param site       The number of the removed site.
+     * @param oldX       The x coordinate the removed site was at.
+     * @param oldY       The y coordinate the removed site was at.
+     * @param lastSite   The number the last site had before it took over the removed one's.
+     */
+    public void removeSite(NearestSiteIndex sites, int site, float oldX, float oldY, int lastSite) {
+        reassign(sites, site, oldX, oldY);
+        if (lastSite != site) {
+            PointStore points = sites.getPoints();
+            renumber(lastSite, site, points.getX(site), points.getY(site));
+
+            // With a lower number the site now wins ties it used to lose.
+            claim(points, site);
+        }
+    }
+
+    /**
+     * Lets a site claim every cell it is closer to than the cell's owner, or as close to with a lower number.
+     */
+    private void claim(PointStore points, int site) {
+        float sx = points.getX(site);
+        float sy = points.getY(site);
+        int color = points.getColor(site);
+
+        for (int tile = 0; tile < tileCols * tileRows; tile++) {
+            int left = (tile % tileCols) * TILE_SIZE;
+            int top = (tile / tileCols) * TILE_SIZE;
+            int right = Math.min(left + TILE_SIZE, cols);
+            int bottom = Math.min(top + TILE_SIZE, rows);
+
+            // No cell in the tile can be closer to the site than the tile's nearest edge is.
+            float dx = Math.max(0, Math.max(left * CELL_SIZE - sx, sx - (right - 1) * CELL_SIZE));
+            float dy = Math.max(0, Math.max(top * CELL_SIZE - sy, sy - (bottom - 1) * CELL_SIZE));
+            if (dx * dx + dy * dy > tileMaxDistances[tile]) {
+                continue;
+            }
+
+            boolean claimed = false;
+            float maxDistance = 0;
+            for (int r = top; r < bottom; r++) {
+                float y = r * CELL_SIZE;
+                for (int c = left; c < right; c++) {
+                    float x = c * CELL_SIZE;
+                    int i = r * cols + c;
+                    float dist = ((x-sx) * (x-sx)) + ((y-sy) * (y-sy));
+                    if (dist < distances[i] || (dist == distances[i] && site < owners[i])) {
+                        owners[i] = site;
+                        distances[i] = dist;
+                        pixels[i] = color;
+                        claimed = true;
+                    }
+                    maxDistance = Math.max(maxDistance, distances[i]);
+                }
+            }
+            tileMaxDistances[tile] = maxDistance;
+            if (claimed) {
+                markDirty(left, top, right, bottom);
+            }
+        }
+    }
+
+    /**
+     * Searches again for the owner of every cell a site owned while it was at the given spot.
+     */
+    private void reassign(NearestSiteIndex sites, int site, float oldX, float oldY) {
+        float[] xs = sites.getPoints().getXs();
+        float[] ys = sites.getPoints().getYs();
+        int[] colors = sites.getPoints().getColors();
+
+        for (int tile = 0; tile < tileCols * tileRows; tile++) {
+            int left = (tile % tileCols) * TILE_SIZE;
+            int top = (tile / tileCols) * TILE_SIZE;
+            int right = Math.min(left + TILE_SIZE, cols);
+            int bottom = Math.min(top + TILE_SIZE, rows);
+
+            // A cell the site owned is no farther from it than the tile's farthest cell is from its owner.
+            // Missing one would leave it owned by a site that isn't there, so leave a little slack for rounding.
+            float dx = Math.max(0, Math.max(left * CELL_SIZE - oldX, oldX - (right - 1) * CELL_SIZE));
+            float dy = Math.max(0, Math.max(top * CELL_SIZE - oldY, oldY - (bottom - 1) * CELL_SIZE));
+            if (dx * dx + dy * dy > tileMaxDistances[tile] * 1.001f + 1) {
+                continue;
+            }
+
+            boolean changed = false;
+            float maxDistance = 0;
+            for (int r = top; r < bottom; r++) {
+                float y = r * CELL_SIZE;
+                for (int c = left; c < right; c++) {
+                    int i = r * cols + c;
+                    if (owners[i] == site) {
+                        float x = c * CELL_SIZE;
+                        int owner = sites.nearest(x, y);
+                        owners[i] = owner;
+                        if (owner == -1) {
+                            distances[i] = Float.POSITIVE_INFINITY;
+                            pixels[i] = 0;
+                        } else {
+                            distances[i] = ((x-xs[owner]) * (x-xs[owner])) + ((y-ys[owner]) * (y-ys[owner]));
+                            pixels[i] = colors[owner];
+                        }
+                        changed = true;
+                    }
+                    maxDistance = Math.max(maxDistance, distances[i]);
+                }
+            }
+            tileMaxDistances[tile] = maxDistance;
+            if (changed) {
+                markDirty(left, top, right, bottom);
+            }
+        }
+    }
+
+    /**
+     * Gives the cells owned by one site number to another, for a site that was renumbered where it stands.
+     */
+    private void renumber(int from, int to, float sx, float sy) {
+        for (int tile = 0; tile < tileCols * tileRows; tile++) {
+            int left = (tile % tileCols) * TILE_SIZE;
+            int top = (tile / tileCols) * TILE_SIZE;
+            int right = Math.min(left + TILE_SIZE, cols);
+            int bottom = Math.min(top + TILE_SIZE, rows);
+
+            float dx = Math.max(0, Math.max(left * CELL_SIZE - sx, sx - (right - 1) * CELL_SIZE));
+            float dy = Math.max(0, Math.max(top * CELL_SIZE - sy, sy - (bottom - 1) * CELL_SIZE));
+            if (dx * dx + dy * dy > tileMaxDistances[tile] * 1.001f + 1) {
+                continue;
+            }
+            for (int r = top; r < bottom; r++) {
+                for (int i = r * cols + left; i < r * cols + right; i++) {
+                    if (owners[i] == from) {
+                        owners[i] = to;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Roughly how many bytes the raster's arrays take up.
+     */
+    public long getRetainedBytes() {
+        return 4L * (owners.length + distances.length + pixels.length + tileMaxDistances.length + tileQueries.length);
+    }
+
+    /**
+     * @return The number of cells across.
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * @return The number of cells down.
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * @return The color of every cell, row by row. This is the raster's own array, not a copy.
+     */
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    /**
+     * @return The owner of every cell, row by row, or -1 for none. This is the raster's own array, not a copy.
+     */
+    public int[] getOwners() {
+        return owners;
+    }
+
+    /**
+     * @param col   The column of the cell.
+     * @param row   The row of the cell.
+     * @return The site closest to the cell, or -1 if there are no sites.
+     */
+    public int getOwner(int col, int row) {
+        return owners[row * cols + col];
+    }
+
+    /**
+     * @return True if any cell changed since the last clearDirty().
+     */
+    public boolean isDirty() {
+        return dirtyLeft < dirtyRight && dirtyTop < dirtyBottom;
+    }
+
+    public int getDirtyLeft() {
+        return dirtyLeft;
+    }
+
+    public int getDirtyTop() {
+        return dirtyTop;
+    }
+
+    public int getDirtyRight() {
+        return dirtyRight;
+    }
+
+    public int getDirtyBottom() {
+        return dirtyBottom;
+    }
+
+    /**
+     * Forgets which cells have changed, once they have been copied somewhere else.
+     */
+    public void clearDirty() {
+        dirtyLeft = dirtyTop = dirtyRight = dirtyBottom = 0;
+    }
+
+    /**
+     * Grows the dirty rectangle to cover the given cells.
+     */
+    private void markDirty(int left, int top, int right, int bottom) {
+        if (!isDirty()) {
+            dirtyLeft = left;
+            dirtyTop = top;
+            dirtyRight = right;
+            dirtyBottom = bottom;
+        } else {
+            dirtyLeft = Math.min(dirtyLeft, left);
+            dirtyTop = Math.min(dirtyTop, top);
+            dirtyRight = Math.max(dirtyRight, right);
+            dirtyBottom = Math.max(dirtyBottom, bottom);
+        }
+    }
+}
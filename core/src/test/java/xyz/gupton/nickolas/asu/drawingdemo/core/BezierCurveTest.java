@@ -0,0 +1,132 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the polylines from BezierCurve.flatten() against points worked out with evaluate(): every point
+ * sampled along the curve has to be within the tolerance of the polyline.
+ */
+public class BezierCurveTest {
+
+    /**
+     * SLACK | float: How much further than the tolerance, in pixels, a sample may be, since floats round.
+     */
+    private static final float SLACK = 1e-3f;
+
+    /**
+     * CUSP | float[]: A cubic that stops dead halfway along and turns back on itself.
+     */
+    private static final float[] CUSP = {0, 0, 1000, 1000, 0, 1000, 1000, 0};
+
+    @Test
+    public void lineIsOneSegment() {
+        float[] controls = {10, 20, 300, 400};
+        BezierCurve curve = new BezierCurve(0.5f);
+        assertEquals(4, curve.flatten(controls, 2));
+        assertEquals(1, curve.getSegmentCount());
+        assertWithinTolerance("line", curve, controls, 2, 0.5f + SLACK);
+    }
+
+    @Test
+    public void cubicsStayWithinTolerance() {
+        Random random = new Random(1);
+        float[] tolerances = {2f, 0.5f, 0.1f};
+        for (int seed = 0; seed < 30; seed++) {
+            float[] controls = randomControls(random, 4);
+            for (float tolerance : tolerances) {
+                BezierCurve curve = new BezierCurve(tolerance);
+                curve.flatten(controls, 4);
+                assertWithinTolerance("cubic " + seed + ", tolerance " + tolerance, curve, controls, 4, tolerance + SLACK);
+            }
+        }
+    }
+
+    @Test
+    public void degree31StaysWithinTolerance() {
+        Random random = new Random(2);
+        for (int seed = 0; seed < 5; seed++) {
+            float[] controls = randomControls(random, 32);
+            BezierCurve curve = new BezierCurve(0.25f);
+            curve.flatten(controls, 32);
+            assertWithinTolerance("degree 31, " + seed, curve, controls, 32, 0.25f + SLACK);
+        }
+    }
+
+    @Test
+    public void cuspStaysWithinTolerance() {
+        BezierCurve curve = new BezierCurve(0.1f);
+        curve.flatten(CUSP, 4);
+        assertWithinTolerance("cusp", curve, CUSP, 4, 0.1f + SLACK);
+    }
+
+    @Test
+    public void cuspStopsAtMaxSplits() {
+        // A tolerance finer than floats can tell apart this far from 0 lets few pieces count as flat, so most
+        // are halved MAX_SPLITS times and no more. The polyline is then as close as floats allow.
+        BezierCurve curve = new BezierCurve(1e-6f);
+        curve.flatten(CUSP, 4);
+        int segments = curve.getSegmentCount();
+        // More segments than MAX_SPLITS - 1 halvings can make means some pieces were stopped by the cap.
+        assertTrue(segments + " segments", segments > 1 << (BezierCurve.MAX_SPLITS - 1));
+        assertTrue(segments + " segments", segments <= 1 << BezierCurve.MAX_SPLITS);
+        assertWithinTolerance("capped cusp", curve, CUSP, 4, 0.01f);
+    }
+
+    private static float[] randomControls(Random random, int count) {
+        float[] controls = new float[2 * count];
+        for (int i = 0; i < count; i++) {
+            controls[2 * i] = random.nextFloat() * 720;
+            controls[2 * i + 1] = random.nextFloat() * 1280;
+        }
+        return controls;
+    }
+
+    /**
+     * Samples the curve densely in order and checks each sample is within the limit of the polyline.
+     * A sample further along the curve can only be near the same segment as the one before or a later one,
+     * so each search starts from the segment the one before was near, which keeps long polylines quick to check.
+     */
+    private static void assertWithinTolerance(String message, BezierCurve curve, float[] controls, int count, float limit) {
+        float[] points = curve.getPoints();
+        int segments = curve.getSegmentCount();
+        assertEquals(message + ", first x", controls[0], points[0], 0);
+        assertEquals(message + ", first y", controls[1], points[1], 0);
+        assertEquals(message + ", last x", controls[2 * count - 2], points[2 * segments], 0);
+        assertEquals(message + ", last y", controls[2 * count - 1], points[2 * segments + 1], 0);
+
+        float[] work = new float[2 * count];
+        float[] sample = new float[2];
+        int samples = Math.max(20000, 20 * segments);
+        int segment = 0;
+        for (int i = 0; i <= samples; i++) {
+            float t = (float)i / samples;
+            BezierCurve.evaluate(controls, count, t, work, sample);
+            int near = segment;
+            while (near < segments && distance(points, near, sample[0], sample[1]) > limit) {
+                near++;
+            }
+            assertTrue(message + ", " + segments + " segments: the sample at t = " + t + " is more than "
+                    + limit + " px from every segment from " + segment + " on", near < segments);
+            segment = near;
+        }
+    }
+
+    /**
+     * @return How far a point is from one segment of a polyline.
+     */
+    private static double distance(float[] points, int segment, float x, float y) {
+        double ax = points[2 * segment];
+        double ay = points[2 * segment + 1];
+        double dx = points[2 * segment + 2] - ax;
+        double dy = points[2 * segment + 3] - ay;
+        double lengthSquared = dx * dx + dy * dy;
+        double t = lengthSquared > 0 ? ((x - ax) * dx + (y - ay) * dy) / lengthSquared : 0;
+        t = Math.max(0, Math.min(1, t));
+        return Math.hypot(x - ax - t * dx, y - ay - t * dy);
+    }
+}
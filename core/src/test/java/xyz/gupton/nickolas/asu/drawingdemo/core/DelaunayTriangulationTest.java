@@ -0,0 +1,234 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the triangles made from the drawn edges: no site may be inside any triangle's circumcircle, and
+ * n sites with h of them on the convex hull have to make 2n - 2 - h triangles.
+ */
+public class DelaunayTriangulationTest {
+
+    /**
+     * TOLERANCE | double: How far inside a circumcircle, as a fraction of its radius, a site may be.
+     * The triangulation's own tests round, so a site almost on a circle may land either side of it.
+     */
+    private static final double TOLERANCE = 1e-6;
+
+    @Test
+    public void randomSitesAreDelaunay() {
+        for (int seed = 0; seed < 4; seed++) {
+            Random random = new Random(seed);
+            PointStore points = new PointStore();
+            for (int i = 0; i < 1500; i++) {
+                points.add(random.nextFloat() * 720, random.nextFloat() * 1280, 0);
+            }
+            assertDelaunay("seed " + seed, points, 720, 1280, 0);
+        }
+    }
+
+    @Test
+    public void gridSitesAreDelaunay() {
+        // Every square of the grid has four sites on one circle, so either diagonal is right, but nothing else is.
+        PointStore points = new PointStore();
+        for (int y = 5; y < 500; y += 10) {
+            for (int x = 5; x < 700; x += 10) {
+                points.add(x, y, 0);
+            }
+        }
+        assertDelaunay("grid", points, 700, 500, 0);
+    }
+
+    @Test
+    public void duplicateSitesAreSkipped() {
+        Random random = new Random(3);
+        PointStore points = new PointStore();
+        int duplicates = 0;
+        for (int i = 0; i < 600; i++) {
+            float x = random.nextFloat() * 700;
+            float y = random.nextFloat() * 500;
+            int copies = 1 + random.nextInt(3);
+            for (int c = 0; c < copies; c++) {
+                points.add(x, y, 0);
+            }
+            duplicates += copies - 1;
+        }
+        assertDelaunay("duplicates", points, 700, 500, duplicates);
+    }
+
+    /**
+     * Triangulates the sites both one at a time in order and with addAll(), and checks both results.
+     */
+    private static void assertDelaunay(String message, PointStore points, int width, int height, int duplicates) {
+        DelaunayTriangulation inOrder = new DelaunayTriangulation(width, height);
+        for (int i = 0; i < points.size(); i++) {
+            inOrder.add(points.getX(i), points.getY(i));
+        }
+        assertTriangles(message + ", one at a time", inOrder, points, duplicates);
+
+        DelaunayTriangulation sorted = new DelaunayTriangulation(width, height);
+        assertEquals(message + ", addAll() skipped count", duplicates, sorted.addAll(points));
+        assertTriangles(message + ", addAll()", sorted, points, duplicates);
+    }
+
+    private static void assertTriangles(String message, DelaunayTriangulation triangulation, PointStore points, int duplicates) {
+        assertEquals(message + ", sites", points.size(), triangulation.getSiteCount());
+        assertEquals(message + ", skipped", duplicates, triangulation.getSkippedCount());
+
+        // Number the distinct sites and join the ones with an edge drawn between them.
+        Map<Long, Integer> ids = new HashMap<>();
+        List<double[]> sites = new ArrayList<>();
+        for (int i = 0; i < points.size(); i++) {
+            idOf(ids, sites, points.getX(i), points.getY(i));
+        }
+        List<Set<Integer>> joined = new ArrayList<>();
+        for (int i = 0; i < sites.size(); i++) {
+            joined.add(new HashSet<Integer>());
+        }
+        float[] lines = triangulation.getLines();
+        for (int i = 0; i < triangulation.getLineFloats(); i += 4) {
+            int a = idOf(ids, sites, lines[i], lines[i + 1]);
+            int b = idOf(ids, sites, lines[i + 2], lines[i + 3]);
+            assertTrue(message + ", edge from a site to itself", a != b);
+            joined.get(a).add(b);
+            joined.get(b).add(a);
+        }
+        assertEquals(message + ", edges end at sites", points.size() - duplicates, sites.size());
+
+        // Every three sites joined in a loop with no site inside is one of the triangles.
+        int triangles = 0;
+        for (int a = 0; a < sites.size(); a++) {
+            for (int b : joined.get(a)) {
+                if (b < a) {
+                    continue;
+                }
+                for (int c : joined.get(b)) {
+                    if (c < b || !joined.get(a).contains(c) || holdsSite(sites, a, b, c)) {
+                        continue;
+                    }
+                    triangles++;
+                    assertEmptyCircumcircle(message, sites, a, b, c);
+                }
+            }
+        }
+
+        int hull = hullSize(sites);
+        assertEquals(message + ", triangles for " + sites.size() + " sites with " + hull + " on the hull",
+                2 * sites.size() - 2 - hull, triangles);
+        assertEquals(message + ", getTriangleCount()", triangles, triangulation.getTriangleCount());
+    }
+
+    private static int idOf(Map<Long, Integer> ids, List<double[]> sites, float x, float y) {
+        long key = (long)Float.floatToIntBits(x) << 32 | (Float.floatToIntBits(y) & 0xffffffffL);
+        Integer id = ids.get(key);
+        if (id == null) {
+            id = sites.size();
+            ids.put(key, id);
+            sites.add(new double[]{x, y});
+        }
+        return id;
+    }
+
+    /**
+     * @return If any other site is inside the triangle or on one of its sides.
+     */
+    private static boolean holdsSite(List<double[]> sites, int a, int b, int c) {
+        double[] pa = sites.get(a);
+        double[] pb = sites.get(b);
+        double[] pc = sites.get(c);
+        double sign = Math.signum(orient(pa, pb, pc));
+        for (int i = 0; i < sites.size(); i++) {
+            if (i == a || i == b || i == c) {
+                continue;
+            }
+            double[] p = sites.get(i);
+            if (sign * orient(pa, pb, p) >= 0 && sign * orient(pb, pc, p) >= 0 && sign * orient(pc, pa, p) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void assertEmptyCircumcircle(String message, List<double[]> sites, int a, int b, int c) {
+        double[] pa = sites.get(a);
+        double[] pb = sites.get(b);
+        double[] pc = sites.get(c);
+        // The center, worked out relative to a to keep the numbers small.
+        double bx = pb[0] - pa[0];
+        double by = pb[1] - pa[1];
+        double cx = pc[0] - pa[0];
+        double cy = pc[1] - pa[1];
+        double d = 2 * (bx * cy - by * cx);
+        assertTrue(message + ", flat triangle " + a + ", " + b + ", " + c, d != 0);
+        double ux = (cy * (bx * bx + by * by) - by * (cx * cx + cy * cy)) / d;
+        double uy = (bx * (cx * cx + cy * cy) - cx * (bx * bx + by * by)) / d;
+        double radius = Math.hypot(ux, uy);
+
+        for (int i = 0; i < sites.size(); i++) {
+            double[] p = sites.get(i);
+            double distance = Math.hypot(p[0] - pa[0] - ux, p[1] - pa[1] - uy);
+            assertTrue(message + ", site " + i + " inside the circumcircle of " + a + ", " + b + ", " + c,
+                    distance >= radius * (1 - TOLERANCE));
+        }
+    }
+
+    /**
+     * @return How many sites are on the convex hull, counting the ones along its sides between the corners.
+     */
+    private static int hullSize(List<double[]> sites) {
+        List<double[]> sorted = new ArrayList<>(sites);
+        Collections.sort(sorted, new Comparator<double[]>() {
+            @Override
+            public int compare(double[] p, double[] q) {
+                return p[0] != q[0] ? Double.compare(p[0], q[0]) : Double.compare(p[1], q[1]);
+            }
+        });
+        // Andrew's monotone chain, dropping sites in a line so only the corners are left.
+        double[][] hull = new double[2 * sorted.size()][];
+        int k = 0;
+        for (int i = 0; i < sorted.size(); i++) {
+            while (k >= 2 && orient(hull[k - 2], hull[k - 1], sorted.get(i)) <= 0) {
+                k--;
+            }
+            hull[k++] = sorted.get(i);
+        }
+        for (int i = sorted.size() - 2, lower = k + 1; i >= 0; i--) {
+            while (k >= lower && orient(hull[k - 2], hull[k - 1], sorted.get(i)) <= 0) {
+                k--;
+            }
+            hull[k++] = sorted.get(i);
+        }
+        k--;
+
+        int count = 0;
+        for (double[] p : sites) {
+            for (int i = 0; i < k; i++) {
+                double[] from = hull[i];
+                double[] to = hull[i + 1];
+                if (orient(from, to, p) == 0
+                        && Math.min(from[0], to[0]) <= p[0] && p[0] <= Math.max(from[0], to[0])
+                        && Math.min(from[1], to[1]) <= p[1] && p[1] <= Math.max(from[1], to[1])) {
+                    count++;
+                    break;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static double orient(double[] a, double[] b, double[] c) {
+        return (b[0] - a[0]) * (c[1] - a[1]) - (b[1] - a[1]) * (c[0] - a[0]);
+    }
+}
@@ -0,0 +1,103 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the polygons from FortuneVoronoi against searching every site: each raster cell's sample point
+ * has to lie inside the polygon of the site nearest to it.
+ */
+public class FortuneVoronoiTest {
+
+    /**
+     * TOLERANCE | float: How far outside its polygon, in pixels, a point may be and still count as inside.
+     * Points on an edge are as near to two sites, and the corners are only as exact as a float.
+     */
+    private static final float TOLERANCE = 0.01f;
+
+    @Test
+    public void polygonsHoldTheirNearestPoints() {
+        int[][] screens = {{720, 1280}, {700, 500}};
+        int[] counts = {2000, 3500, 5000};
+        for (int[] screen : screens) {
+            for (int seed = 0; seed < 6; seed++) {
+                Random random = new Random(seed);
+                PointStore points = new PointStore();
+                for (int i = 0; i < counts[seed % counts.length]; i++) {
+                    points.add(random.nextFloat() * screen[0], random.nextFloat() * screen[1], random.nextInt());
+                }
+                assertNearestInside("seed " + seed, points, screen[0], screen[1]);
+            }
+        }
+    }
+
+    @Test
+    public void polygonsHoldTheirNearestPointsOnAGrid() {
+        // Sites in even rows and columns put four sites on every circle, the case the sweep finds hardest.
+        PointStore points = new PointStore();
+        for (int y = 5; y < 500; y += 10) {
+            for (int x = 5; x < 700; x += 10) {
+                points.add(x, y, 0);
+            }
+        }
+        assertNearestInside("grid", points, 700, 500);
+    }
+
+    /**
+     * Computes the diagram and checks the sample point of every raster cell against its nearest site's polygon.
+     */
+    private static void assertNearestInside(String message, PointStore points, int width, int height) {
+        FortuneVoronoi voronoi = new FortuneVoronoi();
+        voronoi.compute(points, 0, 0, width, height);
+        NearestSiteIndex sites = new LinearSiteIndex(points);
+        sites.setBounds(width, height);
+
+        for (int y = 0; y <= height; y += VoronoiRaster.CELL_SIZE) {
+            for (int x = 0; x <= width; x += VoronoiRaster.CELL_SIZE) {
+                int site = sites.nearest(x, y);
+                assertTrue(message + ", " + points.size() + " sites on " + width + "x" + height
+                                + ", point " + x + ", " + y + " outside the cell of site " + site,
+                        inside(voronoi, site, x, y));
+            }
+        }
+    }
+
+    /**
+     * @return If the point is inside the site's convex polygon, or no more than TOLERANCE outside it.
+     */
+    private static boolean inside(FortuneVoronoi voronoi, int site, float x, float y) {
+        float[] vertices = voronoi.getVertices();
+        int start = voronoi.getCellStart(site);
+        int end = voronoi.getCellEnd(site);
+        if (end - start < 3) {
+            return false;
+        }
+
+        // Twice the signed area, so the test works whichever way round the corners go.
+        double area = 0;
+        for (int i = start; i < end; i++) {
+            int j = i + 1 == end ? start : i + 1;
+            area += (double)vertices[2 * i] * vertices[2 * j + 1] - (double)vertices[2 * j] * vertices[2 * i + 1];
+        }
+        double winding = Math.signum(area);
+
+        for (int i = start; i < end; i++) {
+            int j = i + 1 == end ? start : i + 1;
+            double ex = vertices[2 * j] - vertices[2 * i];
+            double ey = vertices[2 * j + 1] - vertices[2 * i + 1];
+            double length = Math.hypot(ex, ey);
+            if (length == 0) {
+                continue;
+            }
+            // How far the point is to the inner side of the edge; negative means outside.
+            double side = winding * (ex * (y - vertices[2 * i + 1]) - ey * (x - vertices[2 * i])) / length;
+            if (side < -TOLERANCE) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
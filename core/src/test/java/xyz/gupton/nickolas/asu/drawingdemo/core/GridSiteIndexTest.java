@@ -0,0 +1,85 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks GridSiteIndex against searching every site while sites are added, moved and removed at random,
+ * with queries and some sites outside the bounds the grid was sized for.
+ */
+public class GridSiteIndexTest {
+
+    @Test
+    public void nearestMatchesLinearThroughEdits() {
+        int[][] screens = {{720, 1280}, {101, 77}};
+        for (int[] screen : screens) {
+            for (int seed = 0; seed < 10; seed++) {
+                Random random = new Random(seed);
+                PointStore points = new PointStore();
+                NearestSiteIndex grid = new GridSiteIndex(points);
+                NearestSiteIndex linear = new LinearSiteIndex(points);
+                grid.setBounds(screen[0], screen[1]);
+                linear.setBounds(screen[0], screen[1]);
+
+                for (int edit = 0; edit < 600; edit++) {
+                    int action = random.nextInt(10);
+                    if (action < 5 || points.size() == 0) {
+                        points.add(spot(random, screen[0]), spot(random, screen[1]), 0);
+                        grid.update();
+                        linear.update();
+                    } else if (action < 8) {
+                        int site = random.nextInt(points.size());
+                        float oldX = points.getX(site);
+                        float oldY = points.getY(site);
+                        points.set(site, spot(random, screen[0]), spot(random, screen[1]));
+                        grid.moved(site, oldX, oldY);
+                        linear.moved(site, oldX, oldY);
+                    } else {
+                        int site = random.nextInt(points.size());
+                        float oldX = points.getX(site);
+                        float oldY = points.getY(site);
+                        points.remove(site);
+                        grid.removed(site, oldX, oldY);
+                        linear.removed(site, oldX, oldY);
+                    }
+
+                    for (int query = 0; query < 20; query++) {
+                        float x = spot(random, screen[0]);
+                        float y = spot(random, screen[1]);
+                        assertEquals("seed " + seed + ", edit " + edit + ", " + points.size() + " sites on "
+                                        + screen[0] + "x" + screen[1] + ", query " + x + ", " + y,
+                                linear.nearest(x, y), grid.nearest(x, y));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void emptyIndexFindsNothing() {
+        PointStore points = new PointStore();
+        NearestSiteIndex grid = new GridSiteIndex(points);
+        grid.setBounds(720, 1280);
+        assertEquals(-1, grid.nearest(10, 10));
+
+        points.add(5, 5, 0);
+        grid.update();
+        points.remove(0);
+        grid.removed(0, 5, 5);
+        assertEquals(-1, grid.nearest(10, 10));
+    }
+
+    /**
+     * @return A coordinate mostly inside 0 to size, but a tenth of the time up to half the size outside it.
+     *         Now and then it lands on a whole number, so some sites tie.
+     */
+    static float spot(Random random, int size) {
+        float spot = random.nextInt(10) == 0
+                ? (random.nextFloat() * 2 - 0.5f) * size
+                : random.nextFloat() * size;
+        return random.nextInt(5) == 0 ? Math.round(spot) : spot;
+    }
+}
@@ -0,0 +1,116 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks HandleIndex.nearest() against looking at every handle, while handles are put in, moved and
+ * taken out at random, through rehashes as the index grows.
+ */
+public class HandleIndexTest {
+
+    @Test
+    public void nearestMatchesLinearThroughEdits() {
+        for (int seed = 0; seed < 20; seed++) {
+            Random random = new Random(seed);
+            float cellSize = 20 + random.nextInt(60);
+            HandleIndex index = new HandleIndex(cellSize);
+            int capacity = 1 + random.nextInt(300);
+            float[] xs = new float[capacity];
+            float[] ys = new float[capacity];
+            boolean[] present = new boolean[capacity];
+            int size = 0;
+
+            for (int edit = 0; edit < 2000; edit++) {
+                int handle = random.nextInt(capacity);
+                if (random.nextInt(4) == 0) {
+                    index.remove(handle);
+                    if (present[handle]) {
+                        present[handle] = false;
+                        size--;
+                    }
+                } else {
+                    // Usually a short drag within or just past the cell, otherwise a jump anywhere.
+                    if (present[handle] && random.nextBoolean()) {
+                        xs[handle] += (random.nextFloat() - 0.5f) * cellSize;
+                        ys[handle] += (random.nextFloat() - 0.5f) * cellSize;
+                    } else {
+                        xs[handle] = spot(random);
+                        ys[handle] = spot(random);
+                    }
+                    index.set(handle, xs[handle], ys[handle]);
+                    if (!present[handle]) {
+                        present[handle] = true;
+                        size++;
+                    }
+                }
+                assertEquals("seed " + seed + ", edit " + edit, size, index.size());
+
+                for (int query = 0; query < 10; query++) {
+                    float x = spot(random);
+                    float y = spot(random);
+                    float radius = random.nextFloat() * 3 * cellSize;
+                    assertEquals("seed " + seed + ", edit " + edit + ", query " + x + ", " + y + " within " + radius,
+                            linearNearest(xs, ys, present, x, y, radius), index.nearest(x, y, radius));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void tiesGoToTheLowerHandle() {
+        HandleIndex index = new HandleIndex(10);
+        // Added high first, so the lower one isn't simply found first.
+        index.set(7, 110, 100);
+        index.set(3, 90, 100);
+        index.set(5, 100, 110);
+        assertEquals(3, index.nearest(100, 100, 50));
+        index.remove(3);
+        assertEquals(5, index.nearest(100, 100, 50));
+        assertEquals(-1, index.nearest(100, 100, 5));
+    }
+
+    @Test
+    public void clearEmptiesTheIndex() {
+        HandleIndex index = new HandleIndex(10);
+        for (int i = 0; i < 40; i++) {
+            index.set(i, i * 3, i * 5);
+        }
+        index.clear();
+        assertEquals(0, index.size());
+        assertEquals(-1, index.nearest(30, 50, 100));
+        index.set(2, 30, 50);
+        assertEquals(2, index.nearest(30, 50, 1));
+    }
+
+    /**
+     * @return A coordinate from -100 to 900, on a whole 10 px step a third of the time so handles tie.
+     */
+    private static float spot(Random random) {
+        return random.nextInt(3) == 0 ? 10 * random.nextInt(100) - 100 : random.nextFloat() * 1000 - 100;
+    }
+
+    /**
+     * Looks at every handle, comparing squared distances the way HandleIndex does.
+     */
+    private static int linearNearest(float[] xs, float[] ys, boolean[] present, float x, float y, float radius) {
+        float bestDist = radius * radius;
+        int best = -1;
+        for (int h = 0; h < xs.length; h++) {
+            if (!present[h]) {
+                continue;
+            }
+            float dx = xs[h] - x;
+            float dy = ys[h] - y;
+            float dist = dx * dx + dy * dy;
+            if (dist < bestDist || (dist == bestDist && best == -1)) {
+                bestDist = dist;
+                best = h;
+            }
+        }
+        return best;
+    }
+}
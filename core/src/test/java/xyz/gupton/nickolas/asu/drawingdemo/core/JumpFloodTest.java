@@ -0,0 +1,85 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks jump flooding against an exact render. Flooding is only approximate, so it is allowed to get
+ * a few cells wrong, but no more than MAX_ERROR_RATE of them.
+ */
+public class JumpFloodTest {
+
+    /**
+     * MAX_ERROR_RATE | double: The largest fraction of cells flooding may give to a site that isn't nearest.
+     * Up to 4096 sites on a phone screen it gets under 1% wrong, so 2% leaves room without hiding a broken pass.
+     */
+    private static final double MAX_ERROR_RATE = 0.02;
+
+    @Test
+    public void floodIsMostlyExact() {
+        int[][] screens = {{720, 1280}, {1440, 3040}};
+        int[] counts = {1, 16, 256, 4096};
+        for (int[] screen : screens) {
+            for (int count : counts) {
+                for (int seed = 0; seed < 3; seed++) {
+                    PointStore points = randomSites(seed, count, screen[0], screen[1]);
+                    NearestSiteIndex sites = new GridSiteIndex(points);
+                    sites.setBounds(screen[0], screen[1]);
+                    VoronoiRaster exact = new VoronoiRaster();
+                    exact.resize(screen[0], screen[1]);
+                    exact.render(sites, null);
+
+                    JumpFlood flood = new JumpFlood();
+                    flood.resize(exact.getCols(), exact.getRows());
+                    flood.compute(points, null);
+
+                    int cells = exact.getCols() * exact.getRows();
+                    int errors = flood.countErrors(exact, points);
+                    assertTrue(errors + " of " + cells + " cells wrong for " + count + " sites on "
+                                    + screen[0] + "x" + screen[1] + ", seed " + seed,
+                            errors <= cells * MAX_ERROR_RATE);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void singleSiteFloodsEverything() {
+        PointStore points = randomSites(0, 1, 700, 500);
+        VoronoiRaster exact = new VoronoiRaster();
+        exact.resize(700, 500);
+        exact.render(new LinearSiteIndex(points), null);
+
+        JumpFlood flood = new JumpFlood();
+        flood.resize(exact.getCols(), exact.getRows());
+        flood.compute(points, null);
+        assertEquals(0, flood.countErrors(exact, points));
+    }
+
+    @Test
+    public void poolGivesTheSameOwners() {
+        PointStore points = randomSites(7, 1000, 720, 1280);
+        JumpFlood oneThread = new JumpFlood();
+        JumpFlood allCores = new JumpFlood();
+        oneThread.resize(240, 427);
+        allCores.resize(240, 427);
+        oneThread.compute(points, null);
+        allCores.compute(points, ForkJoinPool.commonPool());
+        assertArrayEquals(oneThread.getOwners(), allCores.getOwners());
+    }
+
+    private static PointStore randomSites(int seed, int count, int width, int height) {
+        Random random = new Random(seed);
+        PointStore points = new PointStore();
+        for (int i = 0; i < count; i++) {
+            points.add(random.nextFloat() * width, random.nextFloat() * height, random.nextInt());
+        }
+        return points;
+    }
+}
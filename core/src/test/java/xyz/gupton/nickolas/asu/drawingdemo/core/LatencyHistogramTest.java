@@ -0,0 +1,133 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the bucket edges, percentiles against sorting the values, and the max under threads recording at once.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketEdges() {
+        assertEquals(15, LatencyHistogram.bucket(15));
+        assertEquals(16, LatencyHistogram.bucket(16));
+        assertEquals(17, LatencyHistogram.bucket(17));
+        assertEquals(31, LatencyHistogram.bucket(31));
+        assertEquals(32, LatencyHistogram.bucket(32));
+        assertEquals(32, LatencyHistogram.bucket(33));
+
+        assertEquals(15, LatencyHistogram.lowestValue(15));
+        assertEquals(16, LatencyHistogram.lowestValue(16));
+        assertEquals(17, LatencyHistogram.lowestValue(17));
+        assertEquals(32, LatencyHistogram.lowestValue(32));
+        assertEquals(34, LatencyHistogram.lowestValue(33));
+
+        // The largest long goes in the last bucket, and past that lowestValue() says there is nothing more.
+        int last = LatencyHistogram.bucket(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.lowestValue(last + 1));
+        assertEquals(last, LatencyHistogram.bucket(LatencyHistogram.lowestValue(last)));
+    }
+
+    @Test
+    public void everyValueIsInsideItsBucket() {
+        Random random = new Random(1);
+        for (int i = 0; i < 100000; i++) {
+            // Spread over every power of two, not just the top few.
+            long value = random.nextLong() >>> (1 + random.nextInt(63));
+            int bucket = LatencyHistogram.bucket(value);
+            assertTrue(value + " below bucket " + bucket, LatencyHistogram.lowestValue(bucket) <= value);
+            assertTrue(value + " above bucket " + bucket, value < LatencyHistogram.lowestValue(bucket + 1)
+                    || LatencyHistogram.lowestValue(bucket + 1) == Long.MAX_VALUE);
+        }
+        for (int bucket = 0; LatencyHistogram.lowestValue(bucket) < Long.MAX_VALUE; bucket++) {
+            assertEquals(bucket, LatencyHistogram.bucket(LatencyHistogram.lowestValue(bucket)));
+            assertEquals(bucket, LatencyHistogram.bucket(LatencyHistogram.lowestValue(bucket + 1) - 1));
+        }
+    }
+
+    @Test
+    public void percentilesMatchSortedValues() {
+        double[] percentiles = {0, 1, 25, 50, 90, 95, 99, 99.9, 100};
+        for (int seed = 0; seed < 10; seed++) {
+            Random random = new Random(seed);
+            int n = 1 + random.nextInt(5000);
+            long[] values = new long[n];
+            LatencyHistogram histogram = new LatencyHistogram();
+            for (int i = 0; i < n; i++) {
+                // Roughly log-normal, like frame times: mostly a few ms with a long tail.
+                values[i] = (long)(4e6 * Math.exp(random.nextGaussian()));
+                histogram.record(values[i]);
+            }
+            Arrays.sort(values);
+            assertEquals(n, histogram.getCount());
+            assertEquals(values[n - 1], histogram.getMax());
+
+            for (double percentile : percentiles) {
+                long expected = values[(int)Math.max(0, Math.ceil(percentile / 100 * n) - 1)];
+                long actual = histogram.getPercentile(percentile);
+                // Only the bucket is kept, so the answer has to be in the same one as the exact value.
+                assertEquals("seed " + seed + ", p" + percentile + " is " + actual + ", sorted gives " + expected,
+                        LatencyHistogram.bucket(expected), LatencyHistogram.bucket(actual));
+                assertTrue(actual <= histogram.getMax());
+            }
+        }
+    }
+
+    @Test
+    public void emptyAndNegative() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentile(50));
+        assertEquals(0, histogram.getMean(), 0);
+
+        histogram.record(-5);
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getPercentile(99));
+    }
+
+    @Test
+    public void maxSurvivesConcurrentRecords() throws InterruptedException {
+        final int threads = 8;
+        final int perThread = 100000;
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final CountDownLatch start = new CountDownLatch(1);
+        final long[] maxes = new long[threads];
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            workers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Random random = new Random(thread);
+                    try {
+                        start.await();
+                    } catch (InterruptedException ex) {
+                        return;
+                    }
+                    for (int i = 0; i < perThread; i++) {
+                        // Rising values make the threads race to raise the max over and over.
+                        long value = (long)i * threads + thread + random.nextInt(threads);
+                        maxes[thread] = Math.max(maxes[thread], value);
+                        histogram.record(value);
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        long expected = 0;
+        for (int t = 0; t < threads; t++) {
+            workers[t].join();
+            expected = Math.max(expected, maxes[t]);
+        }
+        assertEquals((long)threads * perThread, histogram.getCount());
+        assertEquals(expected, histogram.getMax());
+    }
+}
@@ -0,0 +1,63 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks channels are shared by name and the CSV comes out quoted and with the allocations column right.
+ */
+public class RenderRecorderTest {
+
+    @Test
+    public void channelsAreSharedByName() {
+        RenderRecorder recorder = new RenderRecorder();
+        RenderRecorder.Channel draw = recorder.channel("Fractal draw");
+        assertSame(draw, recorder.channel("Fractal draw"));
+        recorder.channel("Fractal render");
+        recorder.channel("Bezier touch");
+        assertEquals(2, recorder.getChannels("Fractal").size());
+        assertSame(draw, recorder.getChannels("Fractal").get(0));
+    }
+
+    @Test
+    public void csvQuotesNamesAndLeavesMissingAllocationsEmpty() throws IOException {
+        RenderRecorder recorder = new RenderRecorder();
+        recorder.channel("plain").record(2000000);
+        recorder.channel("with, comma").record(1000000, 12);
+        recorder.channel("with \"quotes\"").record(1000000, 3);
+        recorder.channel("two\nlines").record(1000000);
+
+        StringBuilder out = new StringBuilder();
+        recorder.writeCsv(out);
+        String[] lines = out.toString().split("\n", -1);
+        assertEquals("channel,count,mean_ms,p50_ms,p95_ms,p99_ms,max_ms,mean_allocations", lines[0]);
+        assertTrue(lines[1], lines[1].startsWith("plain,1,2.000,"));
+        assertTrue(lines[1], lines[1].endsWith(",2.000,"));
+        assertTrue(lines[2], lines[2].startsWith("\"with, comma\",1,1.000,"));
+        assertTrue(lines[2], lines[2].endsWith(",12.0"));
+        assertTrue(lines[3], lines[3].startsWith("\"with \"\"quotes\"\"\",1,"));
+        assertTrue(lines[3], lines[3].endsWith(",3.0"));
+        // A newline inside quotes is still part of the field, so the record goes on to the next line.
+        assertEquals("\"two", lines[4]);
+        assertTrue(lines[5], lines[5].startsWith("lines\",1,"));
+        assertTrue(lines[5], lines[5].endsWith(","));
+        assertEquals("", lines[6]);
+        assertEquals(7, lines.length);
+    }
+
+    @Test
+    public void clearKeepsChannels() {
+        RenderRecorder recorder = new RenderRecorder();
+        RenderRecorder.Channel channel = recorder.channel("Voronoi render");
+        channel.record(5, 2);
+        recorder.clear();
+        assertSame(channel, recorder.channel("Voronoi render"));
+        assertEquals(0, channel.getDurations().getCount());
+        assertTrue(Double.isNaN(channel.getMeanAllocations()));
+    }
+}
@@ -0,0 +1,190 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that adding points one at a time, in batches and by merging all agree, that precision holds far
+ * from 0, and that the covariance ellipse lines up with the points.
+ */
+public class StreamingStatsTest {
+
+    @Test
+    public void addAllAndMergeMatchAdd() {
+        for (int seed = 0; seed < 20; seed++) {
+            Random random = new Random(seed);
+            int n = 2 + random.nextInt(2000);
+            float[] xs = new float[n];
+            float[] ys = new float[n];
+            for (int i = 0; i < n; i++) {
+                xs[i] = random.nextFloat() * 1440;
+                ys[i] = random.nextFloat() * 3040;
+            }
+
+            StreamingStats oneByOne = new StreamingStats(0.1);
+            for (int i = 0; i < n; i++) {
+                oneByOne.add(xs[i], ys[i]);
+            }
+
+            // The same points in batches of random sizes, and again spread over accumulators that are merged.
+            StreamingStats batched = new StreamingStats(0.1);
+            StreamingStats merged = new StreamingStats();
+            for (int start = 0; start < n; ) {
+                int length = Math.min(n - start, 1 + random.nextInt(50));
+                batched.addAll(xs, ys, start, length);
+                StreamingStats part = new StreamingStats();
+                for (int i = start; i < start + length; i++) {
+                    part.add(xs[i], ys[i]);
+                }
+                merged.merge(part);
+                start += length;
+            }
+
+            assertSameStats("seed " + seed + ", addAll()", oneByOne, batched);
+            assertSameStats("seed " + seed + ", merge()", oneByOne, merged);
+            assertEquals(oneByOne.getMovingX(), batched.getMovingX(), 0);
+            assertEquals(oneByOne.getMovingY(), batched.getMovingY(), 0);
+        }
+    }
+
+    @Test
+    public void precisionHoldsFarFromZero() {
+        // Floats near 100000 are 1/128 apart, so the points are whole steps of that around the offset.
+        Random random = new Random(4);
+        int n = 100000;
+        float[] xs = new float[n];
+        float[] ys = new float[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = 100000 + random.nextInt(512) / 128f;
+            ys[i] = -100000 + random.nextInt(256) / 128f;
+        }
+
+        // The exact answer from two passes in doubles, which can't lose anything here.
+        double meanX = 0;
+        double meanY = 0;
+        for (int i = 0; i < n; i++) {
+            meanX += xs[i];
+            meanY += ys[i];
+        }
+        meanX /= n;
+        meanY /= n;
+        double sumXX = 0;
+        double sumYY = 0;
+        for (int i = 0; i < n; i++) {
+            sumXX += (xs[i] - meanX) * (xs[i] - meanX);
+            sumYY += (ys[i] - meanY) * (ys[i] - meanY);
+        }
+
+        StreamingStats oneByOne = new StreamingStats();
+        StreamingStats batched = new StreamingStats();
+        for (int i = 0; i < n; i++) {
+            oneByOne.add(xs[i], ys[i]);
+        }
+        batched.addAll(xs, ys, 0, n);
+        for (StreamingStats stats : new StreamingStats[]{oneByOne, batched}) {
+            assertEquals(meanX, stats.getMeanX(), 1e-9 * Math.abs(meanX));
+            assertEquals(meanY, stats.getMeanY(), 1e-9 * Math.abs(meanY));
+            assertEquals(sumXX / (n - 1), stats.getVarianceX(), 1e-9 * sumXX / (n - 1));
+            assertEquals(sumYY / (n - 1), stats.getVarianceY(), 1e-9 * sumYY / (n - 1));
+        }
+    }
+
+    @Test
+    public void axisAlignedEllipse() {
+        // The four corners of a 4 by 2 rectangle: no covariance, and twice the spread across as down.
+        StreamingStats stats = new StreamingStats();
+        float[] corner = {-2, -1, 2, -1, 2, 1, -2, 1};
+        for (int i = 0; i < 4; i++) {
+            stats.add(100 + corner[2 * i], 200 + corner[2 * i + 1]);
+        }
+        float[] ellipse = new float[5];
+        assertTrue(stats.getEllipse(0.95, ellipse));
+        assertEllipse(ellipse, 100, 200, 4.0 * 4 / 3, 1.0 * 4 / 3, 0);
+    }
+
+    @Test
+    public void rotatedEllipse() {
+        // The same rectangle turned 30 degrees.
+        double angle = Math.toRadians(30);
+        double cos = Math.cos(angle);
+        double sin = Math.sin(angle);
+        StreamingStats stats = new StreamingStats();
+        float[] corner = {-2, -1, 2, -1, 2, 1, -2, 1};
+        for (int i = 0; i < 4; i++) {
+            float x = corner[2 * i];
+            float y = corner[2 * i + 1];
+            stats.add((float)(100 + x * cos - y * sin), (float)(200 + x * sin + y * cos));
+        }
+        float[] ellipse = new float[5];
+        assertTrue(stats.getEllipse(0.95, ellipse));
+        assertEllipse(ellipse, 100, 200, 4.0 * 4 / 3, 1.0 * 4 / 3, 30);
+    }
+
+    @Test
+    public void ellipseHoldsItsShareOfNormalPoints() {
+        Random random = new Random(5);
+        int n = 20000;
+        float[] xs = new float[n];
+        float[] ys = new float[n];
+        StreamingStats stats = new StreamingStats();
+        for (int i = 0; i < n; i++) {
+            double u = random.nextGaussian() * 40;
+            double v = random.nextGaussian() * 10;
+            xs[i] = (float)(500 + u * 0.6 - v * 0.8);
+            ys[i] = (float)(700 + u * 0.8 + v * 0.6);
+            stats.add(xs[i], ys[i]);
+        }
+        float[] ellipse = new float[5];
+        assertTrue(stats.getEllipse(0.95, ellipse));
+
+        int inside = 0;
+        double angle = Math.toRadians(ellipse[4]);
+        for (int i = 0; i < n; i++) {
+            double dx = xs[i] - ellipse[0];
+            double dy = ys[i] - ellipse[1];
+            double along = (dx * Math.cos(angle) + dy * Math.sin(angle)) / ellipse[2];
+            double across = (-dx * Math.sin(angle) + dy * Math.cos(angle)) / ellipse[3];
+            if (along * along + across * across <= 1) {
+                inside++;
+            }
+        }
+        assertEquals(0.95, (double)inside / n, 0.01);
+    }
+
+    @Test
+    public void tooFewPoints() {
+        StreamingStats stats = new StreamingStats();
+        float[] ellipse = new float[5];
+        assertTrue(Double.isNaN(stats.getMeanX()));
+        stats.add(1, 2);
+        assertTrue(Double.isNaN(stats.getVarianceX()));
+        assertFalse(stats.getEllipse(0.95, ellipse));
+    }
+
+    private static void assertSameStats(String message, StreamingStats expected, StreamingStats actual) {
+        assertEquals(message + ", count", expected.getCount(), actual.getCount());
+        assertEquals(message + ", mean x", expected.getMeanX(), actual.getMeanX(), 1e-9 * Math.abs(expected.getMeanX()));
+        assertEquals(message + ", mean y", expected.getMeanY(), actual.getMeanY(), 1e-9 * Math.abs(expected.getMeanY()));
+        assertEquals(message + ", variance x", expected.getVarianceX(), actual.getVarianceX(), 1e-9 * expected.getVarianceX());
+        assertEquals(message + ", variance y", expected.getVarianceY(), actual.getVarianceY(), 1e-9 * expected.getVarianceY());
+        double scale = Math.sqrt(expected.getVarianceX() * expected.getVarianceY());
+        assertEquals(message + ", covariance", expected.getCovariance(), actual.getCovariance(), 1e-9 * scale);
+    }
+
+    /**
+     * Checks an ellipse from getEllipse(0.95) against the variances along its axes and the angle of its major axis.
+     */
+    private static void assertEllipse(float[] ellipse, double x, double y, double majorVariance, double minorVariance, double degrees) {
+        double scale = Math.sqrt(-2 * Math.log(0.05));
+        assertEquals(x, ellipse[0], 1e-4);
+        assertEquals(y, ellipse[1], 1e-4);
+        assertEquals(scale * Math.sqrt(majorVariance), ellipse[2], 1e-4);
+        assertEquals(scale * Math.sqrt(minorVariance), ellipse[3], 1e-4);
+        assertEquals(degrees, ellipse[4], 1e-3);
+    }
+}
@@ -0,0 +1,213 @@
+package xyz.gupton.nickolas.asu.drawingdemo.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the quadtree fill gives every cell of the raster the same owner as searching each cell does,
+ * and that adding, moving and removing sites leaves the raster as a fresh render would draw it.
+ */
+public class VoronoiRasterTest {
+
+    /**
+     * SCREENS | int[][]: View sizes to render at. 101x77 and 700x500 aren't whole numbers of tiles.
+     */
+    private static final int[][] SCREENS = {{720, 1280}, {101, 77}, {700, 500}};
+
+    @Test
+    public void subdividedMatchesPerCellForRandomSites() {
+        for (int[] screen : SCREENS) {
+            for (int seed = 0; seed < 40; seed++) {
+                Random random = new Random(seed);
+                int count = new int[]{0, 1, 2, 3, 16, 100, 500}[seed % 7];
+                PointStore points = new PointStore();
+                for (int i = 0; i < count; i++) {
+                    points.add(random.nextFloat() * screen[0], random.nextFloat() * screen[1], random.nextInt());
+                }
+                assertSameOwners("seed " + seed, points, screen[0], screen[1]);
+            }
+        }
+    }
+
+    @Test
+    public void subdividedMatchesPerCellForDuplicateSites() {
+        for (int seed = 0; seed < 20; seed++) {
+            Random random = new Random(seed);
+            PointStore points = new PointStore();
+            for (int i = 0; i < 60; i++) {
+                float x = random.nextFloat() * 700;
+                float y = random.nextFloat() * 500;
+                // Every site is added two or three times, so whole cells tie between them.
+                int copies = 2 + random.nextInt(2);
+                for (int c = 0; c < copies; c++) {
+                    points.add(x, y, random.nextInt());
+                }
+            }
+            assertSameOwners("seed " + seed, points, 700, 500);
+        }
+    }
+
+    @Test
+    public void subdividedMatchesPerCellForEquidistantSites() {
+        for (int seed = 0; seed < 20; seed++) {
+            Random random = new Random(seed);
+            PointStore points = new PointStore();
+
+            // Sites on a grid of cell corners, so many cells are exactly as far from two or four sites.
+            int spacing = VoronoiRaster.CELL_SIZE * (2 + random.nextInt(20));
+            for (int y = 0; y < 500; y += spacing) {
+                for (int x = 0; x < 700; x += spacing) {
+                    points.add(x, y, random.nextInt());
+                }
+            }
+
+            // And pairs mirrored about a cell's sample point, which tie along a whole line of cells.
+            for (int i = 0; i < 10; i++) {
+                int cx = random.nextInt(700 / VoronoiRaster.CELL_SIZE) * VoronoiRaster.CELL_SIZE;
+                int cy = random.nextInt(500 / VoronoiRaster.CELL_SIZE) * VoronoiRaster.CELL_SIZE;
+                int dx = random.nextInt(60) - 30;
+                int dy = random.nextInt(60) - 30;
+                points.add(cx + dx, cy + dy, random.nextInt());
+                points.add(cx - dx, cy - dy, random.nextInt());
+            }
+            assertSameOwners("seed " + seed, points, 700, 500);
+        }
+    }
+
+    @Test
+    public void subdividedNeedsFewerSearches() {
+        Random random = new Random(1);
+        PointStore points = new PointStore();
+        for (int i = 0; i < 256; i++) {
+            points.add(random.nextFloat() * 720, random.nextFloat() * 1280, random.nextInt());
+        }
+        NearestSiteIndex sites = new GridSiteIndex(points);
+        sites.setBounds(720, 1280);
+        VoronoiRaster raster = new VoronoiRaster();
+        raster.resize(720, 1280);
+        raster.setSubdivide(true);
+        raster.render(sites, null);
+        long cells = (long) raster.getCols() * raster.getRows();
+        assertTrue(raster.getLastQueryCount() + " searches for " + cells + " cells", raster.getLastQueryCount() < cells / 2);
+    }
+
+    @Test
+    public void copyIsIndependentOfTheOriginal() {
+        Random random = new Random(3);
+        PointStore points = new PointStore();
+        for (int i = 0; i < 50; i++) {
+            points.add(random.nextFloat() * 700, random.nextFloat() * 500, random.nextInt());
+        }
+        NearestSiteIndex sites = new GridSiteIndex(points);
+        sites.setBounds(700, 500);
+        VoronoiRaster original = new VoronoiRaster();
+        original.resize(700, 500);
+        original.render(sites, null);
+        int[] before = original.getOwners().clone();
+
+        VoronoiRaster copy = new VoronoiRaster();
+        copy.copyFrom(original);
+        assertArrayEquals(before, copy.getOwners());
+        assertArrayEquals(original.getPixels(), copy.getPixels());
+
+        // Editing the copy mustn't touch the original, and the edit has to work from the copied distances.
+        int site = points.add(350, 250, random.nextInt());
+        sites.update();
+        copy.addSite(points, site);
+        assertArrayEquals(before, original.getOwners());
+        assertEquals(site, copy.getOwner(350 / VoronoiRaster.CELL_SIZE, 250 / VoronoiRaster.CELL_SIZE));
+    }
+
+    @Test
+    public void editsMatchAFreshRender() {
+        for (int[] screen : SCREENS) {
+            for (int seed = 0; seed < 6; seed++) {
+                Random random = new Random(seed);
+                PointStore points = new PointStore();
+                for (int i = 0; i < 20; i++) {
+                    float x = GridSiteIndexTest.spot(random, screen[0]);
+                    float y = GridSiteIndexTest.spot(random, screen[1]);
+                    points.add(x, y, random.nextInt());
+                }
+                NearestSiteIndex sites = new GridSiteIndex(points);
+                sites.setBounds(screen[0], screen[1]);
+                VoronoiRaster edited = new VoronoiRaster();
+                edited.resize(screen[0], screen[1]);
+                edited.setSubdivide(seed % 2 == 0);
+                edited.render(sites, null);
+
+                for (int edit = 0; edit < 150; edit++) {
+                    // Sites sometimes land outside the raster, where a drag off the edge of the View can leave them.
+                    float x = GridSiteIndexTest.spot(random, screen[0]);
+                    float y = GridSiteIndexTest.spot(random, screen[1]);
+                    int action = random.nextInt(10);
+                    if (action < 4 || points.size() == 0) {
+                        int site = points.add(x, y, random.nextInt());
+                        sites.update();
+                        edited.addSite(points, site);
+                    } else if (action < 8) {
+                        int site = random.nextInt(points.size());
+                        float oldX = points.getX(site);
+                        float oldY = points.getY(site);
+                        points.set(site, x, y);
+                        sites.moved(site, oldX, oldY);
+                        edited.moveSite(sites, site, oldX, oldY);
+                    } else {
+                        int site = random.nextInt(points.size());
+                        float oldX = points.getX(site);
+                        float oldY = points.getY(site);
+                        int lastSite = points.remove(site);
+                        sites.removed(site, oldX, oldY);
+                        edited.removeSite(sites, site, oldX, oldY, lastSite);
+                    }
+
+                    if (edit % 10 == 9) {
+                        VoronoiRaster fresh = new VoronoiRaster();
+                        fresh.resize(screen[0], screen[1]);
+                        fresh.render(new LinearSiteIndex(points), null);
+                        assertSameRaster("seed " + seed + ", edit " + edit + ", " + points.size() + " sites on "
+                                + screen[0] + "x" + screen[1], fresh, edited);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Renders the sites cell by cell and subdivided, and checks every owner and color agrees.
+     */
+    private static void assertSameOwners(String message, PointStore points, int width, int height) {
+        NearestSiteIndex sites = new GridSiteIndex(points);
+        sites.setBounds(width, height);
+
+        VoronoiRaster perCell = new VoronoiRaster();
+        perCell.resize(width, height);
+        perCell.render(sites, null);
+
+        VoronoiRaster subdivided = new VoronoiRaster();
+        subdivided.resize(width, height);
+        subdivided.setSubdivide(true);
+        subdivided.render(sites, null);
+
+        assertSameRaster(message + ", " + points.size() + " sites on " + width + "x" + height, perCell, subdivided);
+    }
+
+    /**
+     * Checks every owner and color of two rasters of the same size agrees.
+     */
+    private static void assertSameRaster(String message, VoronoiRaster expected, VoronoiRaster actual) {
+        for (int row = 0; row < expected.getRows(); row++) {
+            for (int col = 0; col < expected.getCols(); col++) {
+                String where = message + ", cell " + col + ", " + row;
+                assertEquals(where, expected.getOwner(col, row), actual.getOwner(col, row));
+                assertEquals(where, expected.getPixels()[row * expected.getCols() + col],
+                        actual.getPixels()[row * actual.getCols() + col]);
+            }
+        }
+    }
+}